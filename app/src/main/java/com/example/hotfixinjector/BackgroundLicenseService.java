@@ -7,25 +7,25 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.os.IBinder;
-import android.os.SystemClock;
 import android.util.Log;
 
 /**
- * Background service that verifies license with server
- * Uses AlarmManager for reliable periodic verification
+ * Entry point for background license verification
+ * Hands scheduling to LicenseVerificationJob (JobScheduler, network-constrained)
  * This runs in the MODULE app context (has INTERNET permission)
  */
 public class BackgroundLicenseService extends Service {
 
     private static final String TAG = "BgLicenseService";
-    private static final long VERIFICATION_INTERVAL_MS = 5 * 60 * 1000; // 5 minutes
 
+    // Action of the repeating alarm used by older versions - only cancelled now
     public static final String ACTION_VERIFY = "com.example.hotfixinjector.ACTION_VERIFY";
 
     @Override
     public void onCreate() {
         super.onCreate();
         Log.i(TAG, "🚀 [SERVICE] onCreate()");
+        MetricsReporter.start(this);
     }
 
     @Override
@@ -33,31 +33,29 @@ public class BackgroundLicenseService extends Service {
         Log.i(TAG, "🚀 [SERVICE] onStartCommand() - Action: " +
             (intent != null ? intent.getAction() : "null"));
 
-        String action = intent != null ? intent.getAction() : null;
-
-        if (ACTION_VERIFY.equals(action)) {
-            // Periodic verification triggered by AlarmManager
-            Log.i(TAG, "📢 [SERVICE] Periodic verification triggered by AlarmManager");
-            verifyAndUpdateFile();
-        } else {
-            // Initial start - do immediate verification and schedule periodic
-            Log.i(TAG, "📢 [SERVICE] Initial start - immediate verification");
-            verifyAndUpdateFile();
-            schedulePeriodicVerification();
-        }
+        final int id = startId;
+        // Reading the license file decrypts it - keep that off the main thread
+        SharedScheduler.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                cancelLegacyAlarm();
+
+                // Verifies immediately only if the last server result is stale, otherwise keeps the schedule
+                LicenseVerificationJob.schedule(BackgroundLicenseService.this);
+
+                stopSelf(id);
+            }
+        });
 
-        return START_STICKY;
+        return START_NOT_STICKY;
     }
 
     /**
-     * Schedule periodic verification using AlarmManager (more reliable than ScheduledExecutor)
+     * Remove the fixed 5-minute ELAPSED_REALTIME_WAKEUP alarm installed by older versions
      */
-    private void schedulePeriodicVerification() {
-        Log.i(TAG, "⏰ [SERVICE] Scheduling periodic verification every 5 minutes...");
-
+    private void cancelLegacyAlarm() {
         AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
         if (alarmManager == null) {
-            Log.e(TAG, "❌ [SERVICE] AlarmManager is null!");
             return;
         }
 
@@ -69,67 +67,9 @@ public class BackgroundLicenseService extends Service {
             flags |= PendingIntent.FLAG_IMMUTABLE;
         }
 
-        PendingIntent pendingIntent = PendingIntent.getService(
-            this,
-            0,
-            intent,
-            flags
-        );
-
-        // Cancel any existing alarms first to avoid duplicates
+        PendingIntent pendingIntent = PendingIntent.getService(this, 0, intent, flags);
         alarmManager.cancel(pendingIntent);
-
-        // Schedule repeating alarm every 5 minutes
-        long triggerAtMillis = SystemClock.elapsedRealtime() + VERIFICATION_INTERVAL_MS;
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            // For Android 6.0+ use setExactAndAllowWhileIdle for better reliability
-            alarmManager.setRepeating(
-                AlarmManager.ELAPSED_REALTIME_WAKEUP,
-                triggerAtMillis,
-                VERIFICATION_INTERVAL_MS,
-                pendingIntent
-            );
-        } else {
-            alarmManager.setRepeating(
-                AlarmManager.ELAPSED_REALTIME_WAKEUP,
-                triggerAtMillis,
-                VERIFICATION_INTERVAL_MS,
-                pendingIntent
-            );
-        }
-
-        Log.i(TAG, "✅ [SERVICE] Periodic verification scheduled successfully");
-    }
-
-    /**
-     * Verify license and update file
-     */
-    private void verifyAndUpdateFile() {
-        // Run in background thread to avoid blocking
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    Log.i(TAG, "🔍 [VERIFY] Starting online verification...");
-                    Log.i(TAG, "🔍 [VERIFY] Current time: " + System.currentTimeMillis());
-
-                    LicenseClient licenseClient = new LicenseClient(BackgroundLicenseService.this);
-
-                    // Send HTTP request and update file
-                    LicenseClient.LicenseResult result = licenseClient.verify();
-
-                    if (result.success) {
-                        Log.i(TAG, "✅ [VERIFY] SUCCESS - File updated");
-                        Log.i(TAG, "✅ [VERIFY] Message: " + result.message);
-                    } else {
-                        Log.e(TAG, "❌ [VERIFY] FAILED: " + result.message);
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "❌ [VERIFY] Exception: " + e.getMessage(), e);
-                }
-            }
-        }).start();
+        pendingIntent.cancel();
     }
 
     @Override
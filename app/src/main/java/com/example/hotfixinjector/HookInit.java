@@ -1,7 +1,6 @@
 package com.example.hotfixinjector;
 
 import android.app.Application;
-import android.content.Context;
 import android.os.Build;
 
 import de.robv.android.xposed.IXposedHookLoadPackage;
@@ -12,15 +11,9 @@ import de.robv.android.xposed.XposedHelpers;
 import de.robv.android.xposed.callbacks.XC_LoadPackage;
 
 import java.io.File;
-import java.io.FileFilter;
-import java.lang.reflect.Array;
-import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 
-import dalvik.system.DexClassLoader;
-
 public class HookInit implements IXposedHookLoadPackage, IXposedHookZygoteInit {
 
     private static final String TAG = "HotfixInjector";
@@ -35,6 +28,9 @@ public class HookInit implements IXposedHookLoadPackage, IXposedHookZygoteInit {
         XposedBridge.log(TAG + ": ========================================");
         XposedBridge.log(TAG + ": [INIT] Starting Zygote hook installation...");
 
+        // Device key, hotfix index, field handles - inherited by every forked app, no per-app work
+        XposedBridge.log(TAG + ": [INIT] Zygote state: " + ZygoteState.preinit());
+
         try {
             XposedBridge.log(TAG + ": [INIT] Finding Application.onCreate method...");
 
@@ -52,6 +48,8 @@ public class HookInit implements IXposedHookLoadPackage, IXposedHookZygoteInit {
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                         XposedBridge.log(TAG + ": [HOOK] Application.onCreate AFTER started");
 
+                        // Every section opened below is closed in finally, whichever return is taken
+                        int traceDepth = HotfixTrace.begin("onCreate");
                         try {
                             Application app = (Application) param.thisObject;
                             XposedBridge.log(TAG + ": [HOOK] Got Application object: " + app);
@@ -75,10 +73,23 @@ public class HookInit implements IXposedHookLoadPackage, IXposedHookZygoteInit {
                                 processed.add(pkg);
                             }
 
+                            String hotfixPath = "/data/data/" + pkg + "/" + HOTFIX_FOLDER;
+
+                            // Fast reject: not in the index and still no folder - one stat, no metrics
+                            // sink or report for the app. The exists() catches folders added after the scan
+                            HotfixIndex hotfixIndex = ZygoteState.hotfixIndex();
+                            if (hotfixIndex != null && !hotfixIndex.contains(pkg) && !new File(hotfixPath).exists()) {
+                                XposedBridge.log(TAG + ": [SKIP] No hotfix (index): " + pkg);
+                                return;
+                            }
+
+                            MetricsReporter.start(app);
+                            Metrics.increment(Metrics.INJECT_ATTEMPTS);
+
                             XposedBridge.log(TAG + ": [CHECK] Checking package: " + pkg);
+                            int checkDepth = HotfixTrace.begin("check", pkg);
 
                             // Check hotfix folder
-                            String hotfixPath = "/data/data/" + pkg + "/" + HOTFIX_FOLDER;
                             XposedBridge.log(TAG + ": [CHECK] Hotfix path: " + hotfixPath);
 
                             File hotfixDir = new File(hotfixPath);
@@ -91,91 +102,24 @@ public class HookInit implements IXposedHookLoadPackage, IXposedHookZygoteInit {
 
                             if (!hotfixDir.exists()) {
                                 XposedBridge.log(TAG + ": [SKIP] Hotfix folder not found for: " + pkg);
+                                HotfixInventory.recordOutcome(app, pkg, Metrics.INJECT_NO_HOTFIX);
                                 return;
                             }
 
+                            HotfixTrace.endTo(checkDepth);
                             XposedBridge.log(TAG + ": [FOUND] 🔥 Hotfix detected: " + pkg);
                             XposedBridge.log(TAG + ": [FOUND] Path exists: " + hotfixPath);
 
-                            // ⚡ SERVER VERIFICATION - Check license BEFORE injection!
-                            XposedBridge.log(TAG + ": [LICENSE] 🔒 Verifying with server BEFORE injection...");
-
-                            // Use CountDownLatch to wait for background thread
-                            final java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(1);
-                            final boolean[] verificationSuccess = new boolean[1];
-                            final String[] errorMessage = new String[1];
-
-                            // Run verification in background thread (OFFLINE - just read file, no HTTP!)
-                            new Thread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    try {
-                                        LicenseClient licenseClient = new LicenseClient(app);
-                                        // ⚡ Use OFFLINE verification (fast, no INTERNET permission needed!)
-                                        LicenseClient.LicenseResult result = licenseClient.verifyOffline();
-                                        verificationSuccess[0] = result.success;
-                                        errorMessage[0] = result.message;
-                                    } catch (Exception e) {
-                                        verificationSuccess[0] = false;
-                                        errorMessage[0] = "Exception: " + e.getMessage();
-                                    } finally {
-                                        latch.countDown();
-                                    }
-                                }
-                            }).start();
-
-                            // Wait for verification to complete (max 3 seconds - should be instant!)
-                            try {
-                                boolean completed = latch.await(3, java.util.concurrent.TimeUnit.SECONDS);
-                                if (!completed) {
-                                    XposedBridge.log(TAG + ": [LICENSE] ❌ VERIFICATION TIMEOUT (3s)");
-                                    XposedBridge.log(TAG + ": [LICENSE] 🚫 INJECTION BLOCKED - Verification timeout!");
-                                    return;
-                                }
-                            } catch (InterruptedException e) {
-                                XposedBridge.log(TAG + ": [LICENSE] ❌ VERIFICATION INTERRUPTED");
-                                XposedBridge.log(TAG + ": [LICENSE] 🚫 INJECTION BLOCKED!");
-                                return;
-                            }
-
-                            // Check verification result
-                            if (!verificationSuccess[0]) {
-                                XposedBridge.log(TAG + ": [LICENSE] ❌ VERIFICATION FAILED: " + errorMessage[0]);
-                                XposedBridge.log(TAG + ": [LICENSE] 🚫 INJECTION BLOCKED - No valid license!");
-                                return; // Don't inject if license invalid!
-                            }
-
-                            XposedBridge.log(TAG + ": [LICENSE] ✅ Verification SUCCESS - proceeding with injection");
-
-                            // ⚡ CHECK 3: Double-check nonce exists before injection (anti-bypass)
-                            XposedBridge.log(TAG + ": [LICENSE] 🔑 Double-checking security token...");
-                            try {
-                                LicenseClient.LicenseData license = LicenseClient.readLicenseFromFile();
-                                if (license == null || license.nonce == null || license.nonce.isEmpty()) {
-                                    XposedBridge.log(TAG + ": [LICENSE] ❌ SECURITY TOKEN MISSING!");
-                                    XposedBridge.log(TAG + ": [LICENSE] 🚫 INJECTION BLOCKED - Security check failed!");
-                                    return;
-                                }
-                                XposedBridge.log(TAG + ": [LICENSE] ✅ Security token verified");
-                            } catch (Exception e) {
-                                XposedBridge.log(TAG + ": [LICENSE] ❌ Security check exception: " + e.getMessage());
-                                XposedBridge.log(TAG + ": [LICENSE] 🚫 INJECTION BLOCKED!");
-                                return;
-                            }
-
-                            // Get classloader
-                            ClassLoader cl = app.getClassLoader();
-                            XposedBridge.log(TAG + ": [FOUND] ClassLoader: " + cl);
-
-                            // Inject (only if license verified AND nonce checked!)
-                            XposedBridge.log(TAG + ": [INJECT] Starting injection for: " + pkg);
-                            injectHotfix(pkg, cl, hotfixDir, app);
+                            // First reference to the license/crypto/injection code - hotfixed processes only
+                            HotfixPipeline.run(app, pkg, hotfixDir);
 
                         } catch (Throwable t) {
                             XposedBridge.log(TAG + ": [ERROR] Exception in afterHookedMethod");
                             XposedBridge.log(TAG + ": [ERROR] Message: " + t.getMessage());
                             XposedBridge.log(TAG + ": [ERROR] Class: " + t.getClass().getName());
                             XposedBridge.log(t);
+                        } finally {
+                            HotfixTrace.endTo(traceDepth);
                         }
                     }
                 }
@@ -219,361 +163,6 @@ public class HookInit implements IXposedHookLoadPackage, IXposedHookZygoteInit {
         return skip;
     }
 
-    private void injectHotfix(String packageName, ClassLoader classLoader, File hotfixDir, Application app) {
-        try {
-            XposedBridge.log(TAG + ": ========================================");
-            XposedBridge.log(TAG + ": 🔥 INJECTING: " + packageName);
-            XposedBridge.log(TAG + ": [INJ] ClassLoader: " + classLoader);
-            XposedBridge.log(TAG + ": [INJ] Hotfix dir: " + hotfixDir.getAbsolutePath());
-
-            XposedBridge.log(TAG + ": [INJ] Listing files in hotfix directory...");
-
-            File[] allFiles = hotfixDir.listFiles();
-            if (allFiles != null) {
-                XposedBridge.log(TAG + ": [INJ] Total files in directory: " + allFiles.length);
-                for (File f : allFiles) {
-                    XposedBridge.log(TAG + ": [INJ]   - " + f.getName() + 
-									 " (size: " + f.length() + 
-									 ", readable: " + f.canRead() + 
-									 ", writable: " + f.canWrite() + 
-									 ", executable: " + f.canExecute() + ")");
-                }
-            } else {
-                XposedBridge.log(TAG + ": [INJ] listFiles() returned null!");
-            }
-
-            XposedBridge.log(TAG + ": [INJ] Filtering DEX files...");
-
-            File[] dexFiles = hotfixDir.listFiles(new FileFilter() {
-					@Override
-					public boolean accept(File file) {
-						String name = file.getName();
-						boolean isDex = name.endsWith(".dex");
-						boolean canRead = file.canRead();
-
-						XposedBridge.log(TAG + ": [FILTER] Checking: " + name + 
-										 " (isDex: " + isDex + 
-										 ", canRead: " + canRead + 
-										 ", size: " + file.length() + ")");
-
-						return isDex && canRead;
-					}
-				});
-
-            if (dexFiles == null) {
-                XposedBridge.log(TAG + ": ❌ listFiles with filter returned null");
-                return;
-            }
-
-            if (dexFiles.length == 0) {
-                XposedBridge.log(TAG + ": ❌ No DEX files found (filtered length = 0)");
-                return;
-            }
-
-            XposedBridge.log(TAG + ": 📄 DEX files found: " + dexFiles.length);
-            for (int i = 0; i < dexFiles.length; i++) {
-                File dex = dexFiles[i];
-                XposedBridge.log(TAG + ":    [" + i + "] " + dex.getName() + 
-								 " (" + dex.length() + " bytes)" +
-								 " (path: " + dex.getAbsolutePath() + ")" +
-								 " (readable: " + dex.canRead() + ")" +
-								 " (writable: " + dex.canWrite() + ")");
-            }
-
-            // Try HotfixEntry
-            XposedBridge.log(TAG + ": [INJ] Attempting HotfixEntry execution...");
-            boolean success = tryExecuteEntry(classLoader, dexFiles, hotfixDir);
-
-            if (!success) {
-                XposedBridge.log(TAG + ": [INFO] HotfixEntry not found, using direct injection");
-            } else {
-                XposedBridge.log(TAG + ": [INFO] HotfixEntry executed successfully");
-            }
-
-            // Direct injection
-            XposedBridge.log(TAG + ": [INJ] Starting direct DEX injection...");
-            injectDexElements(classLoader, dexFiles, hotfixDir);
-
-            XposedBridge.log(TAG + ": ✅ INJECTION COMPLETED!");
-
-            // Start License Guard - NO local storage, server-only verification!
-            XposedBridge.log(TAG + ": [GUARD] Starting License Guard...");
-            XposedBridge.log(TAG + ": [GUARD] Will verify with server every 5 MINUTES");
-            XposedBridge.log(TAG + ": [GUARD] ⚡ STRONG MODE: Crash on first failure!");
-            try {
-                LicenseGuard guard = LicenseGuard.getInstance(app, null);
-                guard.startGuard(app);
-                XposedBridge.log(TAG + ": ✅ [GUARD] Guard started - server will decide if license is valid");
-            } catch (Exception guardEx) {
-                XposedBridge.log(TAG + ": ❌ [GUARD] Failed to start guard: " + guardEx.getMessage());
-                XposedBridge.log(guardEx);
-            }
-
-            XposedBridge.log(TAG + ": ========================================");
-
-        } catch (Exception e) {
-            XposedBridge.log(TAG + ": ❌ Injection error");
-            XposedBridge.log(TAG + ": [ERROR] Message: " + e.getMessage());
-            XposedBridge.log(TAG + ": [ERROR] Class: " + e.getClass().getName());
-            XposedBridge.log(e);
-        }
-    }
-
-    private boolean tryExecuteEntry(ClassLoader classLoader, File[] dexFiles, File hotfixDir) {
-        try {
-            XposedBridge.log(TAG + ": [ENTRY] Creating opt directory...");
-            File optDir = new File(hotfixDir, "opt");
-            boolean created = optDir.mkdirs();
-            XposedBridge.log(TAG + ": [ENTRY] Opt dir created: " + created + " (exists: " + optDir.exists() + ")");
-            XposedBridge.log(TAG + ": [ENTRY] Opt dir path: " + optDir.getAbsolutePath());
-
-            for (int i = 0; i < dexFiles.length; i++) {
-                File dex = dexFiles[i];
-                XposedBridge.log(TAG + ": [ENTRY] Trying DEX file [" + i + "]: " + dex.getName());
-
-                try {
-                    XposedBridge.log(TAG + ": [ENTRY] Creating DexClassLoader...");
-                    XposedBridge.log(TAG + ": [ENTRY]   dexPath: " + dex.getAbsolutePath());
-                    XposedBridge.log(TAG + ": [ENTRY]   optimizedDirectory: " + optDir.getAbsolutePath());
-                    XposedBridge.log(TAG + ": [ENTRY]   parent: " + classLoader);
-
-                    DexClassLoader loader = new DexClassLoader(
-                        dex.getAbsolutePath(),
-                        optDir.getAbsolutePath(),
-                        null,
-                        classLoader
-                    );
-
-                    XposedBridge.log(TAG + ": [ENTRY] DexClassLoader created: " + loader);
-
-                    XposedBridge.log(TAG + ": [ENTRY] Loading class: com.hotfix.HotfixEntry");
-                    Class<?> entry = loader.loadClass("com.hotfix.HotfixEntry");
-                    XposedBridge.log(TAG + ": [ENTRY] Class loaded: " + entry);
-
-                    XposedBridge.log(TAG + ": [ENTRY] Creating instance...");
-                    Object instance = entry.newInstance();
-                    XposedBridge.log(TAG + ": [ENTRY] Instance created: " + instance);
-
-                    XposedBridge.log(TAG + ": [ENTRY] Getting init method...");
-                    java.lang.reflect.Method init = entry.getMethod("init", ClassLoader.class);
-                    XposedBridge.log(TAG + ": [ENTRY] Method found: " + init);
-
-                    XposedBridge.log(TAG + ": [ENTRY] Invoking init method...");
-                    init.invoke(instance, classLoader);
-
-                    XposedBridge.log(TAG + ": 🎯 HotfixEntry executed successfully!");
-                    return true;
-
-                } catch (ClassNotFoundException e) {
-                    XposedBridge.log(TAG + ": [ENTRY] ClassNotFoundException for " + dex.getName() + ": " + e.getMessage());
-                } catch (Exception e) {
-                    XposedBridge.log(TAG + ": [ENTRY] Exception for " + dex.getName());
-                    XposedBridge.log(TAG + ": [ENTRY] Error: " + e.getMessage());
-                    XposedBridge.log(TAG + ": [ENTRY] Class: " + e.getClass().getName());
-                    XposedBridge.log(e);
-                }
-            }
-
-            XposedBridge.log(TAG + ": [ENTRY] No HotfixEntry found in any DEX file");
-
-        } catch (Exception e) {
-            XposedBridge.log(TAG + ": [ENTRY] Failed to execute entry");
-            XposedBridge.log(TAG + ": [ENTRY] Message: " + e.getMessage());
-            XposedBridge.log(TAG + ": [ENTRY] Class: " + e.getClass().getName());
-            XposedBridge.log(e);
-        }
-        return false;
-    }
-
-    private void injectDexElements(ClassLoader classLoader, File[] dexFiles, File hotfixDir) {
-        try {
-            XposedBridge.log(TAG + ": [ELEM] Starting element injection");
-            XposedBridge.log(TAG + ": [ELEM] Creating opt directory...");
-
-            File optDir = new File(hotfixDir, "opt");
-            boolean created = optDir.mkdirs();
-            XposedBridge.log(TAG + ": [ELEM] Opt dir: " + optDir.getAbsolutePath() + " (created: " + created + ")");
-
-            ArrayList<Object> elements = new ArrayList<>();
-            XposedBridge.log(TAG + ": [ELEM] Processing " + dexFiles.length + " DEX files...");
-
-            for (int i = 0; i < dexFiles.length; i++) {
-                File dex = dexFiles[i];
-                XposedBridge.log(TAG + ": [ELEM] Processing DEX [" + i + "]: " + dex.getName());
-
-                try {
-                    XposedBridge.log(TAG + ": [ELEM] Creating DexClassLoader for " + dex.getName());
-
-                    DexClassLoader loader = new DexClassLoader(
-                        dex.getAbsolutePath(),
-                        optDir.getAbsolutePath(),
-                        null,
-                        classLoader
-                    );
-
-                    XposedBridge.log(TAG + ": [ELEM] Loader created: " + loader);
-                    XposedBridge.log(TAG + ": [ELEM] Getting pathList field...");
-
-                    Object pathList = getField(loader, "pathList");
-                    XposedBridge.log(TAG + ": [ELEM] pathList: " + pathList);
-
-                    if (pathList == null) {
-                        XposedBridge.log(TAG + ": [ELEM] pathList is null for " + dex.getName());
-                        continue;
-                    }
-
-                    XposedBridge.log(TAG + ": [ELEM] Getting dexElements field...");
-                    Object[] dexElements = (Object[]) getField(pathList, "dexElements");
-
-                    if (dexElements == null) {
-                        XposedBridge.log(TAG + ": [ELEM] dexElements is null for " + dex.getName());
-                        continue;
-                    }
-
-                    XposedBridge.log(TAG + ": [ELEM] dexElements length: " + dexElements.length);
-
-                    for (int j = 0; j < dexElements.length; j++) {
-                        Object e = dexElements[j];
-                        if (e != null) {
-                            XposedBridge.log(TAG + ": [ELEM] Adding element [" + j + "]: " + e);
-                            elements.add(e);
-                        } else {
-                            XposedBridge.log(TAG + ": [ELEM] Element [" + j + "] is null, skipping");
-                        }
-                    }
-
-                    XposedBridge.log(TAG + ": [ELEM] Successfully processed " + dex.getName());
-
-                } catch (Exception e) {
-                    XposedBridge.log(TAG + ": [ELEM] Failed to process " + dex.getName());
-                    XposedBridge.log(TAG + ": [ELEM] Error: " + e.getMessage());
-                    XposedBridge.log(TAG + ": [ELEM] Class: " + e.getClass().getName());
-                    XposedBridge.log(e);
-                }
-            }
-
-            XposedBridge.log(TAG + ": [ELEM] Total elements collected: " + elements.size());
-
-            if (elements.isEmpty()) {
-                XposedBridge.log(TAG + ": [ELEM] No elements to inject");
-                return;
-            }
-
-            XposedBridge.log(TAG + ": [ELEM] Getting target classLoader pathList...");
-            Object targetPathList = getField(classLoader, "pathList");
-            XposedBridge.log(TAG + ": [ELEM] Target pathList: " + targetPathList);
-
-            if (targetPathList == null) {
-                XposedBridge.log(TAG + ": [ELEM] Target pathList is null");
-                return;
-            }
-
-            XposedBridge.log(TAG + ": [ELEM] Getting target dexElements...");
-            Object[] targetElements = (Object[]) getField(targetPathList, "dexElements");
-
-            if (targetElements == null) {
-                XposedBridge.log(TAG + ": [ELEM] Target dexElements is null");
-                return;
-            }
-
-            XposedBridge.log(TAG + ": [ELEM] Target dexElements length: " + targetElements.length);
-
-            int total = elements.size() + targetElements.length;
-            XposedBridge.log(TAG + ": [ELEM] Creating combined array of size: " + total);
-
-            Object combined = Array.newInstance(
-                targetElements.getClass().getComponentType(),
-                total
-            );
-
-            XposedBridge.log(TAG + ": [ELEM] Combined array created: " + combined);
-
-            XposedBridge.log(TAG + ": [ELEM] Copying new elements to combined array...");
-            for (int i = 0; i < elements.size(); i++) {
-                Array.set(combined, i, elements.get(i));
-                XposedBridge.log(TAG + ": [ELEM] Set element [" + i + "]: " + elements.get(i));
-            }
-
-            XposedBridge.log(TAG + ": [ELEM] Copying original elements to combined array...");
-            System.arraycopy(targetElements, 0, combined, elements.size(), targetElements.length);
-            XposedBridge.log(TAG + ": [ELEM] Original elements copied");
-
-            XposedBridge.log(TAG + ": [ELEM] Setting new dexElements to pathList...");
-            setField(targetPathList, "dexElements", combined);
-            XposedBridge.log(TAG + ": [ELEM] dexElements set successfully");
-
-            XposedBridge.log(TAG + ": 🚀 Injected " + elements.size() + " elements!");
-
-        } catch (Exception e) {
-            XposedBridge.log(TAG + ": [ELEM] Injection failed");
-            XposedBridge.log(TAG + ": [ERROR] Message: " + e.getMessage());
-            XposedBridge.log(TAG + ": [ERROR] Class: " + e.getClass().getName());
-            XposedBridge.log(e);
-        }
-    }
-
-    private Object getField(Object obj, String name) throws Exception {
-        XposedBridge.log(TAG + ": [FIELD] Getting field '" + name + "' from " + obj);
-
-        if (obj == null) {
-            XposedBridge.log(TAG + ": [FIELD] Object is null");
-            return null;
-        }
-
-        Class<?> clazz = obj.getClass();
-        XposedBridge.log(TAG + ": [FIELD] Object class: " + clazz.getName());
-
-        while (clazz != null) {
-            try {
-                XposedBridge.log(TAG + ": [FIELD] Trying to get field from class: " + clazz.getName());
-                Field f = clazz.getDeclaredField(name);
-                XposedBridge.log(TAG + ": [FIELD] Field found: " + f);
-
-                f.setAccessible(true);
-                XposedBridge.log(TAG + ": [FIELD] Field set accessible");
-
-                Object value = f.get(obj);
-                XposedBridge.log(TAG + ": [FIELD] Field value: " + value);
-
-                return value;
-            } catch (NoSuchFieldException e) {
-                XposedBridge.log(TAG + ": [FIELD] Field not found in " + clazz.getName() + ", trying superclass");
-                clazz = clazz.getSuperclass();
-            }
-        }
-
-        XposedBridge.log(TAG + ": [FIELD] Field '" + name + "' not found in any class");
-        throw new NoSuchFieldException(name);
-    }
-
-    private void setField(Object obj, String name, Object value) throws Exception {
-        XposedBridge.log(TAG + ": [FIELD] Setting field '" + name + "' on " + obj + " to " + value);
-
-        Class<?> clazz = obj.getClass();
-        XposedBridge.log(TAG + ": [FIELD] Object class: " + clazz.getName());
-
-        while (clazz != null) {
-            try {
-                XposedBridge.log(TAG + ": [FIELD] Trying to set field in class: " + clazz.getName());
-                Field f = clazz.getDeclaredField(name);
-                XposedBridge.log(TAG + ": [FIELD] Field found: " + f);
-
-                f.setAccessible(true);
-                XposedBridge.log(TAG + ": [FIELD] Field set accessible");
-
-                f.set(obj, value);
-                XposedBridge.log(TAG + ": [FIELD] Field value set successfully");
-
-                return;
-            } catch (NoSuchFieldException e) {
-                XposedBridge.log(TAG + ": [FIELD] Field not found in " + clazz.getName() + ", trying superclass");
-                clazz = clazz.getSuperclass();
-            }
-        }
-
-        XposedBridge.log(TAG + ": [FIELD] Field '" + name + "' not found in any class");
-        throw new NoSuchFieldException(name);
-    }
 
     private void hookSelfModule(XC_LoadPackage.LoadPackageParam lpparam) {
         try {
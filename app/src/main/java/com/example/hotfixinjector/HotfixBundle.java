@@ -0,0 +1,439 @@
+package com.example.hotfixinjector;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single-file hotfix: a manifest saying what to load where, then the dex payloads
+ * Layout:
+ *   header    "HFB1", version, manifest length, page size (4 big-endian ints)
+ *   manifest  UTF-8 lines:
+ *               # hotfix bundle v1
+ *               package=<target package>
+ *               version-code=<min>-<max>        (optional, either side may be empty)
+ *               entry=<HotfixEntry class>        (optional)
+ *               entry-dex=<payload name>         (optional, default: first payload)
+ *               D|<name>|<front|back>|<offset>|<length>|<sha256>   (load order)
+ *   payloads  each at a PAGE_SIZE-aligned offset, so it maps on its own pages
+ * readManifest() reads the header and manifest only; map() hands out read-only mappings of
+ * the payloads, nothing is copied onto the module's heap. ART still copies each payload when it
+ * opens it (InMemoryDexClassLoader, or the opt/ extraction below API 26)
+ * Pure Java, so the host-JVM benchmarks compile it unchanged
+ */
+final class HotfixBundle {
+
+    static final String FILE_NAME = "hotfix.hfb";
+    static final int PAGE_SIZE = 4096;
+
+    private static final int MAGIC = 0x48464231;   // "HFB1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_MANIFEST = 64 * 1024;
+    private static final String MANIFEST_HEADER = "# hotfix bundle v1";
+
+    final String packageName;
+    final long minVersionCode;      // Long.MIN_VALUE = no lower bound
+    final long maxVersionCode;      // Long.MAX_VALUE = no upper bound
+    final String entryClass;        // null = no HotfixEntry to run
+    final String entryDex;          // null = first payload
+    final List<Payload> payloads;
+
+    HotfixBundle(String packageName, long minVersionCode, long maxVersionCode, String entryClass,
+                 String entryDex, List<Payload> payloads) {
+        this.packageName = packageName;
+        this.minVersionCode = minVersionCode;
+        this.maxVersionCode = maxVersionCode;
+        this.entryClass = entryClass;
+        this.entryDex = entryDex;
+        this.payloads = payloads;
+    }
+
+    boolean hasVersionRange() {
+        return minVersionCode != Long.MIN_VALUE || maxVersionCode != Long.MAX_VALUE;
+    }
+
+    /**
+     * versionCode is only looked at when the bundle declares a range
+     */
+    boolean appliesTo(String targetPackage, long versionCode) {
+        if (!packageName.equals(targetPackage)) {
+            return false;
+        }
+        return !hasVersionRange() || (versionCode >= minVersionCode && versionCode <= maxVersionCode);
+    }
+
+    /**
+     * Index of the payload whose loader runs the entry class, -1 if there is none
+     */
+    int entryIndex() {
+        if (entryClass == null || payloads.isEmpty()) {
+            return -1;
+        }
+        if (entryDex == null) {
+            return 0;
+        }
+        for (int i = 0; i < payloads.size(); i++) {
+            if (payloads.get(i).name.equals(entryDex)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String describe() {
+        return packageName + " versionCode " + (hasVersionRange()
+            ? (minVersionCode == Long.MIN_VALUE ? "" : String.valueOf(minVersionCode)) + "-"
+                + (maxVersionCode == Long.MAX_VALUE ? "" : String.valueOf(maxVersionCode))
+            : "any") + ", " + payloads.size() + " dex, entry " + (entryClass != null ? entryClass : "none");
+    }
+
+    // ==================== READ ====================
+
+    /**
+     * Header and manifest only - the payloads are not touched
+     */
+    static HotfixBundle readManifest(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            if (in.length() < HEADER_SIZE || in.readInt() != MAGIC) {
+                throw new IOException("Not a hotfix bundle: " + file);
+            }
+            int version = in.readInt();
+            int manifestLength = in.readInt();
+            int pageSize = in.readInt();
+            if (version != VERSION || pageSize != PAGE_SIZE) {
+                throw new IOException("Unsupported bundle version " + version + " / page size " + pageSize);
+            }
+            if (manifestLength <= 0 || manifestLength > MAX_MANIFEST || HEADER_SIZE + manifestLength > in.length()) {
+                throw new IOException("Bad manifest length " + manifestLength);
+            }
+
+            byte[] manifest = new byte[manifestLength];
+            in.readFully(manifest);
+            HotfixBundle bundle = parse(new String(manifest, StandardCharsets.UTF_8));
+            bundle.validate(HEADER_SIZE + manifestLength, in.length());
+            return bundle;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read-only mapping of every payload, in manifest order
+     * The channel is closed before returning - the mappings stay valid
+     */
+    static ByteBuffer[] map(File file, HotfixBundle bundle) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer[] buffers = new ByteBuffer[bundle.payloads.size()];
+            for (int i = 0; i < buffers.length; i++) {
+                Payload payload = bundle.payloads.get(i);
+                buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, payload.offset, payload.length);
+            }
+            return buffers;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * SHA-256 of the buffer's remaining bytes as hex - the buffer's position is left alone
+     */
+    static String sha256(ByteBuffer buffer) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(buffer.duplicate());
+            return hex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Check the payload hashes unless marker says this exact file (size + mtime) already passed -
+     * hashing pages in every payload, so it happens once per bundle, not once per launch
+     * Returns null when verified, else the name of the first mismatching payload
+     */
+    static String verifyOnce(File file, HotfixBundle bundle, ByteBuffer[] buffers, File marker) {
+        String stamp = file.length() + "|" + file.lastModified();
+        if (stamp.equals(readStamp(marker))) {
+            return null;
+        }
+        for (int i = 0; i < buffers.length; i++) {
+            if (!sha256(buffers[i]).equals(bundle.payloads.get(i).sha256)) {
+                return bundle.payloads.get(i).name;
+            }
+        }
+        // Best effort - without the marker the next launch just hashes again
+        try {
+            marker.getParentFile().mkdirs();
+            FileOutputStream out = new FileOutputStream(marker);
+            try {
+                out.write(stamp.getBytes(StandardCharsets.UTF_8));
+            } finally {
+                out.close();
+            }
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    private static String readStamp(File marker) {
+        if (!marker.canRead() || marker.length() > 64) {
+            return null;
+        }
+        try {
+            RandomAccessFile in = new RandomAccessFile(marker, "r");
+            try {
+                byte[] bytes = new byte[(int) in.length()];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static HotfixBundle parse(String manifest) throws IOException {
+        String[] lines = manifest.split("\n");
+        if (lines.length == 0 || !MANIFEST_HEADER.equals(lines[0].trim())) {
+            throw new IOException("Bad manifest header");
+        }
+
+        String packageName = null;
+        long minVersionCode = Long.MIN_VALUE;
+        long maxVersionCode = Long.MAX_VALUE;
+        String entryClass = null;
+        String entryDex = null;
+        List<Payload> payloads = new ArrayList<>();
+        try {
+            for (int i = 1; i < lines.length; i++) {
+                String line = lines[i].trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith("D|")) {
+                    String[] parts = line.split("\\|");
+                    if (parts.length != 6 || !("front".equals(parts[2]) || "back".equals(parts[2]))) {
+                        throw new IOException("Bad payload line: " + line);
+                    }
+                    payloads.add(new Payload(parts[1], "front".equals(parts[2]), Long.parseLong(parts[3]),
+                        Long.parseLong(parts[4]), parts[5]));
+                    continue;
+                }
+
+                int sep = line.indexOf('=');
+                String key = sep > 0 ? line.substring(0, sep) : line;
+                String value = sep > 0 ? line.substring(sep + 1) : "";
+                if ("package".equals(key)) {
+                    packageName = value;
+                } else if ("version-code".equals(key)) {
+                    int dash = value.indexOf('-');
+                    if (dash < 0) {
+                        throw new IOException("Bad version-code range: " + value);
+                    }
+                    String min = value.substring(0, dash);
+                    String max = value.substring(dash + 1);
+                    minVersionCode = min.isEmpty() ? Long.MIN_VALUE : Long.parseLong(min);
+                    maxVersionCode = max.isEmpty() ? Long.MAX_VALUE : Long.parseLong(max);
+                } else if ("entry".equals(key)) {
+                    entryClass = value.isEmpty() ? null : value;
+                } else if ("entry-dex".equals(key)) {
+                    entryDex = value.isEmpty() ? null : value;
+                }
+                // Unknown keys are skipped, so v1 readers accept additions
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad number in manifest: " + e.getMessage());
+        }
+
+        if (packageName == null || packageName.isEmpty()) {
+            throw new IOException("Manifest has no package");
+        }
+        return new HotfixBundle(packageName, minVersionCode, maxVersionCode, entryClass, entryDex,
+            Collections.unmodifiableList(payloads));
+    }
+
+    private void validate(long payloadStart, long fileLength) throws IOException {
+        if (payloads.isEmpty()) {
+            throw new IOException("Bundle has no payloads");
+        }
+        if (entryClass != null && entryIndex() < 0) {
+            throw new IOException("entry-dex " + entryDex + " is not a payload");
+        }
+        long end = payloadStart;
+        for (Payload payload : payloads) {
+            if (payload.offset % PAGE_SIZE != 0 || payload.offset < end || payload.length <= 0
+                    || payload.offset + payload.length > fileLength) {
+                throw new IOException("Bad payload placement: " + payload.name);
+            }
+            end = payload.offset + payload.length;
+        }
+    }
+
+    // ==================== WRITE ====================
+
+    /**
+     * Pack dex files into a bundle - front payloads are placed before the target's own
+     * dexElements (they override its classes), back payloads after (new classes only)
+     * Versions: Long.MIN_VALUE / Long.MAX_VALUE for an open end
+     */
+    static HotfixBundle write(File out, String packageName, long minVersionCode, long maxVersionCode,
+                              String entryClass, String entryDex, List<File> front, List<File> back)
+            throws IOException {
+        List<File> sources = new ArrayList<>(front);
+        sources.addAll(back);
+        for (File source : sources) {
+            if (source.getName().contains("|")) {
+                throw new IOException("Payload name may not contain '|': " + source.getName());
+            }
+        }
+
+        String[] hashes = new String[sources.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = sha256(sources.get(i));
+        }
+
+        // Offsets are written into the manifest, so size it until they fit the space it leaves
+        int reserved = 0;
+        HotfixBundle bundle;
+        byte[] manifest;
+        while (true) {
+            List<Payload> payloads = new ArrayList<>();
+            long offset = align(HEADER_SIZE + reserved);
+            for (int i = 0; i < sources.size(); i++) {
+                File source = sources.get(i);
+                payloads.add(new Payload(source.getName(), i < front.size(), offset, source.length(), hashes[i]));
+                offset = align(offset + source.length());
+            }
+            bundle = new HotfixBundle(packageName, minVersionCode, maxVersionCode, entryClass, entryDex,
+                Collections.unmodifiableList(payloads));
+            manifest = bundle.manifest().getBytes(StandardCharsets.UTF_8);
+            if (manifest.length <= reserved) {
+                break;
+            }
+            reserved = manifest.length;
+        }
+        if (manifest.length > MAX_MANIFEST) {
+            throw new IOException("Manifest too large: " + manifest.length + " bytes");
+        }
+        bundle.validate(HEADER_SIZE + manifest.length, Long.MAX_VALUE);
+
+        File tmp = new File(out.getPath() + ".tmp");
+        DataOutputStream data = new DataOutputStream(new FileOutputStream(tmp));
+        try {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(manifest.length);
+            data.writeInt(PAGE_SIZE);
+            data.write(manifest);
+
+            byte[] padding = new byte[PAGE_SIZE];
+            byte[] chunk = new byte[64 * 1024];
+            for (int i = 0; i < sources.size(); i++) {
+                Payload payload = bundle.payloads.get(i);
+                while (data.size() < payload.offset) {
+                    data.write(padding, 0, (int) Math.min(padding.length, payload.offset - data.size()));
+                }
+                InputStream in = new FileInputStream(sources.get(i));
+                try {
+                    int read;
+                    while ((read = in.read(chunk)) > 0) {
+                        data.write(chunk, 0, read);
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            data.close();
+        }
+        if (!tmp.renameTo(out)) {
+            throw new IOException("Cannot replace " + out);
+        }
+        return bundle;
+    }
+
+    private String manifest() {
+        StringBuilder sb = new StringBuilder(MANIFEST_HEADER).append('\n');
+        sb.append("package=").append(packageName).append('\n');
+        if (hasVersionRange()) {
+            sb.append("version-code=")
+                .append(minVersionCode == Long.MIN_VALUE ? "" : String.valueOf(minVersionCode)).append('-')
+                .append(maxVersionCode == Long.MAX_VALUE ? "" : String.valueOf(maxVersionCode)).append('\n');
+        }
+        if (entryClass != null) {
+            sb.append("entry=").append(entryClass).append('\n');
+        }
+        if (entryDex != null) {
+            sb.append("entry-dex=").append(entryDex).append('\n');
+        }
+        for (Payload payload : payloads) {
+            sb.append("D|").append(payload.name).append('|').append(payload.front ? "front" : "back")
+                .append('|').append(payload.offset).append('|').append(payload.length)
+                .append('|').append(payload.sha256).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static long align(long offset) {
+        return (offset + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+    }
+
+    private static String sha256(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                digest.update(chunk, 0, read);
+            }
+            return hex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    static final class Payload {
+        final String name;
+        final boolean front;    // Before the target's dexElements (overrides), else after
+        final long offset;
+        final long length;
+        final String sha256;
+
+        Payload(String name, boolean front, long offset, long length, String sha256) {
+            this.name = name;
+            this.front = front;
+            this.offset = offset;
+            this.length = length;
+            this.sha256 = sha256;
+        }
+    }
+}
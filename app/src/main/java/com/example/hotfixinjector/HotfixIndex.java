@@ -0,0 +1,200 @@
+package com.example.hotfixinjector;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Which packages have a hotfix folder and what is in it
+ * Built by the module app from one root scan (HotfixInventory) and copied to INDEX_FILE,
+ * where ZygoteState loads it once in zygote for HookInit's fast-reject path
+ * Line format:
+ *   # hotfix index v1 <scan time>
+ *   P|<package>|<content hash>
+ *   F|<package>|<file>|<size>|<mtime s>|<sha256>
+ * Pure Java, so the host-JVM benchmarks compile it unchanged
+ */
+final class HotfixIndex {
+
+    static final String INDEX_FILE = "/data/adb/.hf_index";
+
+    private static final String HEADER = "# hotfix index v1 ";
+
+    final long scannedAt;
+    final Map<String, Entry> packages;
+
+    HotfixIndex(long scannedAt, Map<String, Entry> packages) {
+        this.scannedAt = scannedAt;
+        this.packages = packages;
+    }
+
+    boolean contains(String packageName) {
+        return packages.containsKey(packageName);
+    }
+
+    DexFile find(String packageName, String fileName) {
+        Entry entry = packages.get(packageName);
+        if (entry == null) {
+            return null;
+        }
+        for (DexFile dex : entry.dexFiles) {
+            if (dex.name.equals(fileName)) {
+                return dex;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same packages with the same content - the scan time does not count
+     */
+    boolean sameContent(HotfixIndex other) {
+        if (other == null || !packages.keySet().equals(other.packages.keySet())) {
+            return false;
+        }
+        for (Entry entry : packages.values()) {
+            if (!entry.contentHash.equals(other.packages.get(entry.packageName).contentHash)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void write(Writer out) throws IOException {
+        out.write(HEADER + scannedAt + "\n");
+        for (Entry entry : packages.values()) {
+            out.write("P|" + entry.packageName + "|" + entry.contentHash + "\n");
+            for (DexFile dex : entry.dexFiles) {
+                out.write("F|" + entry.packageName + "|" + dex.name + "|" + dex.size + "|" + dex.mtime
+                    + "|" + dex.sha256 + "\n");
+            }
+        }
+    }
+
+    /**
+     * Returns null if the file is missing, unreadable or not an index
+     * The result is read-only - ZygoteState shares it with every forked app
+     */
+    static HotfixIndex read(File file) {
+        if (!file.canRead()) {
+            return null;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(HEADER)) {
+                return null;
+            }
+
+            long scannedAt = Long.parseLong(header.substring(HEADER.length()).trim());
+            Map<String, String> hashes = new TreeMap<>();
+            Map<String, List<DexFile>> files = new TreeMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\\|");
+                if (parts.length == 3 && "P".equals(parts[0])) {
+                    hashes.put(parts[1], parts[2]);
+                    files.put(parts[1], new ArrayList<DexFile>());
+                } else if (parts.length == 6 && "F".equals(parts[0])) {
+                    List<DexFile> dexFiles = files.get(parts[1]);
+                    if (dexFiles != null) {
+                        dexFiles.add(new DexFile(parts[2], Long.parseLong(parts[3]),
+                            Long.parseLong(parts[4]), parts[5]));
+                    }
+                }
+            }
+
+            Map<String, Entry> packages = new TreeMap<>();
+            for (Map.Entry<String, String> hash : hashes.entrySet()) {
+                String packageName = hash.getKey();
+                packages.put(packageName, new Entry(packageName,
+                    Collections.unmodifiableList(files.get(packageName)), hash.getValue()));
+            }
+            return new HotfixIndex(scannedAt, Collections.unmodifiableMap(packages));
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * SHA-256 over "<name>:<sha256>" of every dex, in name order - changes with any file
+     */
+    static String contentHash(List<DexFile> dexFiles) {
+        List<DexFile> sorted = new ArrayList<>(dexFiles);
+        Collections.sort(sorted, new Comparator<DexFile>() {
+            @Override
+            public int compare(DexFile a, DexFile b) {
+                return a.name.compareTo(b.name);
+            }
+        });
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (DexFile dex : sorted) {
+                digest.update((dex.name + ":" + dex.sha256 + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static final class Entry {
+        final String packageName;
+        final List<DexFile> dexFiles;
+        final String contentHash;
+
+        Entry(String packageName, List<DexFile> dexFiles, String contentHash) {
+            this.packageName = packageName;
+            this.dexFiles = dexFiles;
+            this.contentHash = contentHash;
+        }
+
+        long totalBytes() {
+            long total = 0;
+            for (DexFile dex : dexFiles) {
+                total += dex.size;
+            }
+            return total;
+        }
+    }
+
+    static final class DexFile {
+        final String name;
+        final long size;
+        final long mtime;       // Seconds, as stat %Y prints it
+        final String sha256;
+
+        DexFile(String name, long size, long mtime, String sha256) {
+            this.name = name;
+            this.size = size;
+            this.mtime = mtime;
+            this.sha256 = sha256;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.hotfixinjector;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hotfix inventory for the module app: every package with a hotfix folder, its dex files,
+ * content hash and the last injection outcome reported by the hook
+ * One su shell per scan: a single streamed find + stat over /data/data, then sha256sum for the
+ * files whose size or mtime changed since the cached index - unchanged files keep their hash
+ * The result is cached in the app's files dir and copied to HotfixIndex.INDEX_FILE for HookInit
+ */
+final class HotfixInventory {
+
+    private static final String TAG = "HotfixInventory";
+
+    static final String ACTION_INJECTION = "com.example.hotfixinjector.INJECTION";
+    static final String EXTRA_PACKAGE = "package";
+    static final String EXTRA_OUTCOME = "outcome";
+    static final String EXTRA_TIME = "time";
+
+    static final String PREFS_NAME = "inventory_prefs";
+
+    // Packages kept, like MetricsReporter's snapshots
+    private static final int MAX_ENTRIES = 64;
+
+    private static final String MODULE_PACKAGE = "com.example.hotfixinjector";
+    private static final String CACHE_FILE = "hotfix_index";
+    private static final String DATA_DIR = "/data/data/";
+    private static final String END_MARKER = "__HF_SCAN_END__";
+
+    // Hotfix folders and their dex files / bundle - one stat line each, streamed as found
+    // Folders only at /data/data/<package>/hotfix (depth 2); files only directly inside one
+    // (depth 3, middle component "hotfix") - nested .../files/hotfix folders never match
+    private static final String SCAN_COMMAND = "find /data/data -mindepth 2 -maxdepth 2 -name hotfix -type d"
+        + " -exec stat -c '%F|%n|%s|%Y' {} + 2>/dev/null;"
+        + " find /data/data -mindepth 3 -maxdepth 3 -path '" + DATA_DIR + "*/hotfix/*' -type f"
+        + " \\( -name '*.dex' -o -name '" + HotfixBundle.FILE_NAME + "' \\)"
+        + " -exec stat -c '%F|%n|%s|%Y' {} + 2>/dev/null";
+
+    // Parsed CACHE_FILE - read once per process, replaced by scan(). Not the class lock: scan() holds that
+    private static final Object CACHE_LOCK = new Object();
+    private static HotfixIndex cachedIndex;
+    private static boolean cacheLoaded;
+
+    private HotfixInventory() {
+    }
+
+    // ==================== INJECTED PROCESS SIDE ====================
+
+    /**
+     * Tell the module app how an injection ended (outcome = Metrics.INJECT_* counter)
+     */
+    static void reportInjection(Context context, String packageName, int outcome) {
+        if (!MetricsReceiver.canReachModule(context)) {
+            return;
+        }
+        Intent intent = new Intent(ACTION_INJECTION);
+        intent.setComponent(new ComponentName(MODULE_PACKAGE, MetricsReceiver.class.getName()));
+        intent.addFlags(Intent.FLAG_INCLUDE_STOPPED_PACKAGES);
+        intent.putExtra(EXTRA_PACKAGE, packageName);
+        intent.putExtra(EXTRA_OUTCOME, outcome);
+        intent.putExtra(EXTRA_TIME, System.currentTimeMillis());
+        try {
+            MetricsReceiver.sign(context, intent);
+            context.sendBroadcast(intent);
+        } catch (Exception e) {
+            Log.w(TAG, "Injection report failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Outcome = Metrics.INJECT_* counter - counted, and shown in the module app's inventory
+     */
+    static void recordOutcome(Context context, String packageName, int outcome) {
+        Metrics.increment(outcome);
+        reportInjection(context, packageName, outcome);
+    }
+
+    // ==================== MODULE APP SIDE ====================
+
+    /**
+     * One entry per package, at most MAX_ENTRIES - the least recently injected package goes first
+     */
+    static void storeInjection(Context context, String packageName, int outcome, long time) {
+        if (packageName == null) {
+            return;
+        }
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = prefs.edit().putString(packageName, time + ";" + outcome);
+
+        Map<String, ?> all = prefs.getAll();
+        if (all.size() >= MAX_ENTRIES && !all.containsKey(packageName)) {
+            String oldest = null;
+            long oldestTime = Long.MAX_VALUE;
+            for (Map.Entry<String, ?> entry : all.entrySet()) {
+                long storedAt = storedAt(entry.getValue());
+                if (storedAt < oldestTime) {
+                    oldestTime = storedAt;
+                    oldest = entry.getKey();
+                }
+            }
+            editor.remove(oldest);
+        }
+        editor.apply();
+    }
+
+    private static long storedAt(Object value) {
+        String s = String.valueOf(value);
+        int sep = s.indexOf(';');
+        try {
+            return sep > 0 ? Long.parseLong(s.substring(0, sep)) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Last injection per package: { time, outcome }
+     */
+    static Map<String, long[]> loadInjections(Context context) {
+        Map<String, long[]> injections = new HashMap<>();
+        Map<String, ?> all = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getAll();
+        for (Map.Entry<String, ?> entry : all.entrySet()) {
+            String value = String.valueOf(entry.getValue());
+            int sep = value.indexOf(';');
+            try {
+                injections.put(entry.getKey(), new long[] {
+                    Long.parseLong(value.substring(0, sep)), Long.parseLong(value.substring(sep + 1))
+                });
+            } catch (RuntimeException e) {
+                // Unparsable entry - skip it
+            }
+        }
+        return injections;
+    }
+
+    /**
+     * Index from the last scan, or null before the first one
+     * Kept in memory - MetricsReceiver asks on the main thread for every broadcast
+     */
+    static HotfixIndex loadCached(Context context) {
+        synchronized (CACHE_LOCK) {
+            if (!cacheLoaded) {
+                cachedIndex = HotfixIndex.read(new File(context.getFilesDir(), CACHE_FILE));
+                cacheLoaded = true;
+            }
+            return cachedIndex;
+        }
+    }
+
+    /**
+     * Rescan with root - blocking, call off the main thread
+     */
+    static synchronized HotfixIndex scan(Context context) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HotfixIndex previous = loadCached(context);
+
+        Process process = Runtime.getRuntime().exec("su");
+        try {
+            DataOutputStream shell = new DataOutputStream(process.getOutputStream());
+            BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+
+            // 1. One streamed find + stat pass
+            shell.writeBytes(SCAN_COMMAND + "\necho " + END_MARKER + "\n");
+            shell.flush();
+
+            Map<String, List<HotfixIndex.DexFile>> found = new TreeMap<>();
+            Map<String, long[]> changed = new LinkedHashMap<>();  // path -> { size, mtime }
+            int hashed = 0;
+            String line;
+            while ((line = output.readLine()) != null && !END_MARKER.equals(line)) {
+                String[] parts = line.split("\\|");
+                String packageName = packageOf(parts.length > 1 ? parts[1] : "");
+                if (packageName == null) {
+                    continue;
+                }
+
+                List<HotfixIndex.DexFile> dexFiles = found.get(packageName);
+                if (dexFiles == null) {
+                    dexFiles = new ArrayList<>();
+                    found.put(packageName, dexFiles);
+                }
+                if (parts.length != 4 || "directory".equals(parts[0])) {
+                    continue;
+                }
+
+                String path = parts[1];
+                String name = path.substring(path.lastIndexOf('/') + 1);
+                long size;
+                long mtime;
+                try {
+                    size = Long.parseLong(parts[2]);
+                    mtime = Long.parseLong(parts[3]);
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "Unexpected stat line: " + line);
+                    continue;
+                }
+                HotfixIndex.DexFile cached = previous != null ? previous.find(packageName, name) : null;
+                if (cached != null && cached.size == size && cached.mtime == mtime) {
+                    dexFiles.add(cached);
+                } else {
+                    changed.put(path, new long[] { size, mtime });
+                }
+            }
+
+            // 2. Hash only new or changed files, in the same shell
+            if (!changed.isEmpty()) {
+                StringBuilder command = new StringBuilder("sha256sum");
+                for (String path : changed.keySet()) {
+                    command.append(' ').append(shellQuote(path));
+                }
+                shell.writeBytes(command + " 2>/dev/null\necho " + END_MARKER + "\n");
+                shell.flush();
+
+                while ((line = output.readLine()) != null && !END_MARKER.equals(line)) {
+                    int sep = line.indexOf("  ");
+                    if (sep <= 0) {
+                        continue;
+                    }
+                    String path = line.substring(sep + 2);
+                    long[] stat = changed.get(path);
+                    String packageName = packageOf(path);
+                    if (stat == null || packageName == null) {
+                        continue;
+                    }
+                    found.get(packageName).add(new HotfixIndex.DexFile(
+                        path.substring(path.lastIndexOf('/') + 1), stat[0], stat[1], line.substring(0, sep)));
+                    hashed++;
+                }
+            }
+
+            Map<String, HotfixIndex.Entry> packages = new TreeMap<>();
+            for (Map.Entry<String, List<HotfixIndex.DexFile>> entry : found.entrySet()) {
+                packages.put(entry.getKey(), new HotfixIndex.Entry(entry.getKey(),
+                    Collections.unmodifiableList(entry.getValue()), HotfixIndex.contentHash(entry.getValue())));
+            }
+            // Read-only like HotfixIndex.read()'s - it becomes the shared in-memory copy
+            HotfixIndex index = new HotfixIndex(System.currentTimeMillis(), Collections.unmodifiableMap(packages));
+            File cacheFile = writeCache(context, index);
+
+            // 3. Publish for the hook only when the content changed (or it is missing)
+            boolean publish = !index.sameContent(previous) || !new File(HotfixIndex.INDEX_FILE).exists();
+            if (publish) {
+                String tmp = HotfixIndex.INDEX_FILE + ".tmp";
+                shell.writeBytes("cp " + shellQuote(cacheFile.getAbsolutePath()) + " " + tmp
+                    + " && chmod 644 " + tmp + " && mv " + tmp + " " + HotfixIndex.INDEX_FILE + "\n");
+            }
+            shell.writeBytes("exit\n");
+            shell.flush();
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                Log.w(TAG, "Scan shell exited with " + exitCode);
+            }
+
+            Log.i(TAG, "📦 Scan: " + packages.size() + " packages, " + hashed + " files hashed, "
+                + (publish ? "index published" : "index unchanged") + " in "
+                + (System.nanoTime() - start) / 1000000 + "ms");
+            return index;
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /**
+     * "/data/data/<package>/hotfix[/...]" -> package, null for anything else
+     */
+    private static String packageOf(String path) {
+        if (!path.startsWith(DATA_DIR)) {
+            return null;
+        }
+        int end = path.indexOf('/', DATA_DIR.length());
+        return end > DATA_DIR.length() ? path.substring(DATA_DIR.length(), end) : null;
+    }
+
+    private static String shellQuote(String s) {
+        return "'" + s.replace("'", "'\\''") + "'";
+    }
+
+    private static File writeCache(Context context, HotfixIndex index) throws IOException {
+        File file = new File(context.getFilesDir(), CACHE_FILE);
+        File tmp = new File(context.getFilesDir(), CACHE_FILE + ".tmp");
+        Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8);
+        try {
+            index.write(out);
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+        synchronized (CACHE_LOCK) {
+            cachedIndex = index;
+            cacheLoaded = true;
+        }
+        return file;
+    }
+}
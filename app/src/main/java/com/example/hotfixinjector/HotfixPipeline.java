@@ -0,0 +1,773 @@
+package com.example.hotfixinjector;
+
+import android.app.Application;
+import android.content.pm.PackageInfo;
+import android.os.Build;
+
+import de.robv.android.xposed.XposedBridge;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import dalvik.system.DexClassLoader;
+import dalvik.system.InMemoryDexClassLoader;
+
+/**
+ * License check, DEX injection and LicenseGuard for a package that has a hotfix folder
+ * HookInit only calls in here once the folder is found: LicenseClient, LicenseGuard, org.json
+ * and javax.crypto are referenced from this class alone, so the other apps' processes never
+ * load or verify them
+ * A hotfix.hfb bundle (HotfixBundle) in the folder takes precedence over loose .dex files
+ */
+final class HotfixPipeline {
+
+    private static final String TAG = "HotfixInjector";
+
+    // Per-DEX, per-element and per-field detail - on a large pathList this was most of the hook's
+    // log volume and allocation. adb shell setprop debug.hotfix.verbose 1 (then restart the target app)
+    private static final boolean VERBOSE = HotfixTrace.readFlag("debug.hotfix.verbose");
+
+    private HotfixPipeline() {
+    }
+
+    static void run(final Application app, String pkg, File hotfixDir) {
+        // Bundle: its manifest alone decides whether this process gets anything - before the license check
+        File bundleFile = new File(hotfixDir, HotfixBundle.FILE_NAME);
+        HotfixBundle bundle = null;
+        if (bundleFile.exists()) {
+            int manifestDepth = HotfixTrace.begin("bundle manifest", pkg);
+            try {
+                bundle = HotfixBundle.readManifest(bundleFile);
+            } catch (IOException e) {
+                XposedBridge.log(TAG + ": [BUNDLE] ❌ Unreadable bundle: " + e.getMessage());
+                HotfixInventory.recordOutcome(app, pkg, Metrics.INJECT_FAILED);
+                return;
+            } finally {
+                HotfixTrace.endTo(manifestDepth);
+            }
+
+            XposedBridge.log(TAG + ": [BUNDLE] 📦 Manifest: " + bundle.describe());
+            long versionCode = bundle.hasVersionRange() ? versionCodeOf(app, pkg) : -1;
+            if (!bundle.appliesTo(pkg, versionCode)) {
+                XposedBridge.log(TAG + ": [BUNDLE] Not for this app (" + pkg + ", versionCode " + versionCode + ")");
+                HotfixInventory.recordOutcome(app, pkg, Metrics.INJECT_NO_HOTFIX);
+                return;
+            }
+        }
+
+        // ⚡ SERVER VERIFICATION - Check license BEFORE injection!
+        XposedBridge.log(TAG + ": [LICENSE] 🔒 Verifying with server BEFORE injection...");
+
+        // Use CountDownLatch to wait for background thread
+        final java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(1);
+        final boolean[] verificationSuccess = new boolean[1];
+        final String[] errorMessage = new String[1];
+        long verdictStart = System.nanoTime();
+        int licenseDepth = HotfixTrace.begin("license", pkg);
+        try {
+            // Run verification in background thread (OFFLINE - just read file, no HTTP!)
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        LicenseClient licenseClient = new LicenseClient(app);
+                        // ⚡ Use OFFLINE verification (fast, no INTERNET permission needed!)
+                        LicenseClient.LicenseResult result = licenseClient.verifyOffline();
+                        verificationSuccess[0] = result.success;
+                        errorMessage[0] = result.message;
+                    } catch (Exception e) {
+                        verificationSuccess[0] = false;
+                        errorMessage[0] = "Exception: " + e.getMessage();
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+
+            // Wait for verification to complete (max 3 seconds - should be instant!)
+            try {
+                boolean completed = latch.await(3, java.util.concurrent.TimeUnit.SECONDS);
+                Metrics.record(Metrics.LICENSE_VERDICT_MS, (System.nanoTime() - verdictStart) / 1000000);
+                if (!completed) {
+                    HotfixInventory.recordOutcome(app, pkg, Metrics.INJECT_LICENSE_BLOCKED);
+                    XposedBridge.log(TAG + ": [LICENSE] ❌ VERIFICATION TIMEOUT (3s)");
+                    XposedBridge.log(TAG + ": [LICENSE] 🚫 INJECTION BLOCKED - Verification timeout!");
+                    return;
+                }
+            } catch (InterruptedException e) {
+                XposedBridge.log(TAG + ": [LICENSE] ❌ VERIFICATION INTERRUPTED");
+                HotfixInventory.recordOutcome(app, pkg, Metrics.INJECT_LICENSE_BLOCKED);
+                XposedBridge.log(TAG + ": [LICENSE] 🚫 INJECTION BLOCKED!");
+                return;
+            }
+
+            // Check verification result
+            if (!verificationSuccess[0]) {
+                XposedBridge.log(TAG + ": [LICENSE] ❌ VERIFICATION FAILED: " + errorMessage[0]);
+                XposedBridge.log(TAG + ": [LICENSE] 🚫 INJECTION BLOCKED - No valid license!");
+                HotfixInventory.recordOutcome(app, pkg, Metrics.INJECT_LICENSE_BLOCKED);
+                return; // Don't inject if license invalid!
+            }
+        } finally {
+            HotfixTrace.endTo(licenseDepth);
+        }
+        XposedBridge.log(TAG + ": [LICENSE] ✅ Verification SUCCESS - proceeding with injection");
+
+        // ⚡ CHECK 3: Double-check nonce exists before injection (anti-bypass)
+        XposedBridge.log(TAG + ": [LICENSE] 🔑 Double-checking security token...");
+        int tokenDepth = HotfixTrace.begin("license token", pkg);
+        try {
+            LicenseClient.LicenseData license = LicenseClient.readLicenseFromFile();
+            if (license == null || license.nonce == null || license.nonce.isEmpty()) {
+                XposedBridge.log(TAG + ": [LICENSE] ❌ SECURITY TOKEN MISSING!");
+                XposedBridge.log(TAG + ": [LICENSE] 🚫 INJECTION BLOCKED - Security check failed!");
+                HotfixInventory.recordOutcome(app, pkg, Metrics.INJECT_LICENSE_BLOCKED);
+                return;
+            }
+            XposedBridge.log(TAG + ": [LICENSE] ✅ Security token verified");
+        } catch (Exception e) {
+            XposedBridge.log(TAG + ": [LICENSE] ❌ Security check exception: " + e.getMessage());
+            HotfixInventory.recordOutcome(app, pkg, Metrics.INJECT_LICENSE_BLOCKED);
+            XposedBridge.log(TAG + ": [LICENSE] 🚫 INJECTION BLOCKED!");
+            return;
+        } finally {
+            HotfixTrace.endTo(tokenDepth);
+        }
+
+        // Get classloader
+        ClassLoader cl = app.getClassLoader();
+        XposedBridge.log(TAG + ": [FOUND] ClassLoader: " + describe(cl));
+
+        // Inject (only if license verified AND nonce checked!)
+        XposedBridge.log(TAG + ": [INJECT] Starting injection for: " + pkg);
+        long injectStart = System.nanoTime();
+        if (bundle != null) {
+            injectBundle(pkg, cl, bundleFile, bundle, app);
+        } else {
+            injectHotfix(pkg, cl, hotfixDir, app);
+        }
+        Metrics.record(Metrics.INJECT_MS, (System.nanoTime() - injectStart) / 1000000);
+    }
+
+    private static void injectHotfix(String packageName, ClassLoader classLoader, File hotfixDir, Application app) {
+        try {
+            XposedBridge.log(TAG + ": ========================================");
+            XposedBridge.log(TAG + ": 🔥 INJECTING: " + packageName);
+            XposedBridge.log(TAG + ": [INJ] ClassLoader: " + describe(classLoader));
+            XposedBridge.log(TAG + ": [INJ] Hotfix dir: " + hotfixDir.getAbsolutePath());
+
+            XposedBridge.log(TAG + ": [INJ] Listing files in hotfix directory...");
+
+            File[] allFiles = hotfixDir.listFiles();
+            if (allFiles != null) {
+                XposedBridge.log(TAG + ": [INJ] Total files in directory: " + allFiles.length);
+                for (File f : allFiles) {
+                    XposedBridge.log(TAG + ": [INJ]   - " + f.getName() + 
+									 " (size: " + f.length() + 
+									 ", readable: " + f.canRead() + 
+									 ", writable: " + f.canWrite() + 
+									 ", executable: " + f.canExecute() + ")");
+                }
+            } else {
+                XposedBridge.log(TAG + ": [INJ] listFiles() returned null!");
+            }
+
+            XposedBridge.log(TAG + ": [INJ] Filtering DEX files...");
+
+            File[] dexFiles = hotfixDir.listFiles(new FileFilter() {
+					@Override
+					public boolean accept(File file) {
+						String name = file.getName();
+						boolean isDex = name.endsWith(".dex");
+						boolean canRead = file.canRead();
+
+						XposedBridge.log(TAG + ": [FILTER] Checking: " + name + 
+										 " (isDex: " + isDex + 
+										 ", canRead: " + canRead + 
+										 ", size: " + file.length() + ")");
+
+						return isDex && canRead;
+					}
+				});
+
+            if (dexFiles == null) {
+                XposedBridge.log(TAG + ": ❌ listFiles with filter returned null");
+                HotfixInventory.recordOutcome(app, packageName, Metrics.INJECT_FAILED);
+                return;
+            }
+
+            if (dexFiles.length == 0) {
+                XposedBridge.log(TAG + ": ❌ No DEX files found (filtered length = 0)");
+                HotfixInventory.recordOutcome(app, packageName, Metrics.INJECT_NO_HOTFIX);
+                return;
+            }
+
+            XposedBridge.log(TAG + ": 📄 DEX files found: " + dexFiles.length);
+            int injectDepth = HotfixTrace.begin("inject", packageName, dexFiles.length);
+            for (int i = 0; i < dexFiles.length; i++) {
+                File dex = dexFiles[i];
+                XposedBridge.log(TAG + ":    [" + i + "] " + dex.getName() + 
+								 " (" + dex.length() + " bytes)" +
+								 " (path: " + dex.getAbsolutePath() + ")" +
+								 " (readable: " + dex.canRead() + ")" +
+								 " (writable: " + dex.canWrite() + ")");
+            }
+
+            // Try HotfixEntry
+            XposedBridge.log(TAG + ": [INJ] Attempting HotfixEntry execution...");
+            boolean success = tryExecuteEntry(classLoader, dexFiles, hotfixDir);
+
+            if (!success) {
+                XposedBridge.log(TAG + ": [INFO] HotfixEntry not found, using direct injection");
+            } else {
+                XposedBridge.log(TAG + ": [INFO] HotfixEntry executed successfully");
+            }
+
+            // Direct injection
+            XposedBridge.log(TAG + ": [INJ] Starting direct DEX injection...");
+            boolean injected = injectDexElements(classLoader, dexFiles, hotfixDir);
+            HotfixInventory.recordOutcome(app, packageName, injected ? Metrics.INJECT_OK : Metrics.INJECT_FAILED);
+
+            HotfixTrace.endTo(injectDepth);
+            XposedBridge.log(TAG + ": ✅ INJECTION COMPLETED!");
+
+            startGuard(app, packageName);
+            XposedBridge.log(TAG + ": ========================================");
+
+        } catch (Exception e) {
+            HotfixInventory.recordOutcome(app, packageName, Metrics.INJECT_FAILED);
+            XposedBridge.log(TAG + ": ❌ Injection error");
+            XposedBridge.log(TAG + ": [ERROR] Message: " + e.getMessage());
+            XposedBridge.log(TAG + ": [ERROR] Class: " + e.getClass().getName());
+            XposedBridge.log(e);
+        }
+    }
+
+    /**
+     * Bundle injection: payloads are mapped from the bundle file and loaded one
+     * InMemoryDexClassLoader each - no listing, no trial loading
+     * Payload hashes are checked once per bundle file (size + mtime, remembered in opt/);
+     * later launches read the manifest only
+     */
+    private static void injectBundle(String packageName, ClassLoader classLoader, File bundleFile,
+                                     HotfixBundle bundle, Application app) {
+        try {
+            XposedBridge.log(TAG + ": ========================================");
+            XposedBridge.log(TAG + ": 🔥 INJECTING BUNDLE: " + packageName);
+            XposedBridge.log(TAG + ": [BUNDLE] File: " + bundleFile.getAbsolutePath() + " (" + bundleFile.length() + " bytes)");
+            int injectDepth = HotfixTrace.begin("inject bundle", packageName, bundle.payloads.size());
+
+            ByteBuffer[] buffers = HotfixBundle.map(bundleFile, bundle);
+            File marker = new File(new File(bundleFile.getParentFile(), "opt"), HotfixBundle.FILE_NAME + ".verified");
+            String mismatch = HotfixBundle.verifyOnce(bundleFile, bundle, buffers, marker);
+            if (mismatch != null) {
+                XposedBridge.log(TAG + ": [BUNDLE] ❌ Hash mismatch for " + mismatch);
+                HotfixInventory.recordOutcome(app, packageName, Metrics.INJECT_FAILED);
+                return;
+            }
+
+            ClassLoader[] loaders = new ClassLoader[buffers.length];
+            for (int i = 0; i < buffers.length; i++) {
+                HotfixBundle.Payload payload = bundle.payloads.get(i);
+                loaders[i] = createBundleLoader(payload, buffers[i], classLoader, bundleFile.getParentFile());
+                XposedBridge.log(TAG + ": [BUNDLE] [" + i + "] " + payload.name + " (" + payload.length
+                    + " bytes, " + (payload.front ? "front" : "back") + ") -> " + loaders[i]);
+            }
+
+            int entryIndex = bundle.entryIndex();
+            if (entryIndex >= 0) {
+                executeEntry(loaders[entryIndex], bundle.entryClass, classLoader);
+            } else {
+                XposedBridge.log(TAG + ": [BUNDLE] No entry class in manifest");
+            }
+
+            boolean injected = mergeBundleElements(classLoader, loaders, bundle);
+            HotfixInventory.recordOutcome(app, packageName, injected ? Metrics.INJECT_OK : Metrics.INJECT_FAILED);
+
+            HotfixTrace.endTo(injectDepth);
+            XposedBridge.log(TAG + ": ✅ BUNDLE INJECTION COMPLETED!");
+
+            startGuard(app, packageName);
+            XposedBridge.log(TAG + ": ========================================");
+
+        } catch (Exception e) {
+            HotfixInventory.recordOutcome(app, packageName, Metrics.INJECT_FAILED);
+            XposedBridge.log(TAG + ": ❌ Bundle injection error");
+            XposedBridge.log(TAG + ": [ERROR] Message: " + e.getMessage());
+            XposedBridge.log(TAG + ": [ERROR] Class: " + e.getClass().getName());
+            XposedBridge.log(e);
+        }
+    }
+
+    /**
+     * InMemoryDexClassLoader over the mapping (API 26+); older releases only load dex from a
+     * path, so the payload is written once to opt/<hash>.dex and loaded from there
+     * Either way ART ends up with its own copy: InMemoryDexClassLoader copies the buffer into
+     * an anonymous dex mapping - the mapping only saves the module's heap copy and file reads
+     */
+    private static ClassLoader createBundleLoader(HotfixBundle.Payload payload, ByteBuffer buffer,
+                                                  ClassLoader parent, File hotfixDir) throws IOException {
+        int loaderDepth = HotfixTrace.begin("bundle loader", payload.name);
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                return new InMemoryDexClassLoader(buffer, parent);
+            }
+
+            File optDir = new File(hotfixDir, "opt");
+            optDir.mkdirs();
+            File extracted = new File(optDir, payload.sha256.substring(0, 16) + ".dex");
+            if (extracted.length() != payload.length) {
+                FileOutputStream out = new FileOutputStream(extracted);
+                try {
+                    out.getChannel().write(buffer.duplicate());
+                } finally {
+                    out.close();
+                }
+            }
+            return new DexClassLoader(extracted.getAbsolutePath(), optDir.getAbsolutePath(), null, parent);
+        } finally {
+            HotfixTrace.endTo(loaderDepth);
+        }
+    }
+
+    /**
+     * Run the manifest's entry class - init(ClassLoader) with the target's loader
+     */
+    private static void executeEntry(ClassLoader loader, String entryClass, ClassLoader target) {
+        int entryDepth = HotfixTrace.begin("HotfixEntry.init", entryClass);
+        try {
+            XposedBridge.log(TAG + ": [ENTRY] Loading class: " + entryClass);
+            Class<?> entry = loader.loadClass(entryClass);
+            Object instance = entry.newInstance();
+            java.lang.reflect.Method init = entry.getMethod("init", ClassLoader.class);
+            init.invoke(instance, target);
+            XposedBridge.log(TAG + ": 🎯 HotfixEntry executed successfully!");
+        } catch (Exception e) {
+            XposedBridge.log(TAG + ": [ENTRY] ❌ Entry " + entryClass + " failed: " + e.getMessage());
+            XposedBridge.log(e);
+        } finally {
+            HotfixTrace.endTo(entryDepth);
+        }
+    }
+
+    /**
+     * front payloads + target dexElements + back payloads, in manifest order
+     */
+    private static boolean mergeBundleElements(ClassLoader classLoader, ClassLoader[] loaders, HotfixBundle bundle)
+            throws Exception {
+        ArrayList<Object> front = new ArrayList<>();
+        ArrayList<Object> back = new ArrayList<>();
+        for (int i = 0; i < loaders.length; i++) {
+            Object pathList = getField(loaders[i], "pathList");
+            Object[] dexElements = pathList != null ? (Object[]) getField(pathList, "dexElements") : null;
+            if (dexElements == null) {
+                XposedBridge.log(TAG + ": [BUNDLE] No dexElements for " + bundle.payloads.get(i).name);
+                return false;
+            }
+            for (Object element : dexElements) {
+                if (element != null) {
+                    (bundle.payloads.get(i).front ? front : back).add(element);
+                }
+            }
+        }
+
+        int mergeDepth = HotfixTrace.begin("dexElements merge", front.size() + back.size());
+        try {
+            Object targetPathList = getField(classLoader, "pathList");
+            Object[] targetElements = targetPathList != null ? (Object[]) getField(targetPathList, "dexElements") : null;
+            if (targetElements == null) {
+                XposedBridge.log(TAG + ": [BUNDLE] Target dexElements not found");
+                return false;
+            }
+
+            Object[] combined = (Object[]) Array.newInstance(targetElements.getClass().getComponentType(),
+                front.size() + targetElements.length + back.size());
+            for (int i = 0; i < front.size(); i++) {
+                combined[i] = front.get(i);
+            }
+            System.arraycopy(targetElements, 0, combined, front.size(), targetElements.length);
+            for (int i = 0; i < back.size(); i++) {
+                combined[front.size() + targetElements.length + i] = back.get(i);
+            }
+            setField(targetPathList, "dexElements", combined);
+
+            XposedBridge.log(TAG + ": 🚀 Injected " + front.size() + " front + " + back.size()
+                + " back elements around " + targetElements.length + " original");
+            return true;
+        } finally {
+            HotfixTrace.endTo(mergeDepth);
+        }
+    }
+
+    private static long versionCodeOf(Application app, String pkg) {
+        try {
+            PackageInfo info = app.getPackageManager().getPackageInfo(pkg, 0);
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ? info.getLongVersionCode() : info.versionCode;
+        } catch (Exception e) {
+            XposedBridge.log(TAG + ": [BUNDLE] versionCode lookup failed: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static void startGuard(Application app, String packageName) {
+        // Start License Guard - NO local storage, server-only verification!
+        XposedBridge.log(TAG + ": [GUARD] Starting License Guard...");
+        XposedBridge.log(TAG + ": [GUARD] Will re-verify when the license file changes or expires");
+        XposedBridge.log(TAG + ": [GUARD] ⚡ STRONG MODE: Crash on first failure!");
+        int guardDepth = HotfixTrace.begin("guard start", packageName);
+        try {
+            LicenseGuard guard = LicenseGuard.getInstance(app, null);
+            guard.startGuard(app);
+            XposedBridge.log(TAG + ": ✅ [GUARD] Guard started - server will decide if license is valid");
+        } catch (Exception guardEx) {
+            XposedBridge.log(TAG + ": ❌ [GUARD] Failed to start guard: " + guardEx.getMessage());
+            XposedBridge.log(guardEx);
+        } finally {
+            HotfixTrace.endTo(guardDepth);
+        }
+    }
+
+    private static boolean tryExecuteEntry(ClassLoader classLoader, File[] dexFiles, File hotfixDir) {
+        try {
+            XposedBridge.log(TAG + ": [ENTRY] Creating opt directory...");
+            File optDir = new File(hotfixDir, "opt");
+            boolean created = optDir.mkdirs();
+            XposedBridge.log(TAG + ": [ENTRY] Opt dir created: " + created + " (exists: " + optDir.exists() + ")");
+            XposedBridge.log(TAG + ": [ENTRY] Opt dir path: " + optDir.getAbsolutePath());
+
+            for (int i = 0; i < dexFiles.length; i++) {
+                File dex = dexFiles[i];
+                XposedBridge.log(TAG + ": [ENTRY] Trying DEX file [" + i + "]: " + dex.getName());
+
+                try {
+                    XposedBridge.log(TAG + ": [ENTRY] Creating DexClassLoader...");
+                    XposedBridge.log(TAG + ": [ENTRY]   dexPath: " + dex.getAbsolutePath());
+                    XposedBridge.log(TAG + ": [ENTRY]   optimizedDirectory: " + optDir.getAbsolutePath());
+                    XposedBridge.log(TAG + ": [ENTRY]   parent: " + describe(classLoader));
+
+                    int loaderDepth = HotfixTrace.begin("DexClassLoader entry", dex);
+                    DexClassLoader loader;
+                    try {
+                        loader = new DexClassLoader(
+                            dex.getAbsolutePath(),
+                            optDir.getAbsolutePath(),
+                            null,
+                            classLoader
+                        );
+                    } finally {
+                        HotfixTrace.endTo(loaderDepth);
+                    }
+
+                    XposedBridge.log(TAG + ": [ENTRY] DexClassLoader created: " + describe(loader));
+
+                    XposedBridge.log(TAG + ": [ENTRY] Loading class: com.hotfix.HotfixEntry");
+                    Class<?> entry = loader.loadClass("com.hotfix.HotfixEntry");
+                    XposedBridge.log(TAG + ": [ENTRY] Class loaded: " + entry);
+
+                    XposedBridge.log(TAG + ": [ENTRY] Creating instance...");
+                    Object instance = entry.newInstance();
+                    XposedBridge.log(TAG + ": [ENTRY] Instance created: " + instance);
+
+                    XposedBridge.log(TAG + ": [ENTRY] Getting init method...");
+                    java.lang.reflect.Method init = entry.getMethod("init", ClassLoader.class);
+                    XposedBridge.log(TAG + ": [ENTRY] Method found: " + init);
+
+                    XposedBridge.log(TAG + ": [ENTRY] Invoking init method...");
+                    int entryDepth = HotfixTrace.begin("HotfixEntry.init", dex);
+                    try {
+                        init.invoke(instance, classLoader);
+                    } finally {
+                        HotfixTrace.endTo(entryDepth);
+                    }
+
+                    XposedBridge.log(TAG + ": 🎯 HotfixEntry executed successfully!");
+                    return true;
+
+                } catch (ClassNotFoundException e) {
+                    XposedBridge.log(TAG + ": [ENTRY] ClassNotFoundException for " + dex.getName() + ": " + e.getMessage());
+                } catch (Exception e) {
+                    XposedBridge.log(TAG + ": [ENTRY] Exception for " + dex.getName());
+                    XposedBridge.log(TAG + ": [ENTRY] Error: " + e.getMessage());
+                    XposedBridge.log(TAG + ": [ENTRY] Class: " + e.getClass().getName());
+                    XposedBridge.log(e);
+                }
+            }
+
+            XposedBridge.log(TAG + ": [ENTRY] No HotfixEntry found in any DEX file");
+
+        } catch (Exception e) {
+            XposedBridge.log(TAG + ": [ENTRY] Failed to execute entry");
+            XposedBridge.log(TAG + ": [ENTRY] Message: " + e.getMessage());
+            XposedBridge.log(TAG + ": [ENTRY] Class: " + e.getClass().getName());
+            XposedBridge.log(e);
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the hotfix elements are now in the target's pathList
+     */
+    private static boolean injectDexElements(ClassLoader classLoader, File[] dexFiles, File hotfixDir) {
+        int traceDepth = HotfixTrace.begin("injectDexElements");
+        try {
+            XposedBridge.log(TAG + ": [ELEM] Starting element injection");
+            XposedBridge.log(TAG + ": [ELEM] Creating opt directory...");
+
+            File optDir = new File(hotfixDir, "opt");
+            boolean created = optDir.mkdirs();
+            XposedBridge.log(TAG + ": [ELEM] Opt dir: " + optDir.getAbsolutePath() + " (created: " + created + ")");
+
+            ArrayList<Object> elements = new ArrayList<>();
+            XposedBridge.log(TAG + ": [ELEM] Processing " + dexFiles.length + " DEX files...");
+
+            for (int i = 0; i < dexFiles.length; i++) {
+                File dex = dexFiles[i];
+                XposedBridge.log(TAG + ": [ELEM] Processing DEX [" + i + "]: " + dex.getName());
+
+                try {
+                    if (VERBOSE) {
+                        XposedBridge.log(TAG + ": [ELEM] Creating DexClassLoader for " + dex.getName());
+                    }
+
+                    int loaderDepth = HotfixTrace.begin("DexClassLoader", dex);
+                    DexClassLoader loader;
+                    try {
+                        loader = new DexClassLoader(
+                            dex.getAbsolutePath(),
+                            optDir.getAbsolutePath(),
+                            null,
+                            classLoader
+                        );
+                    } finally {
+                        HotfixTrace.endTo(loaderDepth);
+                    }
+
+                    if (VERBOSE) {
+                        XposedBridge.log(TAG + ": [ELEM] Loader created: " + loader);
+                        XposedBridge.log(TAG + ": [ELEM] Getting pathList field...");
+                    }
+
+                    Object pathList = getField(loader, "pathList");
+                    if (VERBOSE) {
+                        XposedBridge.log(TAG + ": [ELEM] pathList: " + pathList);
+                    }
+
+                    if (pathList == null) {
+                        XposedBridge.log(TAG + ": [ELEM] pathList is null for " + dex.getName());
+                        continue;
+                    }
+
+                    if (VERBOSE) {
+                        XposedBridge.log(TAG + ": [ELEM] Getting dexElements field...");
+                    }
+                    Object[] dexElements = (Object[]) getField(pathList, "dexElements");
+
+                    if (dexElements == null) {
+                        XposedBridge.log(TAG + ": [ELEM] dexElements is null for " + dex.getName());
+                        continue;
+                    }
+
+                    int added = 0;
+                    for (int j = 0; j < dexElements.length; j++) {
+                        Object e = dexElements[j];
+                        if (e != null) {
+                            if (VERBOSE) {
+                                XposedBridge.log(TAG + ": [ELEM] Adding element [" + j + "]: " + e);
+                            }
+                            elements.add(e);
+                            added++;
+                        } else if (VERBOSE) {
+                            XposedBridge.log(TAG + ": [ELEM] Element [" + j + "] is null, skipping");
+                        }
+                    }
+
+                    XposedBridge.log(TAG + ": [ELEM] Processed " + dex.getName() + ": " + added + " of "
+                        + dexElements.length + " elements");
+
+                } catch (Exception e) {
+                    XposedBridge.log(TAG + ": [ELEM] Failed to process " + dex.getName());
+                    XposedBridge.log(TAG + ": [ELEM] Error: " + e.getMessage());
+                    XposedBridge.log(TAG + ": [ELEM] Class: " + e.getClass().getName());
+                    XposedBridge.log(e);
+                }
+            }
+
+            XposedBridge.log(TAG + ": [ELEM] Total elements collected: " + elements.size());
+
+            if (elements.isEmpty()) {
+                XposedBridge.log(TAG + ": [ELEM] No elements to inject");
+                return false;
+            }
+
+            XposedBridge.log(TAG + ": [ELEM] Getting target classLoader pathList...");
+            int mergeDepth = HotfixTrace.begin("dexElements merge", elements.size());
+            try {
+                Object targetPathList = getField(classLoader, "pathList");
+                if (VERBOSE) {
+                    // DexPathList.toString() lists every element
+                    XposedBridge.log(TAG + ": [ELEM] Target pathList: " + targetPathList);
+                }
+
+                if (targetPathList == null) {
+                    XposedBridge.log(TAG + ": [ELEM] Target pathList is null");
+                    return false;
+                }
+
+                XposedBridge.log(TAG + ": [ELEM] Getting target dexElements...");
+                Object[] targetElements = (Object[]) getField(targetPathList, "dexElements");
+
+                if (targetElements == null) {
+                    XposedBridge.log(TAG + ": [ELEM] Target dexElements is null");
+                    return false;
+                }
+
+                XposedBridge.log(TAG + ": [ELEM] Target dexElements length: " + targetElements.length);
+
+                int total = elements.size() + targetElements.length;
+                XposedBridge.log(TAG + ": [ELEM] Creating combined array of size: " + total);
+
+                Object combined = Array.newInstance(
+                    targetElements.getClass().getComponentType(),
+                    total
+                );
+
+                XposedBridge.log(TAG + ": [ELEM] Copying new elements to combined array...");
+                for (int i = 0; i < elements.size(); i++) {
+                    Array.set(combined, i, elements.get(i));
+                    if (VERBOSE) {
+                        XposedBridge.log(TAG + ": [ELEM] Set element [" + i + "]: " + elements.get(i));
+                    }
+                }
+
+                XposedBridge.log(TAG + ": [ELEM] Copying original elements to combined array...");
+                System.arraycopy(targetElements, 0, combined, elements.size(), targetElements.length);
+                XposedBridge.log(TAG + ": [ELEM] Original elements copied");
+
+                XposedBridge.log(TAG + ": [ELEM] Setting new dexElements to pathList...");
+                setField(targetPathList, "dexElements", combined);
+                XposedBridge.log(TAG + ": [ELEM] dexElements set successfully");
+
+                XposedBridge.log(TAG + ": 🚀 Injected " + elements.size() + " elements!");
+                return true;
+            } finally {
+                HotfixTrace.endTo(mergeDepth);
+            }
+
+        } catch (Exception e) {
+            XposedBridge.log(TAG + ": [ELEM] Injection failed");
+            XposedBridge.log(TAG + ": [ERROR] Message: " + e.getMessage());
+            XposedBridge.log(TAG + ": [ERROR] Class: " + e.getClass().getName());
+            XposedBridge.log(e);
+        } finally {
+            HotfixTrace.endTo(traceDepth);
+        }
+        return false;
+    }
+
+    /**
+     * A class loader's toString() prints its whole DexPathList - one line per element - so outside
+     * VERBOSE only its class and identity are logged
+     */
+    private static String describe(ClassLoader loader) {
+        if (VERBOSE || loader == null) {
+            return String.valueOf(loader);
+        }
+        return loader.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(loader));
+    }
+
+    /**
+     * [FIELD] detail is VERBOSE only - the objects printed here are pathLists and element arrays
+     */
+    private static Object getField(Object obj, String name) throws Exception {
+        if (VERBOSE) {
+            XposedBridge.log(TAG + ": [FIELD] Getting field '" + name + "' from " + obj);
+        }
+
+        if (obj == null) {
+            XposedBridge.log(TAG + ": [FIELD] Object is null");
+            return null;
+        }
+
+        Field preinit = ZygoteState.dexField(name);
+        if (preinit != null && preinit.getDeclaringClass().isInstance(obj)) {
+            Object value = preinit.get(obj);
+            if (VERBOSE) {
+                XposedBridge.log(TAG + ": [FIELD] Field value (zygote handle): " + value);
+            }
+            return value;
+        }
+
+        Class<?> clazz = obj.getClass();
+        if (VERBOSE) {
+            XposedBridge.log(TAG + ": [FIELD] Object class: " + clazz.getName());
+        }
+
+        while (clazz != null) {
+            try {
+                Field f = clazz.getDeclaredField(name);
+                f.setAccessible(true);
+                Object value = f.get(obj);
+                if (VERBOSE) {
+                    XposedBridge.log(TAG + ": [FIELD] Field found: " + f);
+                    XposedBridge.log(TAG + ": [FIELD] Field value: " + value);
+                }
+                return value;
+            } catch (NoSuchFieldException e) {
+                if (VERBOSE) {
+                    XposedBridge.log(TAG + ": [FIELD] Field not found in " + clazz.getName() + ", trying superclass");
+                }
+                clazz = clazz.getSuperclass();
+            }
+        }
+
+        XposedBridge.log(TAG + ": [FIELD] Field '" + name + "' not found in any class");
+        throw new NoSuchFieldException(name);
+    }
+
+    private static void setField(Object obj, String name, Object value) throws Exception {
+        if (VERBOSE) {
+            XposedBridge.log(TAG + ": [FIELD] Setting field '" + name + "' on " + obj + " to " + value);
+        }
+
+        Field preinit = ZygoteState.dexField(name);
+        if (preinit != null && preinit.getDeclaringClass().isInstance(obj)) {
+            preinit.set(obj, value);
+            if (VERBOSE) {
+                XposedBridge.log(TAG + ": [FIELD] Field value set (zygote handle)");
+            }
+            return;
+        }
+
+        Class<?> clazz = obj.getClass();
+        if (VERBOSE) {
+            XposedBridge.log(TAG + ": [FIELD] Object class: " + clazz.getName());
+        }
+
+        while (clazz != null) {
+            try {
+                Field f = clazz.getDeclaredField(name);
+                f.setAccessible(true);
+                f.set(obj, value);
+                if (VERBOSE) {
+                    XposedBridge.log(TAG + ": [FIELD] Field found: " + f);
+                    XposedBridge.log(TAG + ": [FIELD] Field value set successfully");
+                }
+                return;
+            } catch (NoSuchFieldException e) {
+                if (VERBOSE) {
+                    XposedBridge.log(TAG + ": [FIELD] Field not found in " + clazz.getName() + ", trying superclass");
+                }
+                clazz = clazz.getSuperclass();
+            }
+        }
+
+        XposedBridge.log(TAG + ": [FIELD] Field '" + name + "' not found in any class");
+        throw new NoSuchFieldException(name);
+    }
+}
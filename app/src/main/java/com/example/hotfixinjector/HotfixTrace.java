@@ -0,0 +1,109 @@
+package com.example.hotfixinjector;
+
+import android.os.Trace;
+
+import java.io.File;
+
+/**
+ * Perfetto / systrace sections for the module's work inside the target's bindApplication
+ * Off unless the debug.hotfix.trace system property is set when the process starts:
+ *   adb shell setprop debug.hotfix.trace 1   (then restart the target app)
+ * ENABLED is read once at class init, not a compile-time constant: with tracing off every call
+ * costs a field read and a branch, and section names are only built when it is on
+ * Sections appear as "Hotfix:<name> <package> dex=..." on the calling thread
+ * Callers keep the depth begin() returns and close with endTo(), so a return or exception
+ * between the two cannot leave a section open or close someone else's
+ */
+final class HotfixTrace {
+
+    static final boolean ENABLED = readFlag("debug.hotfix.trace");
+
+    private static final String PREFIX = "Hotfix:";
+    private static final int MAX_NAME_LENGTH = 127; // atrace limit
+
+    // Open sections per thread, so an early return or exception can unwind to a known depth
+    private static final ThreadLocal<int[]> depth = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private HotfixTrace() {
+    }
+
+    /**
+     * Returns the depth before this section, for endTo()
+     */
+    static int begin(String name) {
+        if (!ENABLED) {
+            return 0;
+        }
+        return push(PREFIX + name);
+    }
+
+    /**
+     * subject: the package, or the endpoint for HTTP
+     */
+    static int begin(String name, String subject) {
+        if (!ENABLED) {
+            return 0;
+        }
+        return push(PREFIX + name + " " + subject);
+    }
+
+    static int begin(String name, String packageName, int dexCount) {
+        if (!ENABLED) {
+            return 0;
+        }
+        return push(PREFIX + name + " " + packageName + " dex=" + dexCount);
+    }
+
+    static int begin(String name, int elements) {
+        if (!ENABLED) {
+            return 0;
+        }
+        return push(PREFIX + name + " elements=" + elements);
+    }
+
+    static int begin(String name, File dex) {
+        if (!ENABLED) {
+            return 0;
+        }
+        return push(PREFIX + name + " dex=" + dex.getName() + " size=" + dex.length());
+    }
+
+    /**
+     * Close every section opened on this thread since begin() returned the given depth
+     */
+    static void endTo(int target) {
+        if (!ENABLED) {
+            return;
+        }
+        int[] open = depth.get();
+        while (open[0] > target) {
+            open[0]--;
+            Trace.endSection();
+        }
+    }
+
+    private static int push(String name) {
+        Trace.beginSection(name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name);
+        int[] open = depth.get();
+        return open[0]++;
+    }
+
+    /**
+     * android.os.SystemProperties is hidden - read through reflection, once per process
+     * Also backs HotfixPipeline's debug.hotfix.verbose
+     */
+    static boolean readFlag(String property) {
+        try {
+            Class<?> properties = Class.forName("android.os.SystemProperties");
+            return (Boolean) properties.getMethod("getBoolean", String.class, boolean.class)
+                .invoke(null, property, false);
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+}
@@ -39,6 +39,7 @@ public class LicenseActivationActivity extends Activity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        MetricsReporter.start(this);
         licenseClient = new LicenseClient(this);
         createUI();
     }
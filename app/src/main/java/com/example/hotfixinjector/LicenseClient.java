@@ -11,10 +11,10 @@ import android.util.Log;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
@@ -37,9 +37,13 @@ public class LicenseClient {
     private static final String KEY_DEVICE_ID = "device_id";
     private static final String KEY_EXPIRES_AT = "expires_at";
 
+    // Server-directed polling (/verify: next_check_ms, max_offline_ms)
+    static final String KEY_NEXT_CHECK = "next_check_ms";
+    private static final String KEY_MAX_OFFLINE = "max_offline_ms";
+
     // License file in ROOT directory - accessible by Xposed module with root privileges
     // Encrypted and device-specific
-    private static final String LICENSE_FILE = "/data/adb/.hf_license";
+    static final String LICENSE_FILE = "/data/adb/.hf_license";
 
     // Cloudflare Worker URL
     private static final String API_BASE_URL = "https://hotapp.lastofanarchy.workers.dev";
@@ -55,12 +59,22 @@ public class LicenseClient {
     // Module will use this key to verify with server every time
     private static final String HARDCODED_LICENSE_KEY = "";
 
-    // Base seed for encryption key generation
-    private static final String ENCRYPTION_SEED = "HotFix_License_Key_Seed_v1";
-
     // Nonce validity duration (7 minutes in milliseconds)
     private static final long NONCE_VALIDITY_MS = 7 * 60 * 1000;
 
+    // Server-side nonce lifetime (MAX_NONCE_AGE in the worker: 24 hours)
+    // After this the server demands re-activation, so the client must verify well before it
+    static final long NONCE_MAX_AGE_MS = 24 * 60 * 60 * 1000;
+
+    // Longest an unchanged license file goes without being rewritten after a verification
+    private static final long FILE_REFRESH_MS = 6 * 60 * 60 * 1000;
+
+    // Shared by every client instance so keep-alive connections and TLS sessions are reused
+    private static final LicenseTransport transport = new LicenseTransport(API_BASE_URL);
+
+    // XOR codec of the last request and the license key it was derived from - invalidated by clearLicense()
+    private static volatile XorKeyCache xorKeyCache;
+
     private final Context context;
     private final SharedPreferences prefs;
     private String cachedDeviceId;
@@ -104,37 +118,10 @@ public class LicenseClient {
 
     /**
      * Generate device-specific encryption key (32 bytes)
-     * Key is unique per device but deterministic (same device = same key)
+     * Key is unique per device but deterministic (same device = same key) - derived once per zygote
      */
     private static String getDeviceEncryptionKey() {
-        // Generate hardware fingerprint
-        StringBuilder hwInfo = new StringBuilder();
-        hwInfo.append(Build.BOARD).append("|");
-        hwInfo.append(Build.BRAND).append("|");
-        hwInfo.append(Build.DEVICE).append("|");
-        hwInfo.append(Build.HARDWARE).append("|");
-        hwInfo.append(Build.MANUFACTURER).append("|");
-        hwInfo.append(Build.MODEL).append("|");
-        hwInfo.append(Build.PRODUCT).append("|");
-        hwInfo.append(ENCRYPTION_SEED);
-
-        // Generate SHA-256 hash and take first 32 bytes
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(hwInfo.toString().getBytes(StandardCharsets.UTF_8));
-
-            // Convert first 32 bytes to hex string (32 bytes = 64 hex chars, take first 32)
-            StringBuilder hexString = new StringBuilder();
-            for (int i = 0; i < 16; i++) { // 16 bytes = 32 hex chars = 32 bytes when converted back
-                String hex = Integer.toHexString(0xff & hash[i]);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (Exception e) {
-            // Fallback to fixed key
-            return "Kh7Gm2Qp5Rt8Wx4Zv1Nc9Bs6Yf3Dj0A";
-        }
+        return ZygoteState.deviceEncryptionKey();
     }
 
     /**
@@ -186,8 +173,13 @@ public class LicenseClient {
 
     /**
      * Activate license with server
+     * Waits for any verification in flight so the two never overwrite each other's file
      */
     public LicenseResult activate(String licenseKey) {
+        return VerificationCoordinator.activate(this, licenseKey);
+    }
+
+    LicenseResult performActivate(String licenseKey) {
         try {
             JSONObject payload = new JSONObject();
             payload.put("app_signature", APP_SIGNATURE);  // ⚡ NEW: App signature
@@ -204,6 +196,7 @@ public class LicenseClient {
                 long expiresAt = json.optLong("expires_at", 0);
                 long createdAt = json.optLong("created_at", System.currentTimeMillis());  // ⚡ NEW
                 long serverTime = json.optLong("server_time", System.currentTimeMillis()); // ⚡ NEW
+                long maxOfflineMs = json.optLong("max_offline_ms", 0);
 
                 Log.i(TAG, "🔑 [ACTIVATE] Received nonce from server");
                 Log.d(TAG, "🔑 [ACTIVATE] Nonce length: " + nonce.length());
@@ -218,10 +211,13 @@ public class LicenseClient {
                     .putString("license_key", licenseKey)
                     .putString(KEY_SESSION_TOKEN, sessionToken)
                     .putString("nonce", nonce)
+                    .putLong("nonce_timestamp", serverTime)   // Server issues the nonce at server_time
                     .putLong(KEY_EXPIRES_AT, expiresAt)
                     .putLong("created_at", createdAt)         // ⚡ NEW
                     .putLong("last_server_time", serverTime)  // ⚡ NEW
                     .putLong("last_check_client", clientTime) // ⚡ NEW
+                    .putLong(KEY_MAX_OFFLINE, maxOfflineMs)
+                    .remove(KEY_NEXT_CHECK)
                     .apply();
 
                 // Write to encrypted file for cross-app access
@@ -246,11 +242,16 @@ public class LicenseClient {
      * Used by Hook (fast, doesn't need INTERNET permission)
      */
     public LicenseResult verifyOffline() {
-        try {
-            Log.i(TAG, "[VERIFY-OFFLINE] Reading cached status from file...");
-
-            LicenseData license = readLicenseFromFile();
+        Log.i(TAG, "[VERIFY-OFFLINE] Reading cached status from file...");
+        return verifyOffline(readLicenseFromFile());
+    }
 
+    /**
+     * Verify already-loaded license data OFFLINE
+     * Lets callers that need the data afterwards (LicenseGuard) avoid a second file read
+     */
+    public LicenseResult verifyOffline(LicenseData license) {
+        try {
             if (license == null) {
                 Log.e(TAG, "[VERIFY-OFFLINE] ❌ No license file");
                 return LicenseResult.failure("No active license");
@@ -279,6 +280,12 @@ public class LicenseClient {
                 return LicenseResult.failure("License expired");
             }
 
+            // Not cleared - the license is fine, the device just has to reach the server again
+            if (license.isOfflineTooLong()) {
+                Log.e(TAG, "[VERIFY-OFFLINE] 📴 No server check within " + (license.maxOfflineMs / 1000) + "s");
+                return LicenseResult.failure("Offline too long - connect to verify");
+            }
+
             if ("valid".equals(license.status)) {
                 long age = (System.currentTimeMillis() - license.lastCheck) / 1000;
                 Log.i(TAG, "[VERIFY-OFFLINE] ✅ Status: VALID (checked " + age + "s ago)");
@@ -303,8 +310,14 @@ public class LicenseClient {
      * 2. Check if burned → delete file, fail
      * 3. Send HTTP request
      * 4. Update file with new status and timestamp
+     *
+     * Concurrent callers share one request and its result (VerificationCoordinator)
      */
     public LicenseResult verify() {
+        return VerificationCoordinator.verify(this);
+    }
+
+    LicenseResult performVerify() {
         try {
             Log.i(TAG, "[VERIFY] ========================================");
             Log.i(TAG, "[VERIFY] Starting ALWAYS-ONLINE verification...");
@@ -349,11 +362,20 @@ public class LicenseClient {
             String newStatus = "invalid";
             String newNonce = null;
             long serverTime = 0;
+            long maxOfflineMs = 0;
 
             if (json.getBoolean("success") && json.optBoolean("valid", false)) {
                 newStatus = "valid";
                 newNonce = json.getString("nonce");  // ⚡ Get new nonce from server
                 serverTime = json.optLong("server_time", System.currentTimeMillis()); // ⚡ NEW
+                maxOfflineMs = json.optLong("max_offline_ms", 0);
+
+                // Server-directed polling - LicenseVerificationJob schedules the next check from this
+                long nextCheckMs = json.optLong("next_check_ms", 0);
+                if (prefs != null) {
+                    prefs.edit().putLong(KEY_NEXT_CHECK, nextCheckMs).apply();
+                }
+                Log.i(TAG, "[VERIFY] ⏰ Next check in " + (nextCheckMs / 1000) + "s, max offline " + (maxOfflineMs / 1000) + "s");
 
                 Log.i(TAG, "[VERIFY] ✅ Server verification SUCCESS");
                 Log.i(TAG, "[VERIFY] 🔑 Received new nonce from server");
@@ -371,7 +393,7 @@ public class LicenseClient {
             }
 
             // 4. Update file with new status, nonce, and server time (ALWAYS!)
-            updateLicenseStatus(newStatus, newNonce, serverTime);
+            updateLicenseStatus(newStatus, newNonce, serverTime, maxOfflineMs);
 
             // If burned, delete file
             if ("burned".equals(newStatus)) {
@@ -390,7 +412,8 @@ public class LicenseClient {
             Log.e(TAG, "[VERIFY] Exception type: " + e.getClass().getName());
             Log.e(TAG, "[VERIFY] Exception message: " + e.getMessage());
             e.printStackTrace();
-            return LicenseResult.failure("Network error: " + e.getMessage());
+            // No verdict (timeout, network, unreadable response) - the caller may retry with backoff
+            return LicenseResult.retryable("Network error: " + e.getMessage());
         }
     }
 
@@ -412,7 +435,8 @@ public class LicenseClient {
             payload.put("session_token", licenseData.sessionToken);
             payload.put("device_id", licenseData.deviceId);
 
-            String response = sendRequest("/verify", payload);
+            // license_key is not sent here, but the XOR key is still derived from it
+            String response = sendRequest("/verify", payload, licenseData.licenseKey);
             JSONObject json = new JSONObject(response);
 
             if (json.getBoolean("success") && json.optBoolean("valid", false)) {
@@ -432,8 +456,9 @@ public class LicenseClient {
 
     /**
      * Update license status in file (after online verification)
+     * maxOfflineMs = 0 keeps the value already in the file
      */
-    private void updateLicenseStatus(String newStatus, String newNonce, long serverTime) {
+    private void updateLicenseStatus(String newStatus, String newNonce, long serverTime, long maxOfflineMs) {
         try {
             Log.i(TAG, "[UPDATE] Updating license status to: " + newStatus);
             if (newNonce != null) {
@@ -450,12 +475,22 @@ public class LicenseClient {
                 return;
             }
 
+            // A nonce the file already holds is not a new one (every /verify issues a fresh one today)
+            if (newNonce != null && newNonce.equals(oldLicense.nonce)) {
+                newNonce = null;
+            }
+
             // Use new nonce if provided, otherwise keep old nonce
             String nonceToSave = (newNonce != null) ? newNonce : oldLicense.nonce;
 
             // Use new server time if provided, otherwise keep old
             long serverTimeToSave = (serverTime > 0) ? serverTime : oldLicense.lastServerTime;
 
+            // A new nonce is issued at server_time
+            long nonceTimestampToSave = (newNonce != null && serverTime > 0) ? serverTime : oldLicense.nonceTimestamp;
+
+            long maxOfflineToSave = (maxOfflineMs > 0) ? maxOfflineMs : oldLicense.maxOfflineMs;
+
             long clientTime = System.currentTimeMillis();
 
             // Create updated JSON
@@ -463,26 +498,44 @@ public class LicenseClient {
             data.put("license_key", oldLicense.licenseKey);
             data.put("token", oldLicense.sessionToken);
             data.put("nonce", nonceToSave);
+            data.put("nonce_timestamp", nonceTimestampToSave);
             data.put("status", newStatus);
             data.put("last_check", clientTime);              // ⚡ Client time
             data.put("last_server_time", serverTimeToSave);  // ⚡ Server time
             data.put("created_at", oldLicense.createdAt);
             data.put("expires", oldLicense.expiresAt);
             data.put("device", oldLicense.deviceId);
+            data.put("max_offline", maxOfflineToSave);
 
             // Also update SharedPreferences
             if (prefs != null) {
                 SharedPreferences.Editor editor = prefs.edit();
                 if (newNonce != null) {
                     editor.putString("nonce", newNonce);
+                    editor.putLong("nonce_timestamp", nonceTimestampToSave);
                 }
                 if (serverTime > 0) {
                     editor.putLong("last_server_time", serverTime);
                     editor.putLong("last_check_client", clientTime);
                 }
+                editor.putLong(KEY_MAX_OFFLINE, maxOfflineToSave);
                 editor.apply();
             }
 
+            // Nothing the hooks read has changed - skip the root shell write
+            // The file's last_check/last_server_time are still refreshed every FILE_REFRESH_MS,
+            // and well inside the offline grace LicenseGuard measures from them
+            long refreshMs = FILE_REFRESH_MS;
+            if (maxOfflineToSave > 0) {
+                refreshMs = Math.min(refreshMs, maxOfflineToSave / 4);
+            }
+            if (newNonce == null && newStatus.equals(oldLicense.status)
+                && maxOfflineToSave == oldLicense.maxOfflineMs
+                && clientTime - oldLicense.lastCheck < refreshMs) {
+                Log.i(TAG, "[UPDATE] ✅ Status and nonce unchanged - license file kept");
+                return;
+            }
+
             // Encrypt and write
             String encrypted = encryptAES(data.toString());
 
@@ -519,6 +572,8 @@ public class LicenseClient {
      * Clear license data
      */
     public void clearLicense() {
+        xorKeyCache = null;
+
         // Clear SharedPreferences if available
         if (prefs != null) {
             prefs.edit()
@@ -548,10 +603,12 @@ public class LicenseClient {
 
             String sessionToken = prefs.getString(KEY_SESSION_TOKEN, null);
             String nonce = prefs.getString("nonce", null);
+            long nonceTimestamp = prefs.getLong("nonce_timestamp", 0);
             long expiresAt = prefs.getLong(KEY_EXPIRES_AT, 0);
             long createdAt = prefs.getLong("created_at", System.currentTimeMillis());
             long lastServerTime = prefs.getLong("last_server_time", System.currentTimeMillis());
             long lastCheckClient = prefs.getLong("last_check_client", System.currentTimeMillis());
+            long maxOfflineMs = prefs.getLong(KEY_MAX_OFFLINE, 0);
 
             if (sessionToken == null) {
                 return;
@@ -566,12 +623,14 @@ public class LicenseClient {
             data.put("license_key", prefs.getString("license_key", ""));
             data.put("token", sessionToken);
             data.put("nonce", nonce != null ? nonce : "");
+            data.put("nonce_timestamp", nonceTimestamp);                  // ⚡ When server issued nonce (server)
             data.put("status", "valid");
             data.put("last_check", lastCheckClient);              // ⚡ Client time at last check
             data.put("last_server_time", lastServerTime);         // ⚡ Server time at last check
             data.put("created_at", createdAt);                    // ⚡ Creation time (server)
             data.put("expires", expiresAt);                       // ⚡ Expiration time (server)
             data.put("device", getDeviceId());
+            data.put("max_offline", maxOfflineMs);                // Offline grace (server, 0 = not limited)
 
             // Encrypt
             String encrypted = encryptAES(data.toString());
@@ -647,6 +706,7 @@ public class LicenseClient {
      * Read encrypted license from ROOT file (accessible by Xposed module)
      */
     public static LicenseData readLicenseFromFile() {
+        int traceDepth = HotfixTrace.begin("license decode");
         try {
             Log.i("LicenseClient", "[READ] ========================================");
             Log.i("LicenseClient", "[READ] Starting file read from: " + LICENSE_FILE);
@@ -711,24 +771,28 @@ public class LicenseClient {
             String licenseKey = json.optString("license_key", "");
             String token = json.getString("token");
             String nonce = json.optString("nonce", null);
+            long nonceTimestamp = json.optLong("nonce_timestamp", 0);
             String status = json.optString("status", "valid");
             long lastCheck = json.optLong("last_check", System.currentTimeMillis());
             long lastServerTime = json.optLong("last_server_time", System.currentTimeMillis());
             long createdAt = json.optLong("created_at", 0);
             long expires = json.optLong("expires", 0);
             String device = json.getString("device");
+            long maxOffline = json.optLong("max_offline", 0);
 
             Log.i("LicenseClient", "[READ] License parsed:");
             Log.i("LicenseClient", "[READ]   - token: " + token.substring(0, Math.min(20, token.length())) + "...");
             Log.i("LicenseClient", "[READ]   - nonce: " + (nonce != null ? "YES (" + nonce.length() + " chars)" : "MISSING"));
+            Log.i("LicenseClient", "[READ]   - nonce_timestamp: " + nonceTimestamp);
             Log.i("LicenseClient", "[READ]   - status: " + status);
             Log.i("LicenseClient", "[READ]   - last_check (client): " + lastCheck);
             Log.i("LicenseClient", "[READ]   - last_server_time: " + lastServerTime);
             Log.i("LicenseClient", "[READ]   - created_at: " + createdAt);
             Log.i("LicenseClient", "[READ]   - expires: " + expires);
+            Log.i("LicenseClient", "[READ]   - max_offline: " + maxOffline);
 
-            LicenseData licenseData = new LicenseData(licenseKey, token, nonce, status,
-                lastCheck, lastServerTime, createdAt, expires, device);
+            LicenseData licenseData = new LicenseData(licenseKey, token, nonce, nonceTimestamp, status,
+                lastCheck, lastServerTime, createdAt, expires, device, maxOffline);
 
             if (!licenseData.isValid()) {
                 Log.e("LicenseClient", "[READ] License data is INVALID (expired or empty token)");
@@ -756,6 +820,8 @@ public class LicenseClient {
             } catch (Exception ignored) {}
 
             return null;
+        } finally {
+            HotfixTrace.endTo(traceDepth);
         }
     }
 
@@ -838,10 +904,11 @@ public class LicenseClient {
         public final long createdAt;           // When license was created (SERVER time)
         public final long expiresAt;           // When license expires (SERVER time, 0 = never)
         public final String deviceId;
+        public final long maxOfflineMs;        // Longest allowed time since lastServerTime (0 = not limited)
 
         public LicenseData(String licenseKey, String sessionToken, String nonce, long nonceTimestamp,
                           String status, long lastCheck, long lastServerTime, long createdAt,
-                          long expiresAt, String deviceId) {
+                          long expiresAt, String deviceId, long maxOfflineMs) {
             this.licenseKey = licenseKey;
             this.sessionToken = sessionToken;
             this.nonce = nonce;
@@ -852,6 +919,7 @@ public class LicenseClient {
             this.createdAt = createdAt;
             this.expiresAt = expiresAt;
             this.deviceId = deviceId;
+            this.maxOfflineMs = maxOfflineMs;
         }
 
         // Legacy constructor for backward compatibility
@@ -859,12 +927,14 @@ public class LicenseClient {
             this.licenseKey = null;
             this.sessionToken = sessionToken;
             this.nonce = null;
+            this.nonceTimestamp = 0;
             this.status = "valid";
             this.lastCheck = System.currentTimeMillis();
             this.lastServerTime = System.currentTimeMillis();
             this.createdAt = System.currentTimeMillis();
             this.expiresAt = expiresAt;
             this.deviceId = deviceId;
+            this.maxOfflineMs = 0;
         }
 
         /**
@@ -901,6 +971,42 @@ public class LicenseClient {
             return nonceAge > NONCE_VALIDITY_MS; // 7 minutes
         }
 
+        /**
+         * End of the window in which the server still accepts the current nonce (SERVER time)
+         * Whichever comes first: nonce reaching server max age, license expiry, or offline grace
+         * Returns 0 if the nonce timestamp is unknown
+         */
+        public long getValidityWindowEnd() {
+            if (nonceTimestamp == 0) {
+                return 0;
+            }
+            long windowEnd = nonceTimestamp + NONCE_MAX_AGE_MS;
+            if (expiresAt > 0 && expiresAt < windowEnd) {
+                windowEnd = expiresAt;
+            }
+            long offlineEnd = getOfflineDeadline();
+            if (offlineEnd > 0 && offlineEnd < windowEnd) {
+                windowEnd = offlineEnd;
+            }
+            return windowEnd;
+        }
+
+        /**
+         * Server time after which the license stops working without a new server check
+         * Returns 0 if the server did not limit offline use
+         */
+        public long getOfflineDeadline() {
+            return maxOfflineMs > 0 ? lastServerTime + maxOfflineMs : 0;
+        }
+
+        /**
+         * Check if the last server sync is older than the offline grace the server allowed
+         */
+        public boolean isOfflineTooLong() {
+            long deadline = getOfflineDeadline();
+            return deadline > 0 && getEstimatedServerTime() > deadline;
+        }
+
         public boolean isValid() {
             // Check if burned
             if ("burned".equals(status)) {
@@ -1011,104 +1117,130 @@ public class LicenseClient {
      * Send encrypted request to server
      */
     private String sendRequest(String endpoint, JSONObject payload) throws Exception {
+        return sendRequest(endpoint, payload, payload.optString("license_key", null));
+    }
+
+    /**
+     * Send encrypted request to server, XOR key derived from licenseKey (null = read from the license file)
+     */
+    private String sendRequest(String endpoint, JSONObject payload, String licenseKey) throws Exception {
         Log.i(TAG, "[HTTP] ========================================");
         Log.i(TAG, "[HTTP] Preparing HTTP request");
         Log.i(TAG, "[HTTP] Endpoint: " + endpoint);
         Log.i(TAG, "[HTTP] Full URL: " + API_BASE_URL + endpoint);
 
-        URL url = new URL(API_BASE_URL + endpoint);
-        Log.i(TAG, "[HTTP] URL object created");
-
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        Log.i(TAG, "[HTTP] Connection opened");
-
+        // ==================== XOR ENCRYPTION ====================
+        // Payload is XORed and Base64 encoded while it is written to the connection
+        final byte[] plain = payload.toString().getBytes(StandardCharsets.UTF_8);
+        final XorCodec codec = getXorCodec(licenseKey);
+        Log.i(TAG, "[HTTP] Original payload size: " + plain.length + " bytes");
+        Log.i(TAG, "[HTTP] Encrypted payload size: " + codec.envelopeLength(plain.length) + " bytes");
+
+        Log.i(TAG, "[HTTP] Sending encrypted payload (timeout: 10s)...");
+        long start = System.nanoTime();
+        LicenseTransport.Response response;
+        int traceDepth = HotfixTrace.begin("http", endpoint);
         try {
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("User-Agent", "HotfixInjector/1.0");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(10000);
-            conn.setReadTimeout(10000);
-            Log.i(TAG, "[HTTP] Request configured (timeout: 10s)");
-
-            // ==================== XOR ENCRYPTION ====================
-            // Encrypt payload with XOR before sending
-            String jsonString = payload.toString();
-            Log.i(TAG, "[HTTP] Original payload size: " + jsonString.length() + " bytes");
-
-            // Get license_key from payload or from file
-            String licenseKey = payload.optString("license_key", null);
-            if (licenseKey == null) {
-                // Try to get from saved data
-                LicenseData license = readLicenseFromFile();
-                if (license != null) {
-                    licenseKey = license.licenseKey;
+            response = transport.post(endpoint, new LicenseTransport.Body() {
+                @Override
+                public int length() {
+                    return codec.envelopeLength(plain.length);
                 }
-            }
 
-            // Generate XOR key and encrypt
-            String xorKey = generateXORKey(licenseKey);
-            String encryptedPayload = xorEncrypt(jsonString, xorKey);
-            Log.i(TAG, "[HTTP] Encrypted payload size: " + encryptedPayload.length() + " bytes");
-
-            // Wrap encrypted data in JSON
-            JSONObject wrapper = new JSONObject();
-            wrapper.put("encrypted", encryptedPayload);
-            String wrappedPayload = wrapper.toString();
-
-            Log.i(TAG, "[HTTP] Writing encrypted payload...");
-            OutputStream os = conn.getOutputStream();
-            os.write(wrappedPayload.getBytes(StandardCharsets.UTF_8));
-            os.flush();
-            os.close();
-            Log.i(TAG, "[HTTP] Encrypted payload sent successfully");
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    codec.writeEnvelope(plain, plain.length, out);
+                }
+            });
+        } catch (SocketTimeoutException e) {
+            Metrics.increment(Metrics.HTTP_ERROR_TIMEOUT);
+            throw e;
+        } catch (IOException e) {
+            Metrics.increment(Metrics.HTTP_ERROR_NETWORK);
+            throw e;
+        } finally {
+            HotfixTrace.endTo(traceDepth);
+        }
+        Metrics.record(Metrics.HTTP_RTT_MS, (System.nanoTime() - start) / 1000000);
+        Metrics.increment(response.code >= 200 && response.code < 300 ? Metrics.HTTP_OK : Metrics.HTTP_ERROR_STATUS);
+        recordServerTiming(response);
+        Log.i(TAG, "[HTTP] Response code: " + response.code);
+        Log.i(TAG, "[HTTP] Encrypted response size: " + response.length + " bytes");
+
+        // ==================== XOR DECRYPTION ====================
+        // Decrypted in place in the response buffer
+        String decryptedResponse;
+        long decodeStart = System.nanoTime();
+        try {
+            decryptedResponse = codec.decodeEnvelope(response.body, response.length);
+        } catch (IllegalArgumentException e) {
+            Metrics.increment(Metrics.HTTP_ERROR_PROTOCOL);
+            throw e;
+        }
+        Metrics.record(Metrics.HTTP_DECODE_MS, (System.nanoTime() - decodeStart) / 1000000);
+        if (decryptedResponse == null) {
+            // Fallback: response is not encrypted (error responses)
+            Log.w(TAG, "[HTTP] Response is not encrypted!");
+            return response.bodyAsString();
+        }
 
-            Log.i(TAG, "[HTTP] Waiting for response...");
-            int responseCode = conn.getResponseCode();
-            Log.i(TAG, "[HTTP] Response code: " + responseCode);
+        Log.i(TAG, "[HTTP] Decrypted response size: " + decryptedResponse.length() + " bytes");
+        return decryptedResponse;
+    }
 
-            BufferedReader reader;
-            if (responseCode >= 200 && responseCode < 300) {
-                reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            } else {
-                reader = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-            }
+    /**
+     * Client and worker side of one round trip, so a slow /verify can be attributed:
+     * connect, TTFB, the worker's D1 queries and total, and the network as TTFB minus that total
+     */
+    private static void recordServerTiming(LicenseTransport.Response response) {
+        long ttfbMs = response.ttfbNanos / 1000000;
+        Metrics.record(Metrics.HTTP_CONNECT_MS, response.connectNanos / 1000000);
+        Metrics.record(Metrics.HTTP_TTFB_MS, ttfbMs);
+
+        long serverMs = response.serverTimingMillis("total");
+        if (serverMs < 0) {
+            return;
+        }
+        Metrics.record(Metrics.SERVER_TOTAL_MS, serverMs);
+        Metrics.record(Metrics.HTTP_NETWORK_MS, Math.max(0, ttfbMs - serverMs));
+        long d1Ms = response.serverTimingMillis("d1-");
+        if (d1Ms >= 0) {
+            Metrics.record(Metrics.SERVER_D1_MS, d1Ms);
+        }
+        Log.d(TAG, "[HTTP] ⏱️ connect " + (response.connectNanos / 1000000) + "ms, ttfb " + ttfbMs
+            + "ms (server " + serverMs + "ms, d1 " + Math.max(0, d1Ms) + "ms)");
+    }
 
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+    /**
+     * XOR codec for a request, reused only while the license key matches the cached one
+     * A key is resolved before every lookup - from the file when the caller has none - so a
+     * license re-activated in another process never gets the previous key's codec
+     */
+    private XorCodec getXorCodec(String licenseKey) {
+        if (licenseKey == null) {
+            LicenseData license = readLicenseFromFile();
+            if (license != null) {
+                licenseKey = license.licenseKey;
             }
-            reader.close();
-
-            String responseStr = response.toString();
-            Log.i(TAG, "[HTTP] Encrypted response size: " + responseStr.length() + " bytes");
+        }
 
-            // ==================== XOR DECRYPTION ====================
-            // Decrypt response with XOR (reuse licenseKey and xorKey from above)
-            try {
-                JSONObject responseWrapper = new JSONObject(responseStr);
-                if (responseWrapper.has("encrypted")) {
-                    String encryptedResponse = responseWrapper.getString("encrypted");
+        XorKeyCache cached = xorKeyCache;
+        if (cached != null && (licenseKey == null ? cached.licenseKey == null : licenseKey.equals(cached.licenseKey))) {
+            return cached.codec;
+        }
 
-                    // Reuse xorKey from encryption step (already calculated)
-                    String decryptedResponse = xorDecrypt(encryptedResponse, xorKey);
-                    Log.i(TAG, "[HTTP] Decrypted response size: " + decryptedResponse.length() + " bytes");
+        XorCodec codec = new XorCodec(generateXORKey(licenseKey));
+        xorKeyCache = new XorKeyCache(licenseKey, codec);
+        return codec;
+    }
 
-                    return decryptedResponse;
-                } else {
-                    // Fallback: response is not encrypted (shouldn't happen)
-                    Log.w(TAG, "[HTTP] Response is not encrypted!");
-                    return responseStr;
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "[HTTP] Failed to decrypt response: " + e.getMessage());
-                // Return original response as fallback
-                return responseStr;
-            }
+    private static final class XorKeyCache {
+        final String licenseKey;
+        final XorCodec codec;
 
-        } finally {
-            conn.disconnect();
+        XorKeyCache(String licenseKey, XorCodec codec) {
+            this.licenseKey = licenseKey;
+            this.codec = codec;
         }
     }
 
@@ -1143,62 +1275,6 @@ public class LicenseClient {
         return key;
     }
 
-    /**
-     * XOR encrypt/decrypt data (XOR is symmetric - same for both)
-     * Returns Base64 encoded result
-     */
-    private String xorEncrypt(String data, String key) {
-        if (data == null || data.isEmpty() || key == null || key.isEmpty()) {
-            Log.e(TAG, "[XOR] Invalid data or key");
-            return data;
-        }
-
-        try {
-            byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
-            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
-            byte[] result = new byte[dataBytes.length];
-
-            for (int i = 0; i < dataBytes.length; i++) {
-                result[i] = (byte) (dataBytes[i] ^ keyBytes[i % keyBytes.length]);
-            }
-
-            String encoded = Base64.encodeToString(result, Base64.NO_WRAP);
-            Log.d(TAG, "[XOR] Encrypted data length: " + data.length() + " -> " + encoded.length());
-            return encoded;
-        } catch (Exception e) {
-            Log.e(TAG, "[XOR] Encryption failed: " + e.getMessage());
-            return data;
-        }
-    }
-
-    /**
-     * XOR decrypt data (same as encrypt for XOR)
-     * Input is Base64 encoded
-     */
-    private String xorDecrypt(String encodedData, String key) {
-        if (encodedData == null || encodedData.isEmpty() || key == null || key.isEmpty()) {
-            Log.e(TAG, "[XOR] Invalid encoded data or key");
-            return encodedData;
-        }
-
-        try {
-            byte[] dataBytes = Base64.decode(encodedData, Base64.NO_WRAP);
-            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
-            byte[] result = new byte[dataBytes.length];
-
-            for (int i = 0; i < dataBytes.length; i++) {
-                result[i] = (byte) (dataBytes[i] ^ keyBytes[i % keyBytes.length]);
-            }
-
-            String decrypted = new String(result, StandardCharsets.UTF_8);
-            Log.d(TAG, "[XOR] Decrypted data length: " + encodedData.length() + " -> " + decrypted.length());
-            return decrypted;
-        } catch (Exception e) {
-            Log.e(TAG, "[XOR] Decryption failed: " + e.getMessage());
-            return encodedData;
-        }
-    }
-
     // ==================== AES ENCRYPTION ====================
 
     /**
@@ -1282,18 +1358,24 @@ public class LicenseClient {
     public static class LicenseResult {
         public final boolean success;
         public final String message;
+        public final boolean retryable;     // Failed without a server verdict (IO error, timeout)
 
-        private LicenseResult(boolean success, String message) {
+        private LicenseResult(boolean success, String message, boolean retryable) {
             this.success = success;
             this.message = message;
+            this.retryable = retryable;
         }
 
         public static LicenseResult success(String message) {
-            return new LicenseResult(true, message);
+            return new LicenseResult(true, message, false);
         }
 
         public static LicenseResult failure(String message) {
-            return new LicenseResult(false, message);
+            return new LicenseResult(false, message, false);
+        }
+
+        public static LicenseResult retryable(String message) {
+            return new LicenseResult(false, message, true);
         }
     }
 }
@@ -1,24 +1,45 @@
 package com.example.hotfixinjector;
 
 import android.content.Context;
+import android.os.FileObserver;
 import android.os.Process;
 import android.util.Log;
 
+import java.io.File;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * License Guard - Continuously verifies license every 5 MINUTES
+ * License Guard - Re-verifies the license file whenever it CHANGES
+ * or when its expiry boundary arrives (no polling thread)
  * If verification fails, crashes the target application IMMEDIATELY
  */
 public class LicenseGuard {
 
     private static final String TAG = "LicenseGuard";
-    private static final int VERIFICATION_INTERVAL = 300000; // 5 minutes (300 seconds)
+
+    // Only react to completed writes / renames / removals - MODIFY fires mid-copy on a half-written file
+    private static final int WATCH_MASK = FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO | FileObserver.DELETE;
+
+    // su copy produces a burst of events; revalidate once after it settles
+    private static final long EVENT_DEBOUNCE_MS = 500;
+
+    // Backstop for the expiry timer: the scheduler clock stops in deep sleep (6 hours)
+    private static final long MAX_EXPIRY_CHECK_DELAY_MS = 6 * 60 * 60 * 1000;
+
+    // Without a watch a rewritten license is only noticed by polling (5 minutes, as before the watch)
+    private static final long UNWATCHED_CHECK_DELAY_MS = 5 * 60 * 1000;
 
     private static LicenseGuard instance;
     private final LicenseClient licenseClient;
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
-    private Thread guardThread;
+    private final AtomicInteger revalidationCount = new AtomicInteger(0);
+    private FileObserver licenseObserver;
+    private volatile boolean watching;
+    private ScheduledFuture<?> pendingEventCheck;
+    private ScheduledFuture<?> pendingExpiryCheck;
     private Context targetContext;
     private LicenseClient.LicenseData licenseData;
 
@@ -52,118 +73,192 @@ public class LicenseGuard {
     }
 
     /**
-     * Start license verification loop
+     * Start license guard
      * This should be called AFTER successful initial activation
      */
     public void startGuard(Context targetContext) {
-        if (isRunning.get()) {
+        if (!isRunning.compareAndSet(false, true)) {
             Log.w(TAG, "Guard already running");
             return;
         }
 
         this.targetContext = targetContext;
-        isRunning.set(true);
 
-        guardThread = new Thread(new Runnable() {
+        Log.i(TAG, "🛡️ License Guard started - verifying on file change and expiry");
+
+        // Before the first check, so its expiry timer already knows whether to poll
+        startWatching();
+
+        // IMMEDIATE VERIFICATION ON START
+        SharedScheduler.get().execute(new Runnable() {
             @Override
             public void run() {
-                Log.i(TAG, "🛡️ License Guard started - verifying every 5 MINUTES");
-
-                int failureCount = 0;
-                final int MAX_FAILURES = 1; // ⚡ STRONG: Crash on FIRST failure!
-
-                // IMMEDIATE VERIFICATION ON START (no sleep first)
-                try {
-                    Log.i(TAG, "🔍 IMMEDIATE verification on app start...");
-
-                    // ⚡ OFFLINE ONLY - Target app doesn't have INTERNET permission!
-                    // Just read from file - Background Guard handles HTTP requests
-                    LicenseClient.LicenseResult result = licenseClient.verifyOffline();
-
-                    if (result.success) {
-                        Log.i(TAG, "✅ Initial license verification SUCCESS");
-                        failureCount = 0;
-                    } else {
-                        failureCount++;
-                        Log.e(TAG, "❌ Initial license verification FAILED: " + result.message);
-
-                        if (failureCount >= MAX_FAILURES) {
-                            Log.e(TAG, "💣 INITIAL VERIFICATION FAILED - TERMINATING APPLICATION");
-                            crashApplication("Initial verification failed: " + result.message);
-                            return;
-                        }
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "❌ Initial verification exception: " + e.getMessage());
-                    failureCount++;
+                revalidate("start");
+            }
+        });
+    }
 
-                    if (failureCount >= MAX_FAILURES) {
-                        crashApplication("Initial verification error: " + e.getMessage());
-                        return;
-                    }
-                }
+    /**
+     * Watch the license directory (not the file itself) so the watch survives the file being
+     * removed and written again by the module app
+     * FileObserver does not report a failed inotify_add_watch, and the target app's SELinux domain
+     * may not be allowed to read /data/adb - a directory it cannot read cannot be watched either,
+     * so that case is counted and the guard falls back to polling
+     */
+    private synchronized void startWatching() {
+        File licenseFile = new File(LicenseClient.LICENSE_FILE);
+        final String licenseName = licenseFile.getName();
+        File licenseDir = licenseFile.getParentFile();
+
+        if (licenseDir == null || !licenseDir.isDirectory() || !licenseDir.canRead()) {
+            Metrics.increment(Metrics.GUARD_WATCH_FAILURES);
+            Log.w(TAG, "⚠️ Cannot watch " + licenseDir + " - polling every " + (UNWATCHED_CHECK_DELAY_MS / 1000) + "s");
+            return;
+        }
 
-                // PERIODIC VERIFICATION LOOP (every 5 MINUTES)
-                while (isRunning.get()) {
-                    try {
-                        Thread.sleep(VERIFICATION_INTERVAL);
-
-                        Log.d(TAG, "🔍 Periodic verification...");
-
-                        // ⚡ OFFLINE ONLY - Target app doesn't have INTERNET permission!
-                        // Just read from file - Background Guard handles HTTP requests
-                        LicenseClient.LicenseResult result = licenseClient.verifyOffline();
-
-                        if (result.success) {
-                            Log.d(TAG, "✅ License valid");
-                            failureCount = 0; // Reset failure count
-                        } else {
-                            failureCount++;
-                            Log.e(TAG, "❌ License verification failed (" + failureCount + "/" + MAX_FAILURES + "): " + result.message);
-
-                            if (failureCount >= MAX_FAILURES) {
-                                Log.e(TAG, "💣 MAXIMUM FAILURES REACHED - TERMINATING APPLICATION");
-                                crashApplication("License verification failed: " + result.message);
-                                break;
-                            }
-                        }
-
-                    } catch (InterruptedException e) {
-                        Log.w(TAG, "Guard thread interrupted");
-                        break;
-                    } catch (Exception e) {
-                        Log.e(TAG, "Guard exception: " + e.getMessage());
-                        failureCount++;
-
-                        if (failureCount >= MAX_FAILURES) {
-                            crashApplication("Guard error: " + e.getMessage());
-                            break;
-                        }
+        try {
+            licenseObserver = new FileObserver(licenseDir.getPath(), WATCH_MASK) {
+                @Override
+                public void onEvent(int event, String path) {
+                    if (licenseName.equals(path)) {
+                        onLicenseFileChanged();
                     }
                 }
+            };
+            licenseObserver.startWatching();
+            watching = true;
+        } catch (Exception e) {
+            licenseObserver = null;
+            Metrics.increment(Metrics.GUARD_WATCH_FAILURES);
+            Log.w(TAG, "⚠️ Watch failed: " + e.getMessage() + " - polling every " + (UNWATCHED_CHECK_DELAY_MS / 1000) + "s");
+            return;
+        }
+
+        Log.i(TAG, "👀 Watching " + LicenseClient.LICENSE_FILE);
+    }
+
+    private synchronized void onLicenseFileChanged() {
+        if (!isRunning.get()) {
+            return;
+        }
+
+        if (pendingEventCheck != null) {
+            pendingEventCheck.cancel(false);
+        }
+
+        pendingEventCheck = SharedScheduler.get().schedule(new Runnable() {
+            @Override
+            public void run() {
+                revalidate("file changed");
+            }
+        }, EVENT_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Verify license file (OFFLINE - target app doesn't have INTERNET permission!)
+     * Background service in the module app handles HTTP requests and rewrites the file
+     */
+    private void revalidate(String reason) {
+        if (!isRunning.get()) {
+            return;
+        }
+
+        int count = revalidationCount.incrementAndGet();
+        Log.d(TAG, "🔍 Revalidation #" + count + " (" + reason + ")");
+        Metrics.increment(Metrics.GUARD_REVALIDATIONS);
+        long start = System.nanoTime();
 
-                Log.i(TAG, "🛡️ License Guard stopped");
+        try {
+            LicenseClient.LicenseData license = LicenseClient.readLicenseFromFile();
+            LicenseClient.LicenseResult result = licenseClient.verifyOffline(license);
+            Metrics.record(Metrics.GUARD_REVALIDATE_MS, (System.nanoTime() - start) / 1000000);
+
+            if (result.success) {
+                Log.d(TAG, "✅ License valid");
+                scheduleExpiryCheck(license);
+            } else {
+                // ⚡ STRONG: Crash on FIRST failure!
+                Metrics.increment(Metrics.GUARD_FAILURES);
+                Log.e(TAG, "💣 LICENSE VERIFICATION FAILED - TERMINATING APPLICATION: " + result.message);
+                // Past the offline grace the license itself is still good - keep it for the next online check
+                boolean offline = license != null && license.isOfflineTooLong();
+                terminate("License verification failed: " + result.message, !offline);
             }
-        }, "LicenseGuardThread");
+        } catch (Exception e) {
+            Log.e(TAG, "Guard exception: " + e.getMessage());
+            Metrics.increment(Metrics.GUARD_FAILURES);
+            terminate("Guard error: " + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Arm a single timer for the moment the license expires or its offline grace ends (estimated server time)
+     */
+    private synchronized void scheduleExpiryCheck(LicenseClient.LicenseData license) {
+        if (!isRunning.get()) {
+            return;
+        }
+
+        if (pendingExpiryCheck != null) {
+            pendingExpiryCheck.cancel(false);
+        }
 
-        guardThread.setDaemon(true);
-        guardThread.start();
+        long delay = watching ? MAX_EXPIRY_CHECK_DELAY_MS : UNWATCHED_CHECK_DELAY_MS;
+        long serverNow = license.getEstimatedServerTime();
+        if (license.expiresAt > 0) {
+            delay = Math.min(delay, license.expiresAt - serverNow + 1000);
+        }
+        long offlineDeadline = license.getOfflineDeadline();
+        if (offlineDeadline > 0) {
+            delay = Math.min(delay, offlineDeadline - serverNow + 1000);
+        }
+        delay = Math.max(0, delay);
+
+        pendingExpiryCheck = SharedScheduler.get().schedule(new Runnable() {
+            @Override
+            public void run() {
+                revalidate("expiry check");
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+
+        Log.d(TAG, "⏰ Next expiry check in " + (delay / 1000) + "s");
     }
 
     /**
-     * Stop license verification loop
+     * Crash from a fresh thread - an exception thrown inside a scheduled task
+     * would be captured by its Future instead of killing the process
      */
-    public void stopGuard() {
+    private void terminate(final String reason, final boolean clearLicense) {
+        stopGuard();
+
+        Thread crashThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                crashApplication(reason, clearLicense);
+            }
+        }, "LicenseGuardCrash");
+        crashThread.start();
+    }
+
+    /**
+     * Stop license guard
+     */
+    public synchronized void stopGuard() {
         Log.i(TAG, "Stopping License Guard...");
         isRunning.set(false);
+        watching = false;
 
-        if (guardThread != null) {
-            guardThread.interrupt();
-            try {
-                guardThread.join(1000);
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Failed to stop guard thread");
-            }
+        if (licenseObserver != null) {
+            licenseObserver.stopWatching();
+            licenseObserver = null;
+        }
+        if (pendingEventCheck != null) {
+            pendingEventCheck.cancel(false);
+            pendingEventCheck = null;
+        }
+        if (pendingExpiryCheck != null) {
+            pendingExpiryCheck.cancel(false);
+            pendingExpiryCheck = null;
         }
     }
 
@@ -171,13 +266,15 @@ public class LicenseGuard {
      * Crash the target application
      * This will forcefully terminate the scoped app
      */
-    private void crashApplication(String reason) {
+    private void crashApplication(String reason, boolean clearLicense) {
         Log.e(TAG, "💥💥💥 CRASHING APPLICATION 💥💥💥");
         Log.e(TAG, "Reason: " + reason);
 
         // Clear license data so user must re-activate
-        licenseClient.clearLicense();
-        Log.e(TAG, "🗑️ License data cleared");
+        if (clearLicense) {
+            licenseClient.clearLicense();
+            Log.e(TAG, "🗑️ License data cleared");
+        }
 
         try {
             // Method 1: Kill the process
@@ -212,6 +309,21 @@ public class LicenseGuard {
         return isRunning.get();
     }
 
+    /**
+     * Number of times the guard woke up to verify (start + file events + expiry timers)
+     * Stays flat while the license file is untouched, unless the watch failed (see isWatching)
+     */
+    public int getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    /**
+     * Whether file changes wake the guard - false means it polls every 5 minutes
+     */
+    public boolean isWatching() {
+        return watching;
+    }
+
     /**
      * Force immediate verification (OFFLINE - just reads file)
      */
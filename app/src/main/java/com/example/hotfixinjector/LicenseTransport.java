@@ -0,0 +1,205 @@
+package com.example.hotfixinjector;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP transport for the license API
+ * Keeps connections alive between requests, gzips large request bodies
+ * and reads responses as raw bytes
+ * Every Response carries its connect/TTFB times and the worker's Server-Timing header
+ */
+final class LicenseTransport {
+
+    private static final String TAG = "LicenseTransport";
+    private static final int TIMEOUT_MS = 10000;
+
+    // Below this the gzip header and trailer cost more than deflate saves
+    static final int GZIP_MIN_BYTES = 1024;
+
+    private final String baseUrl;
+
+    LicenseTransport(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * POST a JSON body and return the raw response
+     */
+    Response post(String endpoint, final byte[] body, final int length) throws IOException {
+        return post(endpoint, new Body() {
+            @Override
+            public int length() {
+                return length;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(body, 0, length);
+            }
+        });
+    }
+
+    /**
+     * POST a body written straight into the connection and return the raw response
+     * The connection is never disconnect()ed - the fully read and closed stream
+     * hands the socket back to the keep-alive pool for the next call
+     */
+    Response post(String endpoint, Body body) throws IOException {
+        URL url = new URL(baseUrl + endpoint);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setRequestProperty("User-Agent", "HotfixInjector/1.0");
+        // Set explicitly so the response is decoded here the same way on every platform
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        conn.setDoOutput(true);
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+
+        int length = body.length();
+        boolean gzip = length >= GZIP_MIN_BYTES;
+        if (gzip) {
+            // Compressed size is unknown up front - stream it chunked
+            conn.setRequestProperty("Content-Encoding", "gzip");
+            conn.setChunkedStreamingMode(0);
+            Log.d(TAG, "[HTTP] Request body gzipped (" + length + " bytes uncompressed)");
+        } else {
+            conn.setFixedLengthStreamingMode(length);
+        }
+
+        // Connect explicitly so DNS + TCP + TLS is timed on its own - ~0 on a reused connection
+        long started = System.nanoTime();
+        conn.connect();
+        long connected = System.nanoTime();
+
+        OutputStream os = conn.getOutputStream();
+        try {
+            if (gzip) {
+                os = new GZIPOutputStream(os);
+            }
+            body.writeTo(os);
+        } finally {
+            os.close();
+        }
+
+        // TTFB: request sent -> response headers in (network + worker time)
+        int responseCode = conn.getResponseCode();
+        long firstByte = System.nanoTime();
+        String serverTiming = conn.getHeaderField("Server-Timing");
+
+        InputStream in = (responseCode >= 200 && responseCode < 300)
+            ? conn.getInputStream()
+            : conn.getErrorStream();
+
+        Response response;
+        if (in == null) {
+            response = new Response(responseCode, new byte[0], 0);
+        } else {
+            try {
+                if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+                    in = new GZIPInputStream(in);
+                }
+                response = readResponse(responseCode, in, conn.getContentLength());
+            } finally {
+                in.close();
+            }
+        }
+
+        response.connectNanos = connected - started;
+        response.ttfbNanos = firstByte - connected;
+        response.serverTiming = serverTiming;
+        return response;
+    }
+
+    /**
+     * One spare byte past Content-Length, so an exact-length body hits -1 without the buffer
+     * ever growing; it only grows for chunked or gzipped bodies larger than the guess
+     */
+    private static Response readResponse(int code, InputStream in, int contentLength) throws IOException {
+        byte[] buffer = new byte[contentLength >= 0 ? contentLength + 1 : 4096];
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+            if (length == buffer.length) {
+                byte[] grown = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+        }
+        return new Response(code, buffer, length);
+    }
+
+    /**
+     * Request body of known length, written directly to the connection stream
+     */
+    interface Body {
+        int length();
+
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Response bytes as received (after gzip decoding)
+     */
+    static final class Response {
+        final int code;
+        final byte[] body;
+        final int length;
+
+        long connectNanos;
+        long ttfbNanos;
+        String serverTiming;    // Raw Server-Timing header, null if the worker sent none
+
+        Response(int code, byte[] body, int length) {
+            this.code = code;
+            this.body = body;
+            this.length = length;
+        }
+
+        String bodyAsString() {
+            return new String(body, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Sum of the Server-Timing durations whose name starts with the prefix, in ms (-1 = none)
+         * "d1-" adds up every D1 query, "total" is the worker's handler time
+         */
+        long serverTimingMillis(String namePrefix) {
+            if (serverTiming == null) {
+                return -1;
+            }
+
+            double total = 0;
+            boolean found = false;
+            for (String metric : serverTiming.split(",")) {
+                String[] params = metric.split(";");
+                if (!params[0].trim().startsWith(namePrefix)) {
+                    continue;
+                }
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim();
+                    if (param.startsWith("dur=")) {
+                        try {
+                            total += Double.parseDouble(param.substring(4));
+                            found = true;
+                        } catch (NumberFormatException e) {
+                            // Malformed entry - skip it
+                        }
+                    }
+                }
+            }
+            return found ? Math.round(total) : -1;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.hotfixinjector;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.Random;
+
+/**
+ * Online license verification driven by JobScheduler
+ * Runs only with network, when the last server result is getting stale,
+ * and backs off exponentially (with jitter) after failures that got no server verdict
+ * A rejection is final: LicenseClient has already marked or removed the license file,
+ * so retrying sooner would only repeat the same answer
+ * This runs in the MODULE app context (has INTERNET permission)
+ */
+public class LicenseVerificationJob extends JobService {
+
+    private static final String TAG = "LicenseJob";
+    private static final int JOB_ID = 0x4846; // "HF"
+
+    private static final String PREFS_NAME = "license_prefs";
+    private static final String KEY_FAILURES = "verify_failures";
+    // Written by LicenseClient on every successful verification, even when the file is not rewritten
+    private static final String KEY_LAST_CHECK_CLIENT = "last_check_client";
+
+    // Bounds for the regular (successful) schedule
+    private static final long MIN_INTERVAL_MS = 5 * 60 * 1000;   // 5 minutes
+    private static final long MAX_INTERVAL_MS = 60 * 60 * 1000;  // 1 hour (no server suggestion)
+
+    // Upper bound for a server-suggested interval (next_check_ms), whatever the server sends
+    private static final long MAX_SERVER_INTERVAL_MS = 24 * 60 * 60 * 1000;
+
+    // Failure backoff: 30s, 1m, 2m, ... capped at MAX_INTERVAL_MS
+    private static final long BACKOFF_BASE_MS = 30 * 1000;
+
+    private static final Random jitter = new Random();
+
+    /**
+     * (Re)schedule the next verification based on the saved license file
+     * Replaces any pending job, so calling this repeatedly never stacks work
+     */
+    public static void schedule(Context context) {
+        LicenseClient.LicenseData license = LicenseClient.readLicenseFromFile();
+        if (license == null) {
+            Log.w(TAG, "⏰ No license file - cancelling verification job");
+            cancel(context);
+            return;
+        }
+
+        SharedPreferences prefs = getPrefs(context);
+        int failures = prefs.getInt(KEY_FAILURES, 0);
+        long lastCheck = Math.max(license.lastCheck, prefs.getLong(KEY_LAST_CHECK_CLIENT, 0));
+        long interval = prefs.getLong(LicenseClient.KEY_NEXT_CHECK, 0);
+        long delay = failures > 0 ? getBackoffDelay(failures) : getRefreshDelay(license, lastCheck, interval);
+        scheduleIn(context, delay);
+    }
+
+    public static void cancel(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler != null) {
+            scheduler.cancel(JOB_ID);
+        }
+    }
+
+    private static void scheduleIn(Context context, long delayMs) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null) {
+            Log.e(TAG, "❌ JobScheduler is null!");
+            return;
+        }
+
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, LicenseVerificationJob.class))
+            .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+            .setMinimumLatency(delayMs)
+            .setPersisted(true)
+            .build();
+
+        int result = scheduler.schedule(job);
+        Log.i(TAG, "⏰ Next verification in " + (delayMs / 1000) + "s (network required)" +
+            (result == JobScheduler.RESULT_SUCCESS ? "" : " - schedule FAILED"));
+    }
+
+    /**
+     * The interval the server suggested (next_check_ms, jittered server-side) after the last check,
+     * but no later than half of what remains of the server validity window
+     * Verifying at the midpoint leaves room for a failed attempt plus backoff before it closes
+     * Without a suggestion checks are at most 1 hour apart; never less than 5 minutes
+     * lastCheck is the last successful verification (CLIENT time), which may be newer than the file's
+     */
+    static long getRefreshDelay(LicenseClient.LicenseData license, long lastCheck, long suggestedInterval) {
+        long sinceLastCheck = System.currentTimeMillis() - lastCheck;
+
+        long byWindow = 0;
+        long windowEnd = license.getValidityWindowEnd();
+        if (windowEnd > 0) {
+            byWindow = (windowEnd - license.getEstimatedServerTime()) / 2;
+        }
+
+        long interval = suggestedInterval > 0 ? Math.min(suggestedInterval, MAX_SERVER_INTERVAL_MS) : MAX_INTERVAL_MS;
+        long delay = Math.min(byWindow, interval - sinceLastCheck);
+        return Math.max(0, Math.max(delay, MIN_INTERVAL_MS - sinceLastCheck));
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": uniformly in [delay/2, delay]
+     * Spreads a fleet that failed together (server outage) instead of retrying in lockstep
+     */
+    static long getBackoffDelay(int failures) {
+        int shift = Math.min(failures - 1, 16);
+        long delay = Math.min(BACKOFF_BASE_MS << shift, MAX_INTERVAL_MS);
+        long half = delay / 2;
+        synchronized (jitter) {
+            return half + (long) (jitter.nextDouble() * half);
+        }
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        // JobService callbacks run on the main thread
+        // Overlapping verifications (UI, boot) are merged by LicenseClient.verify()
+        MetricsReporter.start(this);
+        SharedScheduler.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runVerification(LicenseVerificationJob.this);
+                } finally {
+                    jobFinished(params, false);
+                }
+
+                // After jobFinished - scheduling the same job ID while it runs would stop it
+                schedule(LicenseVerificationJob.this);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Network lost mid-request - the verification reschedules itself when it completes
+        return false;
+    }
+
+    private static void runVerification(Context context) {
+        SharedPreferences prefs = getPrefs(context);
+        try {
+            Log.i(TAG, "🔍 [VERIFY] Starting online verification...");
+
+            LicenseClient.LicenseResult result = new LicenseClient(context).verify();
+
+            if (result.success) {
+                Log.i(TAG, "✅ [VERIFY] SUCCESS - File updated");
+                prefs.edit().putInt(KEY_FAILURES, 0).apply();
+            } else if (result.retryable) {
+                Log.e(TAG, "❌ [VERIFY] FAILED, will back off: " + result.message);
+                prefs.edit().putInt(KEY_FAILURES, prefs.getInt(KEY_FAILURES, 0) + 1).apply();
+            } else {
+                // Server verdict (invalid / burned) - the file already says so; schedule() follows it
+                Log.e(TAG, "❌ [VERIFY] REJECTED: " + result.message);
+                prefs.edit().putInt(KEY_FAILURES, 0).apply();
+            }
+        } catch (Exception e) {
+            // Not a network failure, so backing off would not help - keep the regular schedule
+            Log.e(TAG, "❌ [VERIFY] Exception: " + e.getMessage(), e);
+            prefs.edit().putInt(KEY_FAILURES, 0).apply();
+        }
+    }
+}
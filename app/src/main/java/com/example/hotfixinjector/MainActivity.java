@@ -3,15 +3,21 @@ package com.example.hotfixinjector;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.RadialGradient;
+import android.graphics.RectF;
 import android.graphics.Shader;
 import android.graphics.Typeface;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Bundle;
 import android.os.Handler;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
@@ -26,14 +32,21 @@ import android.widget.LinearLayout;
 import android.widget.ScrollView;
 import android.widget.TextView;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
 
 public class MainActivity extends Activity {
 
 	private FireParticleView fireView;  
 	private Handler handler = new Handler();  
+	private TextView metricsText;
+	private SharedPreferences.OnSharedPreferenceChangeListener metricsListener;
+	private TextView inventoryText;
+	private boolean inventoryScanning;
+
+	// Rescan on resume at most this often - tap the card to force one
+	private static final long INVENTORY_RESCAN_MS = 60 * 1000;
 
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
@@ -53,13 +66,70 @@ public class MainActivity extends Activity {
 		}
 		// ==================== LICENSE OK ====================
 
-		// 🚀 Start Background License Service (sends request to server every 5 minutes)
+		// 🚀 Start Background License Service (schedules network-constrained verification)
 		Intent serviceIntent = new Intent(this, BackgroundLicenseService.class);
 		startService(serviceIntent);
 
+		MetricsReporter.start(this);
 		createUI();
 	}  
 
+	@Override
+	protected void onResume() {
+		super.onResume();
+		if (metricsText == null) return;
+
+		// Snapshots land in metrics_prefs (MetricsReceiver) - redraw when one arrives
+		metricsListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+			@Override
+			public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+				// Metrics snapshot or injection outcome - both cards read these prefs
+				refreshMetrics();
+				showInventory(HotfixInventory.loadCached(MainActivity.this));
+			}
+		};
+		getSharedPreferences(MetricsReporter.PREFS_NAME, MODE_PRIVATE)
+			.registerOnSharedPreferenceChangeListener(metricsListener);
+		getSharedPreferences(HotfixInventory.PREFS_NAME, MODE_PRIVATE)
+			.registerOnSharedPreferenceChangeListener(metricsListener);
+		refreshMetrics();
+
+		// Cached index first, then an incremental rescan if it is stale
+		HotfixIndex cached = HotfixInventory.loadCached(this);
+		showInventory(cached);
+		if (cached == null || System.currentTimeMillis() - cached.scannedAt > INVENTORY_RESCAN_MS) {
+			scanInventory();
+		}
+	}
+
+	@Override
+	protected void onStart() {
+		super.onStart();
+		if (fireView != null) {
+			fireView.setActivityStarted(true);
+		}
+	}
+
+	@Override
+	protected void onStop() {
+		super.onStop();
+		if (fireView != null) {
+			fireView.setActivityStarted(false);
+		}
+	}
+
+	@Override
+	protected void onPause() {
+		super.onPause();
+		if (metricsListener != null) {
+			getSharedPreferences(MetricsReporter.PREFS_NAME, MODE_PRIVATE)
+				.unregisterOnSharedPreferenceChangeListener(metricsListener);
+			getSharedPreferences(HotfixInventory.PREFS_NAME, MODE_PRIVATE)
+				.unregisterOnSharedPreferenceChangeListener(metricsListener);
+			metricsListener = null;
+		}
+	}
+
 	@Override  
 	protected void onDestroy() {  
 		super.onDestroy();  
@@ -104,6 +174,8 @@ public class MainActivity extends Activity {
 
 		content.addView(createHeader());  
 		content.addView(createStatusCard());  
+		content.addView(createMetricsCard());
+		content.addView(createInventoryCard());
 		content.addView(createCard(  
 							"Step 1: Enable Module",  
 							"• Open LSPosed Manager\n" +  
@@ -133,7 +205,8 @@ public class MainActivity extends Activity {
 							"• Compile your code to .dex\n" +  
 							"• Copy DEX files to hotfix folder\n" +  
 							"• Make sure permissions are correct\n" +  
-							"• Example: patch.dex, hook.dex",  
+							"• Example: patch.dex, hook.dex\n" +
+							"• Or one bundle: hotfix.hfb (manifest + dex)",  
 							"#8800ff"  
 						));  
 		content.addView(createCard(
@@ -384,6 +457,193 @@ public class MainActivity extends Activity {
 		return card;  
 	}  
 
+	private LinearLayout createMetricsCard() {
+		LinearLayout card = createCard("📊 Live Metrics", "", "#ffaa00");
+		metricsText = (TextView) card.getChildAt(1);
+		metricsText.setTypeface(Typeface.MONOSPACE);
+		metricsText.setTextSize(12);
+
+		// Long press resets - snapshots are cumulative per process, so old ones never go away by themselves
+		card.setOnLongClickListener(new View.OnLongClickListener() {
+				@Override
+				public boolean onLongClick(View v) {
+					MetricsReporter.clear(MainActivity.this);
+					return true;
+				}
+			});
+		return card;
+	}
+
+	private void refreshMetrics() {
+		Map<String, long[]> metrics = MetricsReporter.load(this);
+		if (metrics.isEmpty()) {
+			// Reports are accepted from packages in the last inventory scan (any, before the first one)
+			metricsText.setText("No data yet - launch a scoped app\n"
+				+ "Apps with a hotfix added since the last scan report after a rescan;\n"
+				+ "on Android 11+ only apps that can see this module report\n(long press to reset)");
+			return;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, long[]> entry : metrics.entrySet()) {
+			long[] m = entry.getValue();
+			if (sb.length() > 0) sb.append("\n\n");
+			sb.append(entry.getKey());
+
+			if (m[Metrics.INJECT_ATTEMPTS] > 0) {
+				sb.append(String.format(Locale.US, "\ninject  %d ok · %d blocked · %d none · %d failed",
+					m[Metrics.INJECT_OK], m[Metrics.INJECT_LICENSE_BLOCKED],
+					m[Metrics.INJECT_NO_HOTFIX], m[Metrics.INJECT_FAILED]));
+				appendLatency(sb, "verdict", m, Metrics.LICENSE_VERDICT_MS);
+				appendLatency(sb, "inject ", m, Metrics.INJECT_MS);
+			}
+
+			long httpErrors = m[Metrics.HTTP_ERROR_TIMEOUT] + m[Metrics.HTTP_ERROR_NETWORK]
+				+ m[Metrics.HTTP_ERROR_STATUS] + m[Metrics.HTTP_ERROR_PROTOCOL];
+			if (m[Metrics.HTTP_OK] + httpErrors > 0) {
+				sb.append(String.format(Locale.US, "\nhttp    %d ok · %d timeout · %d network · %d status · %d protocol",
+					m[Metrics.HTTP_OK], m[Metrics.HTTP_ERROR_TIMEOUT], m[Metrics.HTTP_ERROR_NETWORK],
+					m[Metrics.HTTP_ERROR_STATUS], m[Metrics.HTTP_ERROR_PROTOCOL]));
+				appendLatency(sb, "rtt    ", m, Metrics.HTTP_RTT_MS);
+				appendLatency(sb, " conn  ", m, Metrics.HTTP_CONNECT_MS);
+				appendLatency(sb, " ttfb  ", m, Metrics.HTTP_TTFB_MS);
+				appendLatency(sb, "  net  ", m, Metrics.HTTP_NETWORK_MS);
+				appendLatency(sb, "  srv  ", m, Metrics.SERVER_TOTAL_MS);
+				appendLatency(sb, "  d1   ", m, Metrics.SERVER_D1_MS);
+				appendLatency(sb, " decode", m, Metrics.HTTP_DECODE_MS);
+			}
+
+			if (m[Metrics.GUARD_REVALIDATIONS] > 0) {
+				sb.append(String.format(Locale.US, "\nguard   %d checks · %d failed · %d unwatched",
+					m[Metrics.GUARD_REVALIDATIONS], m[Metrics.GUARD_FAILURES], m[Metrics.GUARD_WATCH_FAILURES]));
+				appendLatency(sb, "check  ", m, Metrics.GUARD_REVALIDATE_MS);
+			}
+		}
+		metricsText.setText(sb.toString());
+	}
+
+	private static void appendLatency(StringBuilder sb, String label, long[] m, int histogram) {
+		if (Metrics.count(m, histogram) == 0) return;
+		sb.append(String.format(Locale.US, "\n%s p50 %s · p95 %s · avg %dms",
+			label,
+			formatBucket(Metrics.percentile(m, histogram, 0.50)),
+			formatBucket(Metrics.percentile(m, histogram, 0.95)),
+			Metrics.mean(m, histogram)));
+	}
+
+	private static String formatBucket(long bound) {
+		return bound < 0 ? ">10s" : "≤" + bound + "ms";
+	}
+
+	private LinearLayout createInventoryCard() {
+		LinearLayout card = createCard("📦 Hotfix Inventory", "", "#44ddff");
+		inventoryText = (TextView) card.getChildAt(1);
+		inventoryText.setTypeface(Typeface.MONOSPACE);
+		inventoryText.setTextSize(12);
+
+		card.setOnClickListener(new View.OnClickListener() {
+				@Override
+				public void onClick(View v) {
+					scanInventory();
+				}
+			});
+		return card;
+	}
+
+	/**
+	 * One root scan on a background thread - unchanged dex files are not hashed again
+	 */
+	private void scanInventory() {
+		if (inventoryScanning || inventoryText == null) return;
+		inventoryScanning = true;
+		if (HotfixInventory.loadCached(this) == null) {
+			inventoryText.setText("Scanning /data/data (root)...");
+		}
+
+		final Context appContext = getApplicationContext();
+		new Thread(new Runnable() {
+				@Override
+				public void run() {
+					HotfixIndex scanned = null;
+					String error = null;
+					try {
+						scanned = HotfixInventory.scan(appContext);
+					} catch (Exception e) {
+						error = e.getMessage();
+					}
+
+					final HotfixIndex index = scanned;
+					final String failure = error;
+					runOnUiThread(new Runnable() {
+							@Override
+							public void run() {
+								inventoryScanning = false;
+								if (index != null) {
+									showInventory(index);
+								} else if (HotfixInventory.loadCached(MainActivity.this) == null) {
+									inventoryText.setText("Scan failed (root?): " + failure + "\n(tap to retry)");
+								}
+							}
+						});
+				}
+			}, "HotfixInventory").start();
+	}
+
+	private void showInventory(HotfixIndex index) {
+		if (inventoryText == null || index == null) return;
+		if (index.packages.isEmpty()) {
+			inventoryText.setText("No hotfix folders found\n(tap to rescan)");
+			return;
+		}
+
+		Map<String, long[]> injections = HotfixInventory.loadInjections(this);
+		long now = System.currentTimeMillis();
+		StringBuilder sb = new StringBuilder();
+		for (HotfixIndex.Entry entry : index.packages.values()) {
+			if (sb.length() > 0) sb.append("\n\n");
+			sb.append(entry.packageName);
+			sb.append(String.format(Locale.US, "\n%d files · %s · %s",
+				entry.dexFiles.size(), formatBytes(entry.totalBytes()), entry.contentHash.substring(0, 12)));
+			for (HotfixIndex.DexFile dex : entry.dexFiles) {
+				sb.append("\n  ").append(dex.name).append("  ").append(formatBytes(dex.size));
+			}
+
+			long[] last = injections.get(entry.packageName);
+			if (last == null) {
+				sb.append("\nlast    not injected yet");
+			} else {
+				sb.append("\nlast    ").append(formatOutcome((int) last[1]))
+					.append(" · ").append(formatAge(now - last[0])).append(" ago");
+			}
+		}
+		sb.append("\n\nscanned ").append(formatAge(now - index.scannedAt)).append(" ago (tap to rescan)");
+		inventoryText.setText(sb.toString());
+	}
+
+	private static String formatOutcome(int outcome) {
+		switch (outcome) {
+			case Metrics.INJECT_OK: return "✅ injected";
+			case Metrics.INJECT_NO_HOTFIX: return "no dex";
+			case Metrics.INJECT_LICENSE_BLOCKED: return "🔒 license blocked";
+			case Metrics.INJECT_FAILED: return "❌ failed";
+			default: return "?";
+		}
+	}
+
+	private static String formatBytes(long bytes) {
+		if (bytes < 1024) return bytes + " B";
+		if (bytes < 1024 * 1024) return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+		return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024));
+	}
+
+	private static String formatAge(long millis) {
+		long seconds = Math.max(0, millis / 1000);
+		if (seconds < 60) return seconds + "s";
+		if (seconds < 3600) return (seconds / 60) + "m";
+		if (seconds < 86400) return (seconds / 3600) + "h";
+		return (seconds / 86400) + "d";
+	}
+
 	private TextView createFireButton(String text) {  
 		TextView btn = new TextView(this);  
 		btn.setText(text);  
@@ -479,173 +739,281 @@ public class MainActivity extends Activity {
 		return btn;
 	}
 
-	private class FireParticleView extends View {  
-		private List<FireParticle> particles;  
-		private Paint paint;  
-		private Handler handler;  
-		private Random random;  
-		private boolean isRunning;  
-		private int screenWidth;  
-		private int screenHeight;  
-
-		public FireParticleView(Context context) {  
-			super(context);  
-			particles = new ArrayList<FireParticle>();  
-			paint = new Paint(Paint.ANTI_ALIAS_FLAG);  
-			handler = new Handler();  
-			random = new Random();  
-			isRunning = true;  
-		}  
+	/**
+	 * Background fire - particles in parallel arrays, one prerendered sprite per color,
+	 * driven by Choreographer and only while the view is attached, shown and the activity started
+	 * Nothing is allocated per frame; update + draw time is logged every few seconds
+	 */
+	private class FireParticleView extends View implements Choreographer.FrameCallback {
+		private static final String TAG = "FireView";
+
+		private static final int MAX_PARTICLES = 96;    // 20 rising + a few bursts of 30
+		private static final int AMBIENT_PARTICLES = 20;
+		private static final int BURST_PARTICLES = 30;
+		private static final int COLORS = 5;
+		private static final int SPRITE_RADIUS = 64;
+		private static final float TICK_NANOS = 16666667f;  // Motion constants are per 60 Hz tick
+		private static final long STATS_INTERVAL_NANOS = 5000000000L;
+
+		// Pool: live particles are 0..count-1, a dead one is swapped with the last
+		private final float[] x = new float[MAX_PARTICLES];
+		private final float[] y = new float[MAX_PARTICLES];
+		private final float[] vx = new float[MAX_PARTICLES];
+		private final float[] vy = new float[MAX_PARTICLES];
+		private final float[] size = new float[MAX_PARTICLES];
+		private final float[] life = new float[MAX_PARTICLES];
+		private final int[] colorType = new int[MAX_PARTICLES];
+		private int count;
+
+		private final Bitmap[] sprites = new Bitmap[COLORS];
+		private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+		private final RectF dst = new RectF();
+		private final Random random = new Random();
+
+		private boolean activityStarted = true;
+		private boolean running;
+		private long lastFrameNanos;
+
+		// Frame-time stats since the last log line
+		private long statsStartNanos;
+		private int statsFrames;
+		private int statsLateFrames;
+		private long statsWorkNanos;
+		private long statsMaxWorkNanos;
+		private long lateFrameNanos = 25000000L;
+
+		public FireParticleView(Context context) {
+			super(context);
+		}
 
-		@Override  
-		protected void onSizeChanged(int w, int h, int oldw, int oldh) {  
-			super.onSizeChanged(w, h, oldw, oldh);  
-			screenWidth = w;  
-			screenHeight = h;  
+		/**
+		 * Called from the activity's onStart/onStop
+		 */
+		void setActivityStarted(boolean started) {
+			activityStarted = started;
+			updateRunning();
+		}
 
-			if (screenWidth > 0 && screenHeight > 0 && !isRunning) {  
-				isRunning = true;  
-				startAnimation();  
-			}  
-		}  
+		public void burst() {
+			int w = getWidth();
+			int h = getHeight();
+			if (w <= 0 || h <= 0) return;
+
+			for (int i = 0; i < BURST_PARTICLES && count < MAX_PARTICLES; i++) {
+				float angle = random.nextFloat() * 360;
+				float speed = 3 + random.nextFloat() * 8;
+				spawn(w / 2f, h / 2f,
+					(float) (Math.cos(Math.toRadians(angle)) * speed),
+					(float) (Math.sin(Math.toRadians(angle)) * speed),
+					15 + random.nextFloat() * 30);
+			}
+			updateRunning();
+		}
 
-		private void startAnimation() {  
-			if (screenWidth <= 0 || screenHeight <= 0) return;  
-
-			handler.post(new Runnable() {  
-					@Override  
-					public void run() {  
-						if (!isRunning || screenWidth <= 0 || screenHeight <= 0) return;  
-
-						if (particles.size() < 20 && random.nextFloat() < 0.4f) {  
-							particles.add(new FireParticle(random.nextInt(screenWidth), screenHeight));  
-						}  
-
-						for (int i = particles.size() - 1; i >= 0; i--) {  
-							FireParticle p = particles.get(i);  
-							p.update();  
-							if (p.isDead()) {  
-								particles.remove(i);  
-							}  
-						}  
-
-						invalidate();  
-						handler.postDelayed(this, 16);  
-					}  
-				});  
-		}  
+		public void stopAnimation() {
+			activityStarted = false;
+			updateRunning();
+		}
 
-		public void burst() {  
-			if (screenWidth <= 0 || screenHeight <= 0) return;  
+		@Override
+		protected void onAttachedToWindow() {
+			super.onAttachedToWindow();
+			Display display = getDisplay();
+			if (display != null && display.getRefreshRate() > 0) {
+				// Late = more than one and a half refresh periods since the previous frame
+				lateFrameNanos = (long) (1.5e9 / display.getRefreshRate());
+			}
+			updateRunning();
+		}
 
-			int centerX = screenWidth / 2;  
-			int centerY = screenHeight / 2;  
+		@Override
+		protected void onDetachedFromWindow() {
+			super.onDetachedFromWindow();
+			updateRunning();
+			for (int i = 0; i < COLORS; i++) {
+				if (sprites[i] != null) {
+					sprites[i].recycle();
+					sprites[i] = null;
+				}
+			}
+		}
 
-			for (int i = 0; i < 30; i++) {  
-				particles.add(new FireParticle(centerX, centerY, true));  
-			}  
-		}  
+		@Override
+		protected void onVisibilityChanged(View changedView, int visibility) {
+			super.onVisibilityChanged(changedView, visibility);
+			updateRunning();
+		}
 
-		public void stopAnimation() {  
-			isRunning = false;  
-			handler.removeCallbacksAndMessages(null);  
-		}  
+		@Override
+		protected void onWindowVisibilityChanged(int visibility) {
+			super.onWindowVisibilityChanged(visibility);
+			updateRunning();
+		}
 
-		@Override  
-		protected void onDraw(Canvas canvas) {  
-			super.onDraw(canvas);  
+		@Override
+		protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+			super.onSizeChanged(w, h, oldw, oldh);
+			updateRunning();
+		}
 
-			for (FireParticle p : particles) {  
-				p.draw(canvas, paint);  
-			}  
-		}  
+		private void updateRunning() {
+			boolean run = activityStarted && isAttachedToWindow() && isShown()
+				&& getWindowVisibility() == VISIBLE && getWidth() > 0 && getHeight() > 0;
+			if (run == running) return;
+
+			running = run;
+			Choreographer choreographer = Choreographer.getInstance();
+			if (run) {
+				lastFrameNanos = 0;
+				statsStartNanos = System.nanoTime();
+				choreographer.postFrameCallback(this);
+			} else {
+				choreographer.removeFrameCallback(this);
+			}
+		}
 
-		private class FireParticle {  
-			float x, y;  
-			float vx, vy;  
-			float size;  
-			float life;  
-			float maxLife;  
-			int colorType;  
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			if (!running) return;
 
-			FireParticle(int startX, int startY) {  
-				this(startX, startY, false);  
-			}  
+			long start = System.nanoTime();
+			// Scale motion to the real frame interval (90/120 Hz displays, dropped frames)
+			float ticks = lastFrameNanos == 0 ? 1f : Math.min((frameTimeNanos - lastFrameNanos) / TICK_NANOS, 3f);
+			if (lastFrameNanos != 0 && frameTimeNanos - lastFrameNanos > lateFrameNanos) {
+				statsLateFrames++;
+			}
+			lastFrameNanos = frameTimeNanos;
 
-			FireParticle(int startX, int startY, boolean burst) {  
-				x = startX;  
-				y = startY;  
-
-				if (burst) {  
-					float angle = random.nextFloat() * 360;  
-					float speed = 3 + random.nextFloat() * 8;  
-					vx = (float)(Math.cos(Math.toRadians(angle)) * speed);  
-					vy = (float)(Math.sin(Math.toRadians(angle)) * speed);  
-					size = 15 + random.nextFloat() * 30;  
-				} else {  
-					vx = (random.nextFloat() - 0.5f) * 3;  
-					vy = -4 - random.nextFloat() * 4;  
-					size = 12 + random.nextFloat() * 25;  
-				}  
+			step(ticks);
+			invalidate();
+			Choreographer.getInstance().postFrameCallback(this);
 
-				maxLife = 1.0f;  
-				life = maxLife;  
-				colorType = random.nextInt(5);  
-			}  
+			statsWorkNanos += System.nanoTime() - start;
+		}
 
-			void update() {  
-				x += vx;  
-				y += vy;  
-				vy -= 0.08f;  
-				vx *= 0.99f;  
-				life -= 0.012f;  
-				size *= 0.97f;  
-			}  
+		private void step(float ticks) {
+			int w = getWidth();
+			int h = getHeight();
 
-			boolean isDead() {  
-				return life <= 0 || y < -150;  
-			}  
+			// Spawn odds per tick were 40% - same rate at any frame rate
+			if (count < AMBIENT_PARTICLES && random.nextFloat() < 1 - (float) Math.pow(0.6, ticks)) {
+				spawn(random.nextInt(w), h,
+					(random.nextFloat() - 0.5f) * 3,
+					-4 - random.nextFloat() * 4,
+					12 + random.nextFloat() * 25);
+			}
 
-			void draw(Canvas canvas, Paint paint) {  
-				float alpha = Math.max(0, Math.min(1, life / maxLife));  
-
-				int centerColor, edgeColor;  
-
-				switch(colorType) {  
-					case 0:  
-						centerColor = Color.argb((int)(255 * alpha), 255, 255, 100);  
-						edgeColor = Color.argb(0, 255, 200, 0);  
-						break;  
-					case 1:  
-						centerColor = Color.argb((int)(255 * alpha), 255, 200, 0);  
-						edgeColor = Color.argb(0, 255, 100, 0);  
-						break;  
-					case 2:  
-						centerColor = Color.argb((int)(255 * alpha), 255, 150, 0);  
-						edgeColor = Color.argb(0, 255, 50, 0);  
-						break;  
-					case 3:  
-						centerColor = Color.argb((int)(255 * alpha), 255, 100, 0);  
-						edgeColor = Color.argb(0, 200, 0, 0);  
-						break;  
-					default:  
-						centerColor = Color.argb((int)(255 * alpha), 255, 50, 0);  
-						edgeColor = Color.argb(0, 150, 0, 0);  
-						break;  
-				}  
+			float drag = (float) Math.pow(0.99, ticks);
+			float shrink = (float) Math.pow(0.97, ticks);
+			for (int i = count - 1; i >= 0; i--) {
+				x[i] += vx[i] * ticks;
+				y[i] += vy[i] * ticks;
+				vy[i] -= 0.08f * ticks;
+				vx[i] *= drag;
+				life[i] -= 0.012f * ticks;
+				size[i] *= shrink;
+
+				if (life[i] <= 0 || y[i] < -150) {
+					remove(i);
+				}
+			}
+		}
 
-				RadialGradient gradient = new RadialGradient(  
-					x, y, size,  
-					centerColor,  
-					edgeColor,  
-					Shader.TileMode.CLAMP  
-				);  
+		private void spawn(float px, float py, float pvx, float pvy, float psize) {
+			if (count == MAX_PARTICLES) return;
+			int i = count++;
+			x[i] = px;
+			y[i] = py;
+			vx[i] = pvx;
+			vy[i] = pvy;
+			size[i] = psize;
+			life[i] = 1f;
+			colorType[i] = random.nextInt(COLORS);
+		}
 
-				paint.setShader(gradient);  
-				canvas.drawCircle(x, y, size, paint);  
-				paint.setShader(null);  
-			}  
-		}  
+		private void remove(int i) {
+			int last = --count;
+			x[i] = x[last];
+			y[i] = y[last];
+			vx[i] = vx[last];
+			vy[i] = vy[last];
+			size[i] = size[last];
+			life[i] = life[last];
+			colorType[i] = colorType[last];
+		}
+
+		@Override
+		protected void onDraw(Canvas canvas) {
+			super.onDraw(canvas);
+			long start = System.nanoTime();
+
+			for (int i = 0; i < count; i++) {
+				Bitmap sprite = sprite(colorType[i]);
+				float r = size[i];
+				dst.set(x[i] - r, y[i] - r, x[i] + r, y[i] + r);
+				// Sprite is drawn at full alpha - life fades it like the old center color did
+				paint.setAlpha((int) (255 * Math.max(0, Math.min(1, life[i]))));
+				canvas.drawBitmap(sprite, null, dst, paint);
+			}
+
+			long work = System.nanoTime() - start;
+			statsWorkNanos += work;
+			statsFrames++;
+			statsMaxWorkNanos = Math.max(statsMaxWorkNanos, work);
+			logFrameStats(start);
+		}
+
+		private void logFrameStats(long now) {
+			if (now - statsStartNanos < STATS_INTERVAL_NANOS || statsFrames == 0) return;
+
+			Log.d(TAG, String.format(Locale.US, "🔥 %d frames, %d particles, update+draw avg %.2fms max %.2fms, %d late",
+				statsFrames, count, statsWorkNanos / 1e6 / statsFrames, statsMaxWorkNanos / 1e6, statsLateFrames));
+			statsStartNanos = now;
+			statsFrames = 0;
+			statsLateFrames = 0;
+			statsWorkNanos = 0;
+			statsMaxWorkNanos = 0;
+		}
+
+		/**
+		 * Radial gradient rendered once per color (was one RadialGradient per particle per frame)
+		 */
+		private Bitmap sprite(int type) {
+			Bitmap sprite = sprites[type];
+			if (sprite != null) return sprite;
+
+			int centerColor, edgeColor;
+			switch (type) {
+				case 0:
+					centerColor = Color.rgb(255, 255, 100);
+					edgeColor = Color.argb(0, 255, 200, 0);
+					break;
+				case 1:
+					centerColor = Color.rgb(255, 200, 0);
+					edgeColor = Color.argb(0, 255, 100, 0);
+					break;
+				case 2:
+					centerColor = Color.rgb(255, 150, 0);
+					edgeColor = Color.argb(0, 255, 50, 0);
+					break;
+				case 3:
+					centerColor = Color.rgb(255, 100, 0);
+					edgeColor = Color.argb(0, 200, 0, 0);
+					break;
+				default:
+					centerColor = Color.rgb(255, 50, 0);
+					edgeColor = Color.argb(0, 150, 0, 0);
+					break;
+			}
+
+			sprite = Bitmap.createBitmap(SPRITE_RADIUS * 2, SPRITE_RADIUS * 2, Bitmap.Config.ARGB_8888);
+			Paint gradientPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+			gradientPaint.setShader(new RadialGradient(SPRITE_RADIUS, SPRITE_RADIUS, SPRITE_RADIUS,
+				centerColor, edgeColor, Shader.TileMode.CLAMP));
+			new Canvas(sprite).drawCircle(SPRITE_RADIUS, SPRITE_RADIUS, SPRITE_RADIUS, gradientPaint);
+			sprites[type] = sprite;
+			return sprite;
+		}
 	}
 
 }
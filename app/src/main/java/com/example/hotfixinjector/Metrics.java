@@ -0,0 +1,168 @@
+package com.example.hotfixinjector;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide metrics: counters and fixed-bucket latency histograms in one AtomicLongArray
+ * Recording is a single lock-free add - no allocation, safe from any thread, including hooks
+ * Every process holds its own values (an injected process = one target package);
+ * a Sink ships a snapshot a few seconds after the first change, never more often
+ * Pure Java, so the host-JVM benchmarks compile it unchanged
+ */
+final class Metrics {
+
+    // Bump when the layout below changes - stored snapshots of another version are dropped
+    static final int VERSION = 3;
+
+    // ==================== COUNTERS ====================
+    static final int INJECT_ATTEMPTS = 0;         // Hotfix folder checked in a scoped app
+    static final int INJECT_OK = 1;
+    static final int INJECT_NO_HOTFIX = 2;        // No folder or no DEX files
+    static final int INJECT_LICENSE_BLOCKED = 3;
+    static final int INJECT_FAILED = 4;
+    static final int HTTP_OK = 5;                 // 2xx
+    static final int HTTP_ERROR_TIMEOUT = 6;
+    static final int HTTP_ERROR_NETWORK = 7;      // Any other IOException (DNS, TLS, reset)
+    static final int HTTP_ERROR_STATUS = 8;       // Non-2xx response
+    static final int HTTP_ERROR_PROTOCOL = 9;     // Broken envelope / unparsable response
+    static final int GUARD_REVALIDATIONS = 10;
+    static final int GUARD_FAILURES = 11;
+    static final int GUARD_WATCH_FAILURES = 12;   // License dir not watchable - guard polls instead
+    static final int COUNTERS = 13;
+
+    // ==================== HISTOGRAMS (ms) ====================
+    static final int LICENSE_VERDICT_MS = 0;      // HookInit: start of offline check -> verdict
+    static final int INJECT_MS = 1;               // HookInit: injectHotfix
+    static final int HTTP_RTT_MS = 2;             // LicenseClient.sendRequest round trip
+    static final int GUARD_REVALIDATE_MS = 3;     // LicenseGuard.revalidate
+    // sendRequest breakdown - client side, then the worker's own Server-Timing
+    static final int HTTP_CONNECT_MS = 4;         // DNS + TCP + TLS (~0 on a kept-alive connection)
+    static final int HTTP_TTFB_MS = 5;            // Request sent -> response headers
+    static final int HTTP_DECODE_MS = 6;          // XOR envelope decode
+    static final int SERVER_TOTAL_MS = 7;         // Server-Timing "total"
+    static final int SERVER_D1_MS = 8;            // Server-Timing "d1-*" summed
+    static final int HTTP_NETWORK_MS = 9;         // TTFB - server total
+    static final int HISTOGRAMS = 10;
+
+    // Bucket upper bounds in ms; one more bucket catches everything above the last
+    static final long[] BUCKET_BOUNDS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+    static final int BUCKETS = BUCKET_BOUNDS.length + 1;
+
+    // Per histogram: BUCKETS counts, then the sum of all recorded values
+    private static final int HISTOGRAM_SIZE = BUCKETS + 1;
+    static final int SIZE = COUNTERS + HISTOGRAMS * HISTOGRAM_SIZE;
+
+    private static final long FLUSH_DELAY_MS = 5000;
+
+    private static final AtomicLongArray values = new AtomicLongArray(SIZE);
+    private static final AtomicBoolean flushPending = new AtomicBoolean(false);
+    private static volatile Sink sink;
+
+    private static final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flushPending.set(false);
+            Sink target = sink;
+            if (target != null) {
+                target.publish(snapshot());
+            }
+        }
+    };
+
+    /**
+     * Receives snapshots (cumulative since process start)
+     */
+    interface Sink {
+        void publish(long[] snapshot);
+    }
+
+    private Metrics() {
+    }
+
+    static void setSink(Sink target) {
+        sink = target;
+        changed();
+    }
+
+    static void increment(int counter) {
+        values.incrementAndGet(counter);
+        changed();
+    }
+
+    static void record(int histogram, long millis) {
+        int base = COUNTERS + histogram * HISTOGRAM_SIZE;
+        values.incrementAndGet(base + bucketOf(millis));
+        values.addAndGet(base + BUCKETS, Math.max(0, millis));
+        changed();
+    }
+
+    static long[] snapshot() {
+        long[] copy = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            copy[i] = values.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Schedule one flush for a burst of changes - the flag makes repeat calls a single read
+     */
+    private static void changed() {
+        if (sink != null && !flushPending.get() && flushPending.compareAndSet(false, true)) {
+            SharedScheduler.get().schedule(flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static int bucketOf(long millis) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (millis <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+
+    // ==================== SNAPSHOT READERS ====================
+
+    static long count(long[] snapshot, int histogram) {
+        int base = COUNTERS + histogram * HISTOGRAM_SIZE;
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += snapshot[base + i];
+        }
+        return total;
+    }
+
+    static long mean(long[] snapshot, int histogram) {
+        long count = count(snapshot, histogram);
+        return count == 0 ? 0 : snapshot[COUNTERS + histogram * HISTOGRAM_SIZE + BUCKETS] / count;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile (-1 = above the last bound)
+     */
+    static long percentile(long[] snapshot, int histogram, double percentile) {
+        int base = COUNTERS + histogram * HISTOGRAM_SIZE;
+        long count = count(snapshot, histogram);
+        long rank = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[base + i];
+            if (seen >= rank && seen > 0) {
+                return i < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[i] : -1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Element-wise sum (snapshots of several processes of one package)
+     */
+    static void add(long[] total, long[] snapshot) {
+        for (int i = 0; i < SIZE; i++) {
+            total[i] += snapshot[i];
+        }
+    }
+}
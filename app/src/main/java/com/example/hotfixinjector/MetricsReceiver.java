@@ -0,0 +1,127 @@
+package com.example.hotfixinjector;
+
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * Receives Metrics snapshots (see MetricsReporter) and injection outcomes (see HotfixInventory)
+ * from injected processes
+ * The receiver has to stay exported - senders are the target apps themselves - so every
+ * broadcast carries a PendingIntent made by the sending process: its creator package is set by
+ * the system and cannot be forged. Broadcasts whose creator is not the claimed package, or whose
+ * package is not in the last hotfix scan, are dropped; before the first scan the creator check alone decides
+ * Android 11+: a sender only reaches this receiver if the module package is visible to it - the target
+ * apps' manifests have no <queries> for the module, so apps without QUERY_ALL_PACKAGES (or another reason
+ * to see it) cannot report. canReachModule() tells, so they skip the broadcast instead of losing it silently
+ */
+public class MetricsReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "MetricsReceiver";
+
+    static final String EXTRA_SENDER = "sender";
+
+    private static final String ACTION_SENDER = "com.example.hotfixinjector.SENDER";
+
+    private static final String MODULE_PACKAGE = "com.example.hotfixinjector";
+
+    // One per process - the identity token never changes
+    private static PendingIntent senderToken;
+
+    // Visibility of the module package to this process, null until checked
+    private static Boolean moduleVisible;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (HotfixInventory.ACTION_INJECTION.equals(intent.getAction())) {
+            String packageName = intent.getStringExtra(HotfixInventory.EXTRA_PACKAGE);
+            if (!isTrustedSender(context, intent, packageName)) {
+                return;
+            }
+            HotfixInventory.storeInjection(
+                context,
+                packageName,
+                intent.getIntExtra(HotfixInventory.EXTRA_OUTCOME, 0),
+                intent.getLongExtra(HotfixInventory.EXTRA_TIME, 0)
+            );
+            return;
+        }
+
+        if (!MetricsReporter.ACTION_METRICS.equals(intent.getAction())) {
+            return;
+        }
+
+        String packageName = intent.getStringExtra(MetricsReporter.EXTRA_PACKAGE);
+        if (!isTrustedSender(context, intent, packageName)) {
+            return;
+        }
+
+        MetricsReporter.store(
+            context,
+            packageName,
+            intent.getIntExtra(MetricsReporter.EXTRA_PID, 0),
+            intent.getIntExtra(MetricsReporter.EXTRA_VERSION, 0),
+            intent.getLongArrayExtra(MetricsReporter.EXTRA_VALUES)
+        );
+    }
+
+    /**
+     * Attach this process's identity token (sender side)
+     */
+    static synchronized void sign(Context context, Intent intent) {
+        if (senderToken == null) {
+            int flags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_IMMUTABLE : 0;
+            senderToken = PendingIntent.getBroadcast(context, 0,
+                new Intent(ACTION_SENDER).setPackage(context.getPackageName()), flags);
+        }
+        intent.putExtra(EXTRA_SENDER, senderToken);
+    }
+
+    /**
+     * Whether broadcasts from this process can be delivered to the module (sender side)
+     * Checked once per process: package visibility does not change while it runs
+     */
+    static synchronized boolean canReachModule(Context context) {
+        if (moduleVisible == null) {
+            moduleVisible = true;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                try {
+                    context.getPackageManager().getPackageInfo(MODULE_PACKAGE, 0);
+                } catch (PackageManager.NameNotFoundException e) {
+                    moduleVisible = false;
+                    Log.w(TAG, "⚠️ Module not visible to " + context.getPackageName()
+                        + " (Android 11 package visibility) - metrics and injection outcomes stay unreported");
+                }
+            }
+        }
+        return moduleVisible;
+    }
+
+    /**
+     * Creator of the attached token is the claimed package, and that package has a hotfix
+     * (if there has been a scan - the index is kept in memory, see HotfixInventory.loadCached)
+     */
+    static boolean isTrustedSender(Context context, Intent intent, String packageName) {
+        if (packageName == null) {
+            return false;
+        }
+
+        PendingIntent token = intent.getParcelableExtra(EXTRA_SENDER);
+        String creator = token != null ? token.getCreatorPackage() : null;
+        if (!packageName.equals(creator)) {
+            Log.w(TAG, "Dropping " + intent.getAction() + " for " + packageName + " sent by " + creator);
+            return false;
+        }
+
+        HotfixIndex index = HotfixInventory.loadCached(context);
+        if (index != null && !index.contains(packageName)) {
+            Log.w(TAG, "Dropping " + intent.getAction() + " for " + packageName + " - not in the hotfix index");
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.hotfixinjector;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ships Metrics snapshots to the module app and keeps them there
+ * Injected processes send one explicit broadcast per flush (MetricsReceiver) - no binder
+ * service, no file the target app would need write access to; the module app's own
+ * process stores its snapshot directly. The receiver checks who sent it (MetricsReceiver.sign)
+ * Stored per package + pid: snapshots are cumulative per process, a package's total is the sum
+ */
+final class MetricsReporter {
+
+    private static final String TAG = "MetricsReporter";
+
+    static final String ACTION_METRICS = "com.example.hotfixinjector.METRICS";
+    static final String EXTRA_PACKAGE = "package";
+    static final String EXTRA_PID = "pid";
+    static final String EXTRA_VERSION = "version";
+    static final String EXTRA_VALUES = "values";
+
+    static final String PREFS_NAME = "metrics_prefs";
+
+    private static final String MODULE_PACKAGE = "com.example.hotfixinjector";
+
+    // Processes kept per device - the oldest entries go first
+    private static final int MAX_ENTRIES = 64;
+
+    private static boolean started;
+
+    private MetricsReporter() {
+    }
+
+    /**
+     * Install the sink for this process (idempotent)
+     */
+    static synchronized void start(Context context) {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        final String packageName = appContext.getPackageName();
+        final int pid = Process.myPid();
+        final boolean isModule = MODULE_PACKAGE.equals(packageName);
+
+        Metrics.setSink(new Metrics.Sink() {
+            @Override
+            public void publish(long[] snapshot) {
+                if (isModule) {
+                    store(appContext, packageName, pid, Metrics.VERSION, snapshot);
+                    return;
+                }
+                if (!MetricsReceiver.canReachModule(appContext)) {
+                    return;
+                }
+
+                Intent intent = new Intent(ACTION_METRICS);
+                intent.setComponent(new ComponentName(MODULE_PACKAGE, MetricsReceiver.class.getName()));
+                intent.addFlags(Intent.FLAG_INCLUDE_STOPPED_PACKAGES);
+                intent.putExtra(EXTRA_PACKAGE, packageName);
+                intent.putExtra(EXTRA_PID, pid);
+                intent.putExtra(EXTRA_VERSION, Metrics.VERSION);
+                intent.putExtra(EXTRA_VALUES, snapshot);
+                try {
+                    MetricsReceiver.sign(appContext, intent);
+                    appContext.sendBroadcast(intent);
+                } catch (Exception e) {
+                    Log.w(TAG, "Metrics broadcast failed: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Save a process snapshot (module app side)
+     * Format: "<time>;<v0>,<v1>,..." under "<package>/<pid>"
+     */
+    static void store(Context context, String packageName, int pid, int version, long[] values) {
+        if (packageName == null || version != Metrics.VERSION || values == null || values.length != Metrics.SIZE) {
+            Log.w(TAG, "Dropping metrics snapshot from " + packageName + " (version " + version + ")");
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder(values.length * 3);
+        sb.append(System.currentTimeMillis()).append(';');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+
+        String key = packageName + "/" + pid;
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = prefs.edit().putString(key, sb.toString());
+
+        // An update of a known process adds no entry - and remove() would win over the putString()
+        Map<String, ?> all = prefs.getAll();
+        if (!all.containsKey(key) && all.size() >= MAX_ENTRIES) {
+            List<Map.Entry<String, ?>> entries = new ArrayList<Map.Entry<String, ?>>(all.entrySet());
+            Collections.sort(entries, new Comparator<Map.Entry<String, ?>>() {
+                @Override
+                public int compare(Map.Entry<String, ?> a, Map.Entry<String, ?> b) {
+                    return Long.compare(storedAt(a.getValue()), storedAt(b.getValue()));
+                }
+            });
+            for (int i = 0; i <= all.size() - MAX_ENTRIES; i++) {
+                editor.remove(entries.get(i).getKey());
+            }
+        }
+        editor.apply();
+    }
+
+    /**
+     * Totals per package, sorted by package name
+     */
+    static Map<String, long[]> load(Context context) {
+        Map<String, long[]> totals = new TreeMap<>();
+        Map<String, ?> all = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getAll();
+        for (Map.Entry<String, ?> entry : all.entrySet()) {
+            long[] values = parse(entry.getValue());
+            if (values == null) {
+                continue;
+            }
+
+            String key = entry.getKey();
+            String packageName = key.substring(0, Math.max(0, key.lastIndexOf('/')));
+            long[] total = totals.get(packageName);
+            if (total == null) {
+                total = new long[Metrics.SIZE];
+                totals.put(packageName, total);
+            }
+            Metrics.add(total, values);
+        }
+        return totals;
+    }
+
+    static void clear(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+
+    private static long storedAt(Object value) {
+        String s = String.valueOf(value);
+        int sep = s.indexOf(';');
+        try {
+            return sep > 0 ? Long.parseLong(s.substring(0, sep)) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long[] parse(Object value) {
+        if (!(value instanceof String)) {
+            return null;
+        }
+        String s = (String) value;
+        String[] parts = s.substring(s.indexOf(';') + 1).split(",");
+        if (parts.length != Metrics.SIZE) {
+            return null;
+        }
+
+        long[] values = new long[Metrics.SIZE];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = Long.parseLong(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return values;
+    }
+}
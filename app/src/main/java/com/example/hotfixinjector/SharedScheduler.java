@@ -0,0 +1,33 @@
+package com.example.hotfixinjector;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Process-wide scheduler for rare, time-based module work
+ * One daemon thread shared by every caller instead of a sleeping thread each
+ */
+final class SharedScheduler {
+
+    private static ScheduledThreadPoolExecutor executor;
+
+    private SharedScheduler() {
+    }
+
+    static synchronized ScheduledExecutorService get() {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "HotfixScheduler");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            // Cancelled expiry checks must not pin their delay queue slot until they would have fired
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor;
+    }
+}
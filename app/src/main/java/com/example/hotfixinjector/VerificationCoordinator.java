@@ -0,0 +1,88 @@
+package com.example.hotfixinjector;
+
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process-wide single-flight for online license operations
+ * Concurrent verify() calls join the request already in flight and share its result,
+ * so one nonce is spent and one file write is made for all of them
+ * Activation and verification run one at a time, so their file writes never interleave
+ */
+final class VerificationCoordinator {
+
+    private static final String TAG = "VerifyCoordinator";
+
+    // Held across read -> request -> write of each operation
+    private static final Object operationLock = new Object();
+
+    private static final Object flightLock = new Object();
+    private static FutureTask<LicenseClient.LicenseResult> inFlight;
+
+    private VerificationCoordinator() {
+    }
+
+    static LicenseClient.LicenseResult verify(final LicenseClient client) {
+        FutureTask<LicenseClient.LicenseResult> task;
+        boolean owner = false;
+
+        synchronized (flightLock) {
+            if (inFlight == null) {
+                inFlight = new FutureTask<LicenseClient.LicenseResult>(new Callable<LicenseClient.LicenseResult>() {
+                    @Override
+                    public LicenseClient.LicenseResult call() {
+                        synchronized (operationLock) {
+                            return client.performVerify();
+                        }
+                    }
+                });
+                owner = true;
+            }
+            task = inFlight;
+        }
+
+        if (owner) {
+            try {
+                task.run();
+            } finally {
+                synchronized (flightLock) {
+                    inFlight = null;
+                }
+            }
+        } else {
+            Log.i(TAG, "🔁 Verification already in flight - joining");
+        }
+
+        return await(task);
+    }
+
+    static LicenseClient.LicenseResult activate(LicenseClient client, String licenseKey) {
+        synchronized (operationLock) {
+            return client.performActivate(licenseKey);
+        }
+    }
+
+    private static LicenseClient.LicenseResult await(FutureTask<LicenseClient.LicenseResult> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    // The shared request keeps running - finish waiting, restore the flag after
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Log.e(TAG, "❌ Verification failed: " + e.getCause());
+            return LicenseClient.LicenseResult.failure("Verification error: " + e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
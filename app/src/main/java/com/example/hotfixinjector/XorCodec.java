@@ -0,0 +1,210 @@
+package com.example.hotfixinjector;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * XOR + Base64 codec for the {"encrypted": "..."} request/response envelope
+ * XOR (rolling key index) and Base64 happen in one pass over reusable buffers -
+ * requests stream straight into the connection, responses decode in place
+ * Byte-identical to xorEncryptDecrypt / xorDecrypt in server/cloudflare-worker.js
+ */
+final class XorCodec {
+
+    private static final byte[] ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+    private static final int[] DECODE = new int[256];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = i;
+        }
+    }
+
+    // Exactly what JSON.stringify({ encrypted }) produces on the worker
+    private static final byte[] ENVELOPE_HEAD = "{\"encrypted\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ENVELOPE_TAIL = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    // Encoder output buffer, a multiple of 4 so a full quantum always fits
+    private static final int CHUNK_SIZE = 4096;
+    private static final ThreadLocal<byte[]> chunk = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[CHUNK_SIZE];
+        }
+    };
+
+    // Key repeated three times: a Base64 quantum (3 bytes) reads key[k..k+2] with one wrap check
+    private final byte[] key;
+    private final int keyLength;
+
+    XorCodec(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        keyLength = keyBytes.length;
+        if (keyLength == 0) {
+            throw new IllegalArgumentException("XOR key is empty");
+        }
+
+        this.key = new byte[keyLength * 3];
+        for (int i = 0; i < 3; i++) {
+            System.arraycopy(keyBytes, 0, this.key, i * keyLength, keyLength);
+        }
+    }
+
+    static int encodedLength(int length) {
+        return (length + 2) / 3 * 4;
+    }
+
+    int envelopeLength(int length) {
+        return ENVELOPE_HEAD.length + encodedLength(length) + ENVELOPE_TAIL.length;
+    }
+
+    /**
+     * Write {"encrypted":"<base64(data ^ key)>"} for data[0, length)
+     */
+    void writeEnvelope(byte[] data, int length, OutputStream out) throws IOException {
+        out.write(ENVELOPE_HEAD);
+        encode(data, length, out);
+        out.write(ENVELOPE_TAIL);
+    }
+
+    /**
+     * XOR data[0, length) with the key and write it Base64 encoded (padded, no line breaks)
+     */
+    void encode(byte[] data, int length, OutputStream out) throws IOException {
+        byte[] buf = chunk.get();
+        byte[] key = this.key;
+        int keyLength = this.keyLength;
+        int pos = 0;
+        int k = 0;
+        int i = 0;
+
+        int full = length - length % 3;
+        while (i < full) {
+            int b0 = (data[i] ^ key[k]) & 0xff;
+            int b1 = (data[i + 1] ^ key[k + 1]) & 0xff;
+            int b2 = (data[i + 2] ^ key[k + 2]) & 0xff;
+            i += 3;
+            k += 3;
+            while (k >= keyLength) k -= keyLength;
+
+            buf[pos++] = ALPHABET[b0 >>> 2];
+            buf[pos++] = ALPHABET[((b0 & 0x03) << 4) | (b1 >>> 4)];
+            buf[pos++] = ALPHABET[((b1 & 0x0f) << 2) | (b2 >>> 6)];
+            buf[pos++] = ALPHABET[b2 & 0x3f];
+
+            if (pos == buf.length) {
+                out.write(buf, 0, pos);
+                pos = 0;
+            }
+        }
+
+        int rest = length - full;
+        if (rest > 0) {
+            int b0 = (data[i] ^ key[k]) & 0xff;
+            buf[pos++] = ALPHABET[b0 >>> 2];
+
+            if (rest == 1) {
+                buf[pos++] = ALPHABET[(b0 & 0x03) << 4];
+                buf[pos++] = '=';
+            } else {
+                int b1 = (data[i + 1] ^ key[k + 1]) & 0xff;
+                buf[pos++] = ALPHABET[((b0 & 0x03) << 4) | (b1 >>> 4)];
+                buf[pos++] = ALPHABET[(b1 & 0x0f) << 2];
+            }
+            buf[pos++] = '=';
+        }
+
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+        }
+    }
+
+    /**
+     * Base64-decode src[off, off + length) and XOR it with the key into dst at dstOff
+     * Safe in place (dst == src, dstOff <= off): output never overtakes input
+     * Returns the number of decoded bytes
+     */
+    int decode(byte[] src, int off, int length, byte[] dst, int dstOff) {
+        byte[] key = this.key;
+        int keyLength = this.keyLength;
+        int[] decode = DECODE;
+
+        int end = off + length;
+        while (end > off && src[end - 1] == '=') {
+            end--;
+        }
+
+        int out = dstOff;
+        int k = 0;
+        int i = off;
+
+        // Any invalid character maps to -1, which makes the whole quantum negative
+        int full = off + ((end - off) & ~3);
+        while (i < full) {
+            int v = decode[src[i] & 0xff] << 18
+                | decode[src[i + 1] & 0xff] << 12
+                | decode[src[i + 2] & 0xff] << 6
+                | decode[src[i + 3] & 0xff];
+            if (v < 0) {
+                throw new IllegalArgumentException("Invalid Base64 character near " + (i - off));
+            }
+            i += 4;
+
+            dst[out] = (byte) ((v >> 16) ^ key[k]);
+            dst[out + 1] = (byte) ((v >> 8) ^ key[k + 1]);
+            dst[out + 2] = (byte) (v ^ key[k + 2]);
+            out += 3;
+            k += 3;
+            while (k >= keyLength) k -= keyLength;
+        }
+
+        int rest = end - i;
+        if (rest == 1) {
+            throw new IllegalArgumentException("Truncated Base64 input");
+        }
+        if (rest > 1) {
+            int v = decode[src[i] & 0xff] << 18 | decode[src[i + 1] & 0xff] << 12;
+            if (rest == 3) {
+                v |= decode[src[i + 2] & 0xff] << 6;
+            }
+            if (v < 0) {
+                throw new IllegalArgumentException("Invalid Base64 character near " + (i - off));
+            }
+
+            dst[out++] = (byte) ((v >> 16) ^ key[k]);
+            if (rest == 3) {
+                dst[out++] = (byte) ((v >> 8) ^ key[k + 1]);
+            }
+        }
+        return out - dstOff;
+    }
+
+    /**
+     * Decrypt an {"encrypted":"..."} response in place in its receive buffer
+     * Returns null if the body is not an envelope (plain error responses)
+     */
+    String decodeEnvelope(byte[] body, int length) {
+        int payloadLength = length - ENVELOPE_HEAD.length - ENVELOPE_TAIL.length;
+        if (payloadLength < 0
+            || !regionMatches(body, 0, ENVELOPE_HEAD)
+            || !regionMatches(body, length - ENVELOPE_TAIL.length, ENVELOPE_TAIL)) {
+            return null;
+        }
+
+        int decoded = decode(body, ENVELOPE_HEAD.length, payloadLength, body, 0);
+        return new String(body, 0, decoded, StandardCharsets.UTF_8);
+    }
+
+    private static boolean regionMatches(byte[] data, int offset, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (data[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.hotfixinjector;
+
+import android.os.Build;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Immutable module state computed once in initZygote and inherited copy-on-write by every
+ * forked app: the device encryption key, the hotfix index and the pathList/dexElements handles
+ * Only device-wide inputs - preinit() takes no Context or package, and nothing here is written
+ * after it returns. Processes that were not forked from a preinitialized zygote (the module app
+ * itself) derive the key on first use and fall back to the per-call lookups for the rest
+ */
+final class ZygoteState {
+
+    // Base seed for encryption key generation
+    private static final String ENCRYPTION_SEED = "HotFix_License_Key_Seed_v1";
+
+    private static volatile boolean preinitialized;
+    private static volatile String deviceKey;
+
+    // Module app's last root scan (null = no index, check every package)
+    private static HotfixIndex hotfixIndex;
+
+    // BaseDexClassLoader.pathList / DexPathList.dexElements, already accessible (null = not resolved)
+    private static Field pathListField;
+    private static Field dexElementsField;
+
+    private ZygoteState() {
+    }
+
+    /**
+     * Call once from initZygote - returns a one-line summary for the log
+     */
+    static synchronized String preinit() {
+        if (preinitialized) {
+            return "already done";
+        }
+
+        long start = System.nanoTime();
+        deviceEncryptionKey();
+        hotfixIndex = HotfixIndex.read(new File(HotfixIndex.INDEX_FILE));
+        pathListField = resolve("dalvik.system.BaseDexClassLoader", "pathList");
+        dexElementsField = resolve("dalvik.system.DexPathList", "dexElements");
+        preinitialized = true;
+
+        return "index " + (hotfixIndex != null ? hotfixIndex.packages.size() + " packages" : "none")
+            + ", field handles " + (pathListField != null && dexElementsField != null ? "ok" : "missing")
+            + " in " + (System.nanoTime() - start) / 1000 + "us";
+    }
+
+    static boolean isPreinitialized() {
+        return preinitialized;
+    }
+
+    static HotfixIndex hotfixIndex() {
+        return hotfixIndex;
+    }
+
+    /**
+     * Preinitialized handle for "pathList" or "dexElements", null for anything else or when the
+     * lookup failed - callers then walk the class hierarchy themselves
+     */
+    static Field dexField(String name) {
+        if ("pathList".equals(name)) {
+            return pathListField;
+        }
+        if ("dexElements".equals(name)) {
+            return dexElementsField;
+        }
+        return null;
+    }
+
+    /**
+     * Device-specific encryption key (32 chars), derived from Build fields only
+     * Same device = same key, so computing it once per zygote is equivalent to once per process
+     */
+    static String deviceEncryptionKey() {
+        String key = deviceKey;
+        if (key == null) {
+            key = deriveDeviceKey();
+            deviceKey = key;
+        }
+        return key;
+    }
+
+    private static String deriveDeviceKey() {
+        // Generate hardware fingerprint
+        StringBuilder hwInfo = new StringBuilder();
+        hwInfo.append(Build.BOARD).append("|");
+        hwInfo.append(Build.BRAND).append("|");
+        hwInfo.append(Build.DEVICE).append("|");
+        hwInfo.append(Build.HARDWARE).append("|");
+        hwInfo.append(Build.MANUFACTURER).append("|");
+        hwInfo.append(Build.MODEL).append("|");
+        hwInfo.append(Build.PRODUCT).append("|");
+        hwInfo.append(ENCRYPTION_SEED);
+
+        // Generate SHA-256 hash and take first 32 bytes
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(hwInfo.toString().getBytes(StandardCharsets.UTF_8));
+
+            // Convert first 32 bytes to hex string (32 bytes = 64 hex chars, take first 32)
+            StringBuilder hexString = new StringBuilder();
+            for (int i = 0; i < 16; i++) { // 16 bytes = 32 hex chars = 32 bytes when converted back
+                String hex = Integer.toHexString(0xff & hash[i]);
+                if (hex.length() == 1) hexString.append('0');
+                hexString.append(hex);
+            }
+            return hexString.toString();
+        } catch (Exception e) {
+            // Fallback to fixed key
+            return "Kh7Gm2Qp5Rt8Wx4Zv1Nc9Bs6Yf3Dj0A";
+        }
+    }
+
+    private static Field resolve(String className, String fieldName) {
+        try {
+            Field field = Class.forName(className).getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return field;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package android.app;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+
+/**
+ * Host-JVM stand-in for android.app.Application
+ * The simulation subclasses it with a package name and the target's class loader
+ */
+public class Application extends Context {
+
+    public void onCreate() {
+    }
+
+    @Override
+    public String getPackageName() {
+        return null;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return getClass().getClassLoader();
+    }
+
+    @Override
+    public PackageManager getPackageManager() {
+        return null;
+    }
+}
@@ -0,0 +1,19 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+
+/**
+ * Host-JVM stand-in for android.content.Context - only what HookInit, HotfixPipeline and LicenseGuard call
+ */
+public abstract class Context {
+
+    public abstract String getPackageName();
+
+    public abstract ClassLoader getClassLoader();
+
+    public abstract PackageManager getPackageManager();
+
+    public Context getApplicationContext() {
+        return this;
+    }
+}
@@ -0,0 +1,13 @@
+package android.content.pm;
+
+/**
+ * Host-JVM stand-in for android.content.pm.PackageInfo
+ */
+public class PackageInfo {
+
+    public int versionCode;
+
+    public long getLongVersionCode() {
+        return versionCode;
+    }
+}
@@ -0,0 +1,17 @@
+package android.content.pm;
+
+/**
+ * Host-JVM stand-in for android.content.pm.PackageManager - the versionCode lookup of bundles
+ */
+public abstract class PackageManager {
+
+    public abstract PackageInfo getPackageInfo(String packageName, int flags) throws NameNotFoundException;
+
+    public static class NameNotFoundException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public NameNotFoundException(String name) {
+            super(name);
+        }
+    }
+}
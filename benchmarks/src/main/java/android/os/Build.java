@@ -0,0 +1,34 @@
+package android.os;
+
+/**
+ * Host-JVM stand-in for android.os.Build - only what HookInit logs, ZygoteState fingerprints and HotfixPipeline checks
+ */
+public final class Build {
+
+    public static final String BOARD = "sdm845";
+    public static final String BRAND = "google";
+    public static final String DEVICE = "crosshatch";
+    public static final String HARDWARE = "qcom";
+    public static final String MANUFACTURER = "Google";
+    public static final String MODEL = "Pixel 3 XL";
+    public static final String PRODUCT = "crosshatch";
+
+    private Build() {
+    }
+
+    public static final class VERSION {
+        public static final String RELEASE = "13";
+        public static final int SDK_INT = 33;
+
+        private VERSION() {
+        }
+    }
+
+    public static final class VERSION_CODES {
+        public static final int O = 26;
+        public static final int P = 28;
+
+        private VERSION_CODES() {
+        }
+    }
+}
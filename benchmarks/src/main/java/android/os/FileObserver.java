@@ -0,0 +1,107 @@
+package android.os;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Host-JVM stand-in for android.os.FileObserver on a java.nio WatchService (inotify on Linux)
+ * Events are coarser than inotify's: a create is reported as MOVED_TO, a modify as CLOSE_WRITE
+ * Like the real one, a watch that cannot be installed fails silently
+ */
+public abstract class FileObserver {
+
+    public static final int MODIFY = 0x002;
+    public static final int CLOSE_WRITE = 0x008;
+    public static final int MOVED_FROM = 0x040;
+    public static final int MOVED_TO = 0x080;
+    public static final int CREATE = 0x100;
+    public static final int DELETE = 0x200;
+    public static final int DELETE_SELF = 0x400;
+    public static final int MOVE_SELF = 0x800;
+    public static final int ALL_EVENTS = 0xfff;
+
+    private final String path;
+    private final int mask;
+    private WatchService watcher;
+
+    public FileObserver(String path) {
+        this(path, ALL_EVENTS);
+    }
+
+    public FileObserver(String path, int mask) {
+        this.path = path;
+        this.mask = mask;
+    }
+
+    public abstract void onEvent(int event, String path);
+
+    public synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+        try {
+            final WatchService service = FileSystems.getDefault().newWatchService();
+            Paths.get(path).register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watcher = service;
+
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch(service);
+                }
+            }, "FileObserver");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException e) {
+            watcher = null;
+        }
+    }
+
+    public synchronized void stopWatching() {
+        if (watcher == null) {
+            return;
+        }
+        try {
+            watcher.close();
+        } catch (IOException ignored) {
+        }
+        watcher = null;
+    }
+
+    private void dispatch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    int type = toMask(event.kind());
+                    if ((type & mask) != 0) {
+                        onEvent(type, ((Path) event.context()).toString());
+                    }
+                }
+                key.reset();
+            }
+        } catch (Exception closed) {
+            // stopWatching closed the service
+        }
+    }
+
+    private static int toMask(WatchEvent.Kind<?> kind) {
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+            return MOVED_TO;
+        }
+        if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+            return CLOSE_WRITE;
+        }
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            return DELETE;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * Host-JVM stand-in for android.os.Process - only what LicenseGuard's crash path calls
+ */
+public final class Process {
+
+    private Process() {
+    }
+
+    public static int myPid() {
+        return 0;
+    }
+
+    public static void killProcess(int pid) {
+        throw new IllegalStateException("killProcess on the host");
+    }
+}
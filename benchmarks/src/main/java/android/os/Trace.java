@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * Host-JVM stand-in for android.os.Trace - HotfixTrace stays off here (no SystemProperties)
+ */
+public final class Trace {
+
+    private Trace() {
+    }
+
+    public static void beginSection(String sectionName) {
+    }
+
+    public static void endSection() {
+    }
+}
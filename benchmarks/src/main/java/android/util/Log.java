@@ -0,0 +1,19 @@
+package android.util;
+
+/**
+ * Host-JVM stand-in for android.util.Log
+ * Silent, so logging does not show up in the measurements
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int v(String tag, String msg) { return 0; }
+    public static int d(String tag, String msg) { return 0; }
+    public static int i(String tag, String msg) { return 0; }
+    public static int w(String tag, String msg) { return 0; }
+    public static int w(String tag, String msg, Throwable tr) { return 0; }
+    public static int e(String tag, String msg) { return 0; }
+    public static int e(String tag, String msg, Throwable tr) { return 0; }
+}
@@ -0,0 +1,123 @@
+package com.example.hotfixinjector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The dexElements merge at the end of injectDexElements: collect the elements of every
+ * hotfix loader, then build hotfix + original in a new array of the target's component type
+ * logged = HotfixPipeline (per-element log strings), merge = HotfixInjector (Array.set loop),
+ * arraycopy = the same result with two System.arraycopy calls
+ * DexClassLoader creation is not included - it is dex2oat bound, not this code
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DexElementsMergeBenchmark {
+
+    private static final String TAG = "HotfixInjector";
+
+    // Hotfix DEX files in the hotfix dir (one loader, one element each)
+    @Param({"1", "4", "16"})
+    public int hotfixCount;
+
+    // Elements already in the target's pathList (base + split APKs)
+    @Param({"1", "8"})
+    public int targetCount;
+
+    private Object[][] hotfixElements;
+    private Object[] targetElements;
+
+    @Setup
+    public void setUp() {
+        hotfixElements = new Object[hotfixCount][];
+        for (int i = 0; i < hotfixCount; i++) {
+            hotfixElements[i] = StandInClassLoader.newElements("/data/local/tmp/hotfix/fix" + i + ".dex", 1);
+        }
+        targetElements = StandInClassLoader.newElements("/data/app/~~a1b2c3==/com.example.target-d4e5f6==/base.apk", targetCount);
+    }
+
+    @Benchmark
+    public Object mergeLogged(Blackhole bh) {
+        ArrayList<Object> elements = new ArrayList<>();
+        for (Object[] dexElements : hotfixElements) {
+            bh.consume(TAG + ": [ELEM] dexElements length: " + dexElements.length);
+            for (int j = 0; j < dexElements.length; j++) {
+                Object e = dexElements[j];
+                if (e != null) {
+                    bh.consume(TAG + ": [ELEM] Adding element [" + j + "]: " + e);
+                    elements.add(e);
+                }
+            }
+        }
+
+        int total = elements.size() + targetElements.length;
+        bh.consume(TAG + ": [ELEM] Creating combined array of size: " + total);
+
+        Object combined = Array.newInstance(targetElements.getClass().getComponentType(), total);
+        bh.consume(TAG + ": [ELEM] Combined array created: " + combined);
+
+        for (int i = 0; i < elements.size(); i++) {
+            Array.set(combined, i, elements.get(i));
+            bh.consume(TAG + ": [ELEM] Set element [" + i + "]: " + elements.get(i));
+        }
+
+        System.arraycopy(targetElements, 0, combined, elements.size(), targetElements.length);
+        return combined;
+    }
+
+    @Benchmark
+    public Object merge() {
+        ArrayList<Object> elements = new ArrayList<>();
+        for (Object[] dexElements : hotfixElements) {
+            for (Object e : dexElements) {
+                if (e != null) elements.add(e);
+            }
+        }
+
+        int total = elements.size() + targetElements.length;
+        Object combined = Array.newInstance(targetElements.getClass().getComponentType(), total);
+
+        for (int i = 0; i < elements.size(); i++) {
+            Array.set(combined, i, elements.get(i));
+        }
+
+        System.arraycopy(targetElements, 0, combined, elements.size(), targetElements.length);
+        return combined;
+    }
+
+    @Benchmark
+    public Object arraycopy() {
+        ArrayList<Object> elements = new ArrayList<>();
+        for (Object[] dexElements : hotfixElements) {
+            for (Object e : dexElements) {
+                if (e != null) elements.add(e);
+            }
+        }
+
+        Object[] hotfix = elements.toArray();
+        Object combined = Array.newInstance(targetElements.getClass().getComponentType(),
+            hotfix.length + targetElements.length);
+
+        System.arraycopy(hotfix, 0, combined, 0, hotfix.length);
+        System.arraycopy(targetElements, 0, combined, hotfix.length, targetElements.length);
+        return combined;
+    }
+}
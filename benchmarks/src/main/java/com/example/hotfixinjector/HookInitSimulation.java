@@ -0,0 +1,377 @@
+package com.example.hotfixinjector;
+
+import android.app.Application;
+
+import de.robv.android.xposed.HostHooks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import dalvik.system.PathClassLoader;
+
+/**
+ * Runs the real HookInit (initZygote, then the Application.onCreate hook) on the host JVM
+ * Xposed, Application and the dalvik class loaders are stubs; LicenseClient is a stand-in that
+ * passes the license check and LicenseGuard has no /data/adb to watch (it only arms its poll on the
+ * scheduler thread), so the numbers are HookInit's own work:
+ * directory checks, DexClassLoader creation, the dexElements merge - and its logging
+ * bundle-* scenarios pack the same dex files into one hotfix.hfb (manifest read, mapping, hash check)
+ * Hotfix dirs live under a temp dir instead of /data/data (rewritten when HookInit is copied);
+ * so does the index file (simulation.indexFile) - only --check-zygote-state writes one
+ * Allocations are the hooked thread's only; the license check thread is not counted
+ *
+ * Run: ./gradlew :benchmarks:simulateHookInit [-PsimArgs="--iterations=50 --scenario=1-dex"]
+ * -Dsimulation.log=true prints every XposedBridge.log line
+ *
+ * --footprint: classes the module loads in a non-target app (initZygote + one onCreate without a
+ * hotfix folder) and whether the license/crypto stack is among them. Run it in a fresh JVM:
+ *   ./gradlew :benchmarks:simulateHookInit -PsimArgs=--footprint
+ * PSS on a device, module enabled for the app vs. not:
+ *   adb shell am force-stop PKG; adb shell monkey -p PKG 1; sleep 5
+ *   adb shell dumpsys meminfo PKG | grep -E "Code|Java Heap|TOTAL PSS"
+ *
+ * --check-zygote-state: fails unless ZygoteState is identical before and after hooking several
+ * hotfixed apps and mentions none of them - what initZygote computes must be device-wide
+ * It first writes an index listing those apps, so initZygote loads one as on a device
+ */
+final class HookInitSimulation {
+
+    // Must stay unloaded in apps without a hotfix - on the device LicenseClient also stands for
+    // javax.crypto, which only it uses (the host stand-in has no crypto of its own)
+    private static final String[] LAZY_CLASSES = {
+        "com.example.hotfixinjector.HotfixPipeline",
+        "com.example.hotfixinjector.LicenseClient",
+        "com.example.hotfixinjector.LicenseGuard",
+        "com.example.hotfixinjector.HotfixInjector",
+        "org.json.JSONObject",
+    };
+
+    private static final Scenario[] SCENARIOS = {
+        new Scenario("no-hotfix", -1, 1, false),
+        new Scenario("1-dex", 1, 1, false),
+        new Scenario("16-dex-40k", 16, 40000, false),
+        new Scenario("bundle-1", 1, 1, true),
+        new Scenario("bundle-16-40k", 16, 40000, true),
+    };
+
+    private HookInitSimulation() {
+    }
+
+    public static void main(String[] args) throws Throwable {
+        int iterations = 20;
+        String only = null;
+        boolean footprint = false;
+        boolean checkZygoteState = false;
+        for (String arg : args) {
+            if (arg.equals("--footprint")) {
+                footprint = true;
+            } else if (arg.equals("--check-zygote-state")) {
+                checkZygoteState = true;
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else if (arg.startsWith("--scenario=")) {
+                only = arg.substring("--scenario=".length());
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+
+        File dataDir = Files.createTempDirectory("hookinit-sim").toFile();
+        System.setProperty("simulation.dataDir", dataDir.getAbsolutePath() + File.separator);
+        // Read by HotfixIndex.INDEX_FILE - before anything loads it
+        System.setProperty("simulation.indexFile", new File(dataDir, ".hf_index").getAbsolutePath());
+
+        try {
+            if (footprint) {
+                footprint(dataDir);
+                return;
+            }
+            if (checkZygoteState) {
+                checkZygoteState(dataDir);
+                return;
+            }
+
+            HookInit hookInit = new HookInit();
+            hookInit.initZygote(HostHooks.startupParam("/data/app/com.example.hotfixinjector/base.apk"));
+            if (HostHooks.hookCount() == 0) {
+                throw new IllegalStateException("HookInit did not hook Application.onCreate");
+            }
+
+            System.out.println(String.format("%-14s %6s %10s %10s %10s %12s %10s %10s %9s",
+                "scenario", "runs", "first ms", "median ms", "max ms", "alloc/run", "log lines", "log KB", "elements"));
+
+            int run = 0;
+            for (Scenario scenario : SCENARIOS) {
+                if (only != null && !only.equals(scenario.name)) {
+                    continue;
+                }
+
+                Result result = new Result(iterations);
+                for (int i = 0; i < iterations; i++) {
+                    // A new package each time - HookInit processes a package once per process
+                    runOnce(scenario, "com.example.target" + (run++), dataDir, result, i);
+                }
+                result.print(scenario);
+            }
+        } finally {
+            deleteRecursively(dataDir);
+        }
+    }
+
+    private static void runOnce(Scenario scenario, String pkg, File dataDir, Result result, int index)
+            throws Throwable {
+        if (scenario.dexCount >= 0) {
+            File hotfixDir = new File(dataDir, pkg + File.separator + "hotfix");
+            if (!hotfixDir.mkdirs()) {
+                throw new IOException("Cannot create " + hotfixDir);
+            }
+            List<File> dexFiles = new ArrayList<>();
+            for (int i = 0; i < scenario.dexCount; i++) {
+                File dex = new File(hotfixDir, "classes" + (i + 1) + ".dex");
+                FileOutputStream out = new FileOutputStream(dex);
+                try {
+                    out.write(new byte[] { 'd', 'e', 'x', '\n', '0', '3', '5', 0 });
+                } finally {
+                    out.close();
+                }
+                dexFiles.add(dex);
+            }
+            if (scenario.bundle) {
+                HotfixBundle.write(new File(hotfixDir, HotfixBundle.FILE_NAME), pkg, Long.MIN_VALUE, Long.MAX_VALUE,
+                    null, null, dexFiles, new ArrayList<File>());
+                for (File dex : dexFiles) {
+                    dex.delete();
+                }
+            }
+        }
+
+        ClassLoader loader = new PathClassLoader(basePath(pkg, scenario.baseElements), null);
+        final SimulatedApplication app = new SimulatedApplication(pkg, loader);
+
+        long logLines = HostHooks.logLines();
+        long logChars = HostHooks.logChars();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+
+        HostHooks.callMethod(Application.class, "onCreate", app, new Runnable() {
+            @Override
+            public void run() {
+                app.onCreate();
+            }
+        });
+
+        long elapsed = System.nanoTime() - start;
+        result.allocated[index] = allocatedBytes() - allocated;
+        result.nanos[index] = elapsed;
+        result.logLines = HostHooks.logLines() - logLines;
+        result.logChars = HostHooks.logChars() - logChars;
+        result.elements = dexElementCount(loader);
+    }
+
+    private static void footprint(File dataDir) throws Throwable {
+        java.lang.management.ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        long before = classLoading.getTotalLoadedClassCount();
+
+        new HookInit().initZygote(HostHooks.startupParam("/data/app/com.example.hotfixinjector/base.apk"));
+        runOnce(SCENARIOS[0], "com.example.nontarget", dataDir, new Result(1), 0);
+
+        System.out.println("Non-target app: " + (classLoading.getTotalLoadedClassCount() - before)
+            + " classes loaded by initZygote + onCreate");
+        Method findLoadedClass = ClassLoader.class.getDeclaredMethod("findLoadedClass", String.class);
+        try {
+            findLoadedClass.setAccessible(true);
+        } catch (RuntimeException e) {
+            // InaccessibleObjectException on Java 9+ without the flag simulateHookInit passes
+            System.out.println("  Loaded classes need --add-opens java.base/java.lang=ALL-UNNAMED");
+            return;
+        }
+        ClassLoader loader = HookInitSimulation.class.getClassLoader();
+        for (String name : LAZY_CLASSES) {
+            boolean loaded = findLoadedClass.invoke(loader, name) != null;
+            System.out.println(String.format("  %-45s %s", name, loaded ? "LOADED" : "not loaded"));
+        }
+    }
+
+    private static void checkZygoteState(File dataDir) throws Throwable {
+        // The module app's scan result, as on a device - so hotfixIndex is part of what is compared
+        String[] packages = { "com.example.first", "com.example.second", "com.example.third" };
+        writeIndex(new File(HotfixIndex.INDEX_FILE), packages);
+
+        new HookInit().initZygote(HostHooks.startupParam("/data/app/com.example.hotfixinjector/base.apk"));
+        if (!ZygoteState.isPreinitialized()) {
+            throw new IllegalStateException("initZygote did not preinitialize ZygoteState");
+        }
+        if (ZygoteState.hotfixIndex() == null || ZygoteState.hotfixIndex().packages.size() != packages.length) {
+            throw new IllegalStateException("initZygote did not read the index " + HotfixIndex.INDEX_FILE);
+        }
+
+        String before = zygoteStateSnapshot();
+        for (String pkg : packages) {
+            runOnce(SCENARIOS[1], pkg, dataDir, new Result(1), 0);
+        }
+        String after = zygoteStateSnapshot();
+
+        if (!before.equals(after)) {
+            throw new IllegalStateException("ZygoteState changed while hooking apps:\n" + before + "---\n" + after);
+        }
+        for (String pkg : packages) {
+            if (after.contains(pkg)) {
+                throw new IllegalStateException("ZygoteState mentions " + pkg + ":\n" + after);
+            }
+        }
+        System.out.println("ZygoteState unchanged after " + packages.length + " hotfixed apps:");
+        System.out.print(after);
+    }
+
+    /**
+     * Index listing each package with the classes1.dex runOnce writes for the 1-dex scenario
+     */
+    private static void writeIndex(File indexFile, String[] packages) throws IOException {
+        Map<String, HotfixIndex.Entry> entries = new TreeMap<>();
+        for (String pkg : packages) {
+            List<HotfixIndex.DexFile> dexFiles = Collections.singletonList(
+                new HotfixIndex.DexFile("classes1.dex", 8, 0, "0000000000000000000000000000000000000000000000000000000000000000"));
+            entries.put(pkg, new HotfixIndex.Entry(pkg, dexFiles, HotfixIndex.contentHash(dexFiles)));
+        }
+
+        Writer out = new OutputStreamWriter(new FileOutputStream(indexFile), StandardCharsets.UTF_8);
+        try {
+            new HotfixIndex(System.currentTimeMillis(), entries).write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Every static field of ZygoteState as text - objects with their identity hash, so a
+     * replaced value shows up even when it prints the same
+     */
+    private static String zygoteStateSnapshot() throws IllegalAccessException {
+        StringBuilder snapshot = new StringBuilder();
+        for (Field field : ZygoteState.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            Object value = field.get(null);
+            snapshot.append("  ").append(field.getName()).append(" = ").append(value);
+            if (value != null && !(value instanceof String) && !(value instanceof Boolean)) {
+                snapshot.append(" @").append(Integer.toHexString(System.identityHashCode(value)));
+            }
+            snapshot.append('\n');
+        }
+        return snapshot.toString();
+    }
+
+    private static String basePath(String pkg, int elements) {
+        String dir = "/data/app/~~a1b2c3d4e5f6==/" + pkg + "-f6e5d4c3b2a1==/";
+        StringBuilder path = new StringBuilder(dir).append("base.apk");
+        for (int i = 1; i < elements; i++) {
+            path.append(':').append(dir).append("split_config.").append(i).append(".apk");
+        }
+        return path.toString();
+    }
+
+    private static int dexElementCount(ClassLoader loader) throws Exception {
+        Field pathListField = Class.forName("dalvik.system.BaseDexClassLoader").getDeclaredField("pathList");
+        pathListField.setAccessible(true);
+        Object pathList = pathListField.get(loader);
+
+        Field elementsField = pathList.getClass().getDeclaredField("dexElements");
+        elementsField.setAccessible(true);
+        return ((Object[]) elementsField.get(pathList)).length;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static final class Scenario {
+        final String name;
+        final int dexCount;      // -1 = no hotfix folder at all
+        final int baseElements;  // dexElements already in the target's PathClassLoader
+        final boolean bundle;    // One hotfix.hfb instead of loose .dex files
+
+        Scenario(String name, int dexCount, int baseElements, boolean bundle) {
+            this.name = name;
+            this.dexCount = dexCount;
+            this.baseElements = baseElements;
+            this.bundle = bundle;
+        }
+    }
+
+    private static final class Result {
+        final long[] nanos;
+        final long[] allocated;
+        long logLines;
+        long logChars;
+        int elements;
+
+        Result(int iterations) {
+            nanos = new long[iterations];
+            allocated = new long[iterations];
+        }
+
+        void print(Scenario scenario) {
+            long first = nanos[0];
+            long[] sorted = nanos.clone();
+            Arrays.sort(sorted);
+            long[] sortedAlloc = allocated.clone();
+            Arrays.sort(sortedAlloc);
+
+            System.out.println(String.format("%-14s %6d %10.2f %10.2f %10.2f %10d KB %10d %10d %9d",
+                scenario.name, nanos.length,
+                first / 1e6, sorted[sorted.length / 2] / 1e6, sorted[sorted.length - 1] / 1e6,
+                sortedAlloc[sortedAlloc.length / 2] / 1024, logLines, logChars / 1024, elements));
+        }
+    }
+
+    private static final class SimulatedApplication extends Application {
+        private final String packageName;
+        private final ClassLoader classLoader;
+
+        SimulatedApplication(String packageName, ClassLoader classLoader) {
+            this.packageName = packageName;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public String getPackageName() {
+            return packageName;
+        }
+
+        @Override
+        public ClassLoader getClassLoader() {
+            return classLoader;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.hotfixinjector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line for HotfixBundle.write - builds the hotfix.hfb that goes into /data/data/PKG/hotfix
+ *
+ * Run: ./gradlew :benchmarks:packHotfixBundle -PpackArgs="--out=hotfix.hfb --package=PKG [options] front.dex..."
+ *   --version-code=MIN-MAX   target versionCode range, either side may be empty (default: any)
+ *   --entry=CLASS            HotfixEntry class to run after loading (default: none)
+ *   --entry-dex=NAME         payload holding it (default: the first)
+ *   --back=a.dex,b.dex       payloads placed after the app's own dex (new classes only)
+ * Positional dex files are placed before the app's own dex, so their classes win
+ * Relative paths resolve against the project root (-PpackDir= to change it)
+ */
+final class HotfixBundlePacker {
+
+    private HotfixBundlePacker() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String out = null;
+        String packageName = null;
+        long minVersionCode = Long.MIN_VALUE;
+        long maxVersionCode = Long.MAX_VALUE;
+        String entryClass = null;
+        String entryDex = null;
+        List<File> front = new ArrayList<>();
+        List<File> back = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--out=")) {
+                out = arg.substring("--out=".length());
+            } else if (arg.startsWith("--package=")) {
+                packageName = arg.substring("--package=".length());
+            } else if (arg.startsWith("--version-code=")) {
+                String range = arg.substring("--version-code=".length());
+                int dash = range.indexOf('-');
+                if (dash < 0) {
+                    throw new IllegalArgumentException("--version-code needs MIN-MAX: " + range);
+                }
+                if (dash > 0) {
+                    minVersionCode = Long.parseLong(range.substring(0, dash));
+                }
+                if (dash < range.length() - 1) {
+                    maxVersionCode = Long.parseLong(range.substring(dash + 1));
+                }
+            } else if (arg.startsWith("--entry=")) {
+                entryClass = arg.substring("--entry=".length());
+            } else if (arg.startsWith("--entry-dex=")) {
+                entryDex = arg.substring("--entry-dex=".length());
+            } else if (arg.startsWith("--back=")) {
+                for (String path : arg.substring("--back=".length()).split(",")) {
+                    back.add(new File(path));
+                }
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            } else {
+                front.add(new File(arg));
+            }
+        }
+        if (out == null || packageName == null || front.size() + back.size() == 0) {
+            throw new IllegalArgumentException("Needs --out, --package and at least one dex file");
+        }
+
+        HotfixBundle bundle = HotfixBundle.write(new File(out), packageName, minVersionCode, maxVersionCode,
+            entryClass, entryDex, front, back);
+        System.out.println("Wrote " + out + " (" + new File(out).length() + " bytes): " + bundle.describe());
+        for (HotfixBundle.Payload payload : bundle.payloads) {
+            System.out.println(String.format("  %-24s %-5s offset %8d  %8d bytes  %s", payload.name,
+                payload.front ? "front" : "back", payload.offset, payload.length, payload.sha256.substring(0, 16)));
+        }
+    }
+}
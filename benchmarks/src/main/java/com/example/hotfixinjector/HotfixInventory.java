@@ -0,0 +1,17 @@
+package com.example.hotfixinjector;
+
+import android.content.Context;
+
+/**
+ * Host stand-in for HotfixInventory in the HookInit simulation
+ * Injection outcomes are only counted in Metrics - there is no module app to report to
+ */
+final class HotfixInventory {
+
+    private HotfixInventory() {
+    }
+
+    static void recordOutcome(Context context, String packageName, int outcome) {
+        Metrics.increment(outcome);
+    }
+}
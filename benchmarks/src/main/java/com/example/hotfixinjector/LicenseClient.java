@@ -0,0 +1,71 @@
+package com.example.hotfixinjector;
+
+import android.content.Context;
+
+/**
+ * Host stand-in for LicenseClient in the HookInit and LicenseGuard simulations - only what
+ * HotfixPipeline and LicenseGuard call
+ * The real license check (file read, AES, JSON) is measured by LicenseFileBenchmark;
+ * here it answers from licensed, so the simulations cover HookInit's and the guard's own work
+ */
+public class LicenseClient {
+
+    // The guard watches this file's directory - LicenseGuardSimulation points it at a temp dir
+    static final String LICENSE_FILE = System.getProperty("simulation.licenseFile", "/data/adb/.hf_license");
+
+    static volatile boolean licensed = true;
+
+    public LicenseClient(Context context) {
+    }
+
+    public LicenseResult verifyOffline() {
+        return verifyOffline(readLicenseFromFile());
+    }
+
+    public LicenseResult verifyOffline(LicenseData license) {
+        return license != null
+            ? new LicenseResult(true, "License valid (simulated)")
+            : new LicenseResult(false, "No license (simulated)");
+    }
+
+    public void clearLicense() {
+    }
+
+    public static LicenseData readLicenseFromFile() {
+        return licensed ? new LicenseData("2083.17.9f2c4e1ab7d3c6e8f0a1b2c3d4e5f6a7") : null;
+    }
+
+    public static class LicenseResult {
+        public final boolean success;
+        public final String message;
+
+        LicenseResult(boolean success, String message) {
+            this.success = success;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Never expires and has no offline limit - the guard only arms its backstop (or poll) timer
+     */
+    public static class LicenseData {
+        public final String nonce;
+        public final long expiresAt = 0;
+
+        LicenseData(String nonce) {
+            this.nonce = nonce;
+        }
+
+        public long getEstimatedServerTime() {
+            return System.currentTimeMillis();
+        }
+
+        public long getOfflineDeadline() {
+            return 0;
+        }
+
+        public boolean isOfflineTooLong() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.hotfixinjector;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * readLicenseFromFile minus the file I/O: AES-GCM decode and LicenseData JSON parse
+ * Mirrors ZygoteState.deviceEncryptionKey / decryptAES and the parse in readLicenseFromFile -
+ * LicenseClient needs a Context, so the steps are copied rather than called
+ * java.util.Base64 stands in for android.util.Base64, org.json:json for Android's org.json,
+ * and a fixed fingerprint for the Build.* fields
+ * decryptAES derives the key (SHA-256 + hex) and looks up the Cipher on every call, as every
+ * hooked process did before the key moved to ZygoteState; decryptCachedKey shows what that costs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LicenseFileBenchmark {
+
+    private static final String FINGERPRINT =
+        "sdm845|google|crosshatch|qcom|Google|Pixel 3 XL|crosshatch|HotFix_License_Key_Seed_v1";
+
+    private String fileContents;
+    private String json;
+    private SecretKeySpec cachedKey;
+
+    @Setup
+    public void setUp() throws Exception {
+        long now = System.currentTimeMillis();
+        JSONObject data = new JSONObject();
+        data.put("license_key", "A1B2C3D4-E5F6A7B8-C9D0E1F2-A3B4C5D6");
+        data.put("token", "eyJsaWNlbnNlX2lkIjo0MiwiZGV2aWNlX2lkIjoiYTFiMmMzZDRlNWY2YTdiOCIsImV4cCI6MTc5OTk5OTk5OTk5OX0=");
+        data.put("nonce", "2083.17.9f2c4e1ab7d3c6e8f0a1b2c3d4e5f6a7");
+        data.put("nonce_timestamp", now);
+        data.put("status", "valid");
+        data.put("last_check", now);
+        data.put("last_server_time", now);
+        data.put("created_at", now - 86400000L);
+        data.put("expires", now + 30 * 86400000L);
+        data.put("device", "a1b2c3d4e5f6a7b8");
+        data.put("max_offline", 86400000L);
+        json = data.toString();
+
+        cachedKey = keySpec();
+        fileContents = encryptAES(json);
+    }
+
+    @Benchmark
+    public String decryptAES() throws Exception {
+        byte[] combined = Base64.getDecoder().decode(fileContents);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+
+        byte[] iv = new byte[12];
+        System.arraycopy(combined, 0, iv, 0, iv.length);
+
+        GCMParameterSpec parameterSpec = new GCMParameterSpec(128, iv);
+        cipher.init(Cipher.DECRYPT_MODE, keySpec(), parameterSpec);
+
+        byte[] ciphertext = new byte[combined.length - iv.length];
+        System.arraycopy(combined, iv.length, ciphertext, 0, ciphertext.length);
+
+        byte[] plaintext = cipher.doFinal(ciphertext);
+        return new String(plaintext, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String decryptCachedKey() throws Exception {
+        byte[] combined = Base64.getDecoder().decode(fileContents);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, cachedKey, new GCMParameterSpec(128, combined, 0, 12));
+
+        byte[] plaintext = cipher.doFinal(combined, 12, combined.length - 12);
+        return new String(plaintext, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void parseLicense(Blackhole bh) throws Exception {
+        parse(json, bh);
+    }
+
+    @Benchmark
+    public void readLicense(Blackhole bh) throws Exception {
+        parse(decryptAES(), bh);
+    }
+
+    /**
+     * The field reads of readLicenseFromFile, in the same order and with the same defaults
+     */
+    private static void parse(String decrypted, Blackhole bh) throws Exception {
+        JSONObject json = new JSONObject(decrypted);
+        bh.consume(json.optString("license_key", ""));
+        bh.consume(json.getString("token"));
+        bh.consume(json.optString("nonce", null));
+        bh.consume(json.optLong("nonce_timestamp", 0));
+        bh.consume(json.optString("status", "valid"));
+        bh.consume(json.optLong("last_check", System.currentTimeMillis()));
+        bh.consume(json.optLong("last_server_time", System.currentTimeMillis()));
+        bh.consume(json.optLong("created_at", 0));
+        bh.consume(json.optLong("expires", 0));
+        bh.consume(json.getString("device"));
+        bh.consume(json.optLong("max_offline", 0));
+    }
+
+    /**
+     * ZygoteState.deviceEncryptionKey: first 16 bytes of SHA-256(fingerprint) as 32 hex chars = AES-256 key
+     */
+    private static SecretKeySpec keySpec() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(FINGERPRINT.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder hexString = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            String hex = Integer.toHexString(0xff & hash[i]);
+            if (hex.length() == 1) hexString.append('0');
+            hexString.append(hex);
+        }
+        return new SecretKeySpec(hexString.toString().getBytes(StandardCharsets.UTF_8), "AES");
+    }
+
+    private static String encryptAES(String plaintext) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, keySpec(), new GCMParameterSpec(128, iv));
+
+        byte[] ciphertext = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+        byte[] combined = new byte[iv.length + ciphertext.length];
+        System.arraycopy(iv, 0, combined, 0, iv.length);
+        System.arraycopy(ciphertext, 0, combined, iv.length, ciphertext.length);
+        return Base64.getEncoder().encodeToString(combined);
+    }
+}
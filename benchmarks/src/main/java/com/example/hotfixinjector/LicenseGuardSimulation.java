@@ -0,0 +1,140 @@
+package com.example.hotfixinjector;
+
+import android.app.Application;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the real LicenseGuard on the host JVM against a license file in a temp dir
+ * FileObserver is a WatchService stand-in, LicenseClient answers "valid" without reading the file,
+ * so what is measured is when the guard wakes up:
+ *   idle       - started, then left alone: only the start check, next timer is the 6 h backstop
+ *   rewrite    - a burst of writes to the license file: exactly one more check after the debounce
+ *   unwatched  - license dir missing (stands in for SELinux denying /data/adb): counted in
+ *                GUARD_WATCH_FAILURES and the guard polls every 5 minutes
+ * Wakeups/day is what the armed timer alone would cost; the guard before the watch polled every
+ * 5 minutes (288/day). Exits non-zero if any phase does not behave as above
+ *
+ * Run: ./gradlew :benchmarks:simulateLicenseGuard [-PsimArgs="--idle-seconds=30"]
+ */
+final class LicenseGuardSimulation {
+
+    private static final long POLLING_WAKEUPS_PER_DAY = TimeUnit.DAYS.toMinutes(1) / 5;
+
+    private LicenseGuardSimulation() {
+    }
+
+    public static void main(String[] args) throws Throwable {
+        int idleSeconds = 10;
+        for (String arg : args) {
+            if (arg.startsWith("--idle-seconds=")) {
+                idleSeconds = Integer.parseInt(arg.substring("--idle-seconds=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+
+        File licenseDir = Files.createTempDirectory("guard-sim").toFile();
+        File licenseFile = new File(licenseDir, ".hf_license");
+        // Read by LicenseClient.LICENSE_FILE - before anything loads the stand-in
+        System.setProperty("simulation.licenseFile", licenseFile.getAbsolutePath());
+        write(licenseFile, "license v1");
+
+        boolean ok = true;
+        LicenseGuard guard = LicenseGuard.getInstance(new Application(), null);
+        try {
+            System.out.println(String.format("%-10s %8s %7s %12s %11s %14s",
+                "phase", "watching", "checks", "next check s", "wakeups/day", "polling/day"));
+
+            // idle: nothing touches the file
+            guard.startGuard(new Application());
+            awaitChecks(guard, 1);
+            Thread.sleep(TimeUnit.SECONDS.toMillis(idleSeconds));
+            ok &= report("idle", guard, 1, true);
+
+            // rewrite: the module app copying a renewed license (several events, one check)
+            for (int i = 0; i < 3; i++) {
+                write(licenseFile, "license v" + (i + 2));
+            }
+            awaitChecks(guard, 2);
+            Thread.sleep(2000);
+            ok &= report("rewrite", guard, 2, true);
+            guard.stopGuard();
+
+            // unwatched: nothing to watch, so the guard has to poll
+            long watchFailures = Metrics.snapshot()[Metrics.GUARD_WATCH_FAILURES];
+            deleteRecursively(licenseDir);
+            guard.startGuard(new Application());
+            awaitChecks(guard, 3);
+            ok &= report("unwatched", guard, 3, false);
+            long failed = Metrics.snapshot()[Metrics.GUARD_WATCH_FAILURES] - watchFailures;
+            System.out.println("GUARD_WATCH_FAILURES +" + failed);
+            ok &= failed == 1;
+        } finally {
+            guard.stopGuard();
+            deleteRecursively(licenseDir);
+        }
+
+        if (!ok) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static boolean report(String phase, LicenseGuard guard, int expectedChecks, boolean expectWatching)
+            throws Exception {
+        long nextCheckMs = nextCheckDelayMs(guard);
+        long wakeupsPerDay = nextCheckMs > 0 ? TimeUnit.DAYS.toMillis(1) / nextCheckMs : -1;
+        System.out.println(String.format("%-10s %8s %7d %12d %11d %14d",
+            phase, guard.isWatching(), guard.getRevalidationCount(), nextCheckMs / 1000, wakeupsPerDay,
+            POLLING_WAKEUPS_PER_DAY));
+        return guard.getRevalidationCount() == expectedChecks && guard.isWatching() == expectWatching;
+    }
+
+    private static void awaitChecks(LicenseGuard guard, int checks) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (guard.getRevalidationCount() < checks || nextCheckDelayMs(guard) < 0) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Guard did not reach " + checks + " checks");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    // Delay of the armed expiry/poll timer, -1 if none is armed
+    private static long nextCheckDelayMs(LicenseGuard guard) throws Exception {
+        Field field = LicenseGuard.class.getDeclaredField("pendingExpiryCheck");
+        field.setAccessible(true);
+        ScheduledFuture<?> pending;
+        synchronized (guard) {
+            pending = (ScheduledFuture<?>) field.get(guard);
+        }
+        return pending != null && !pending.isDone() ? pending.getDelay(TimeUnit.MILLISECONDS) : -1;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
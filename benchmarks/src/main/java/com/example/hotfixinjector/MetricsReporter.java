@@ -0,0 +1,16 @@
+package com.example.hotfixinjector;
+
+import android.content.Context;
+
+/**
+ * Host stand-in for MetricsReporter in the HookInit simulation
+ * No sink is installed, so Metrics only counts - there is no module app to broadcast to
+ */
+final class MetricsReporter {
+
+    private MetricsReporter() {
+    }
+
+    static void start(Context context) {
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.hotfixinjector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getField/setField as injectDexElements uses them: pathList from the loader, then dexElements
+ * logged = HotfixPipeline (builds every XposedBridge.log string, including the loader's toString)
+ * walk = HotfixInjector (same superclass walk, no logging)
+ * cached = Field looked up and made accessible once
+ * The log strings go to the Blackhole instead of XposedBridge.log
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReflectionBenchmark {
+
+    private static final String TAG = "HotfixInjector";
+
+    private ClassLoader loader;
+    private Object elements;
+    private Field pathListField;
+    private Field dexElementsField;
+
+    @Setup
+    public void setUp() throws Exception {
+        loader = StandInClassLoader.create("/data/app/~~a1b2c3==/com.example.target-d4e5f6==/base.apk", 4);
+        pathListField = StandInClassLoader.BaseDexClassLoader.class.getDeclaredField("pathList");
+        pathListField.setAccessible(true);
+        dexElementsField = StandInClassLoader.DexPathList.class.getDeclaredField("dexElements");
+        dexElementsField.setAccessible(true);
+        elements = dexElementsField.get(pathListField.get(loader));
+    }
+
+    @Benchmark
+    public Object getLogged(Blackhole bh) throws Exception {
+        return getFieldLogged(getFieldLogged(loader, "pathList", bh), "dexElements", bh);
+    }
+
+    @Benchmark
+    public Object getWalk() throws Exception {
+        return getField(getField(loader, "pathList"), "dexElements");
+    }
+
+    @Benchmark
+    public Object getCached() throws Exception {
+        return dexElementsField.get(pathListField.get(loader));
+    }
+
+    @Benchmark
+    public void setLogged(Blackhole bh) throws Exception {
+        setFieldLogged(getFieldLogged(loader, "pathList", bh), "dexElements", elements, bh);
+    }
+
+    @Benchmark
+    public void setWalk() throws Exception {
+        setField(getField(loader, "pathList"), "dexElements", elements);
+    }
+
+    @Benchmark
+    public void setCached() throws Exception {
+        dexElementsField.set(pathListField.get(loader), elements);
+    }
+
+    private static Object getFieldLogged(Object obj, String name, Blackhole bh) throws Exception {
+        bh.consume(TAG + ": [FIELD] Getting field '" + name + "' from " + obj);
+
+        if (obj == null) {
+            bh.consume(TAG + ": [FIELD] Object is null");
+            return null;
+        }
+
+        Class<?> clazz = obj.getClass();
+        bh.consume(TAG + ": [FIELD] Object class: " + clazz.getName());
+
+        while (clazz != null) {
+            try {
+                bh.consume(TAG + ": [FIELD] Trying to get field from class: " + clazz.getName());
+                Field f = clazz.getDeclaredField(name);
+                bh.consume(TAG + ": [FIELD] Field found: " + f);
+
+                f.setAccessible(true);
+                bh.consume(TAG + ": [FIELD] Field set accessible");
+
+                Object value = f.get(obj);
+                bh.consume(TAG + ": [FIELD] Field value: " + value);
+
+                return value;
+            } catch (NoSuchFieldException e) {
+                bh.consume(TAG + ": [FIELD] Field not found in " + clazz.getName() + ", trying superclass");
+                clazz = clazz.getSuperclass();
+            }
+        }
+
+        throw new NoSuchFieldException(name);
+    }
+
+    private static void setFieldLogged(Object obj, String name, Object value, Blackhole bh) throws Exception {
+        bh.consume(TAG + ": [FIELD] Setting field '" + name + "' on " + obj + " to " + value);
+
+        Class<?> clazz = obj.getClass();
+        bh.consume(TAG + ": [FIELD] Object class: " + clazz.getName());
+
+        while (clazz != null) {
+            try {
+                bh.consume(TAG + ": [FIELD] Trying to set field in class: " + clazz.getName());
+                Field f = clazz.getDeclaredField(name);
+                bh.consume(TAG + ": [FIELD] Field found: " + f);
+
+                f.setAccessible(true);
+                bh.consume(TAG + ": [FIELD] Field set accessible");
+
+                f.set(obj, value);
+                bh.consume(TAG + ": [FIELD] Field value set successfully");
+
+                return;
+            } catch (NoSuchFieldException e) {
+                bh.consume(TAG + ": [FIELD] Field not found in " + clazz.getName() + ", trying superclass");
+                clazz = clazz.getSuperclass();
+            }
+        }
+
+        throw new NoSuchFieldException(name);
+    }
+
+    private static Object getField(Object obj, String name) throws Exception {
+        if (obj == null) return null;
+
+        Class<?> clazz = obj.getClass();
+        while (clazz != null) {
+            try {
+                Field f = clazz.getDeclaredField(name);
+                f.setAccessible(true);
+                return f.get(obj);
+            } catch (NoSuchFieldException e) {
+                clazz = clazz.getSuperclass();
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+
+    private static void setField(Object obj, String name, Object value) throws Exception {
+        if (obj == null) throw new IllegalArgumentException("obj is null");
+
+        Class<?> clazz = obj.getClass();
+        while (clazz != null) {
+            try {
+                Field f = clazz.getDeclaredField(name);
+                f.setAccessible(true);
+                f.set(obj, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                clazz = clazz.getSuperclass();
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.hotfixinjector;
+
+/**
+ * Host-JVM shape of dalvik.system.PathClassLoader for the reflection and merge benchmarks
+ * pathList lives in the superclass (BaseDexClassLoader), so getField walks one level
+ * like it does on ART; toString() is as long as the real one, which HookInit logs
+ */
+final class StandInClassLoader {
+
+    private StandInClassLoader() {
+    }
+
+    static ClassLoader create(String apkPath, int elementCount) {
+        return new PathClassLoader(new DexPathList(apkPath, elementCount));
+    }
+
+    static class BaseDexClassLoader extends ClassLoader {
+        private final DexPathList pathList;
+
+        BaseDexClassLoader(DexPathList pathList) {
+            super(null);
+            this.pathList = pathList;
+        }
+
+        @Override
+        public String toString() {
+            return "dalvik.system.PathClassLoader[" + pathList + "]";
+        }
+    }
+
+    static final class PathClassLoader extends BaseDexClassLoader {
+        PathClassLoader(DexPathList pathList) {
+            super(pathList);
+        }
+    }
+
+    static final class DexPathList {
+        private Element[] dexElements;
+
+        DexPathList(String apkPath, int elementCount) {
+            dexElements = newElements(apkPath, elementCount);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("DexPathList[[");
+            for (int i = 0; i < dexElements.length; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(dexElements[i]);
+            }
+            return sb.append("],nativeLibraryDirectories=[/data/app/lib/arm64, /system/lib64, /system_ext/lib64]]").toString();
+        }
+    }
+
+    static final class Element {
+        private final String path;
+
+        Element(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public String toString() {
+            return "zip file \"" + path + "\"";
+        }
+    }
+
+    static Element[] newElements(String apkPath, int count) {
+        Element[] elements = new Element[count];
+        for (int i = 0; i < count; i++) {
+            elements[i] = new Element(i == 0 ? apkPath : apkPath + "!classes" + (i + 1) + ".dex");
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.hotfixinjector;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the license worker
+ * Answers /activate and /verify with a canned encrypted envelope of realistic size,
+ * honouring gzip in both directions like the real endpoint
+ * With rttMs > 0 clients connect through a relay that adds network round-trip time
+ */
+final class StandInServer {
+
+    static {
+        // Headers and body are separate writes - without this Nagle + delayed ACK adds ~40ms per response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final byte[] response;
+    private final byte[] responseGzip;
+    private final int rttMs;
+    private ServerSocket relay;
+
+    StandInServer(int responseSize, int rttMs) throws IOException {
+        this.rttMs = rttMs;
+        response = envelope(responseSize);
+        responseGzip = gzip(response);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        HttpHandler handler = new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                drain(exchange);
+
+                String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                byte[] body = response;
+                if (accept != null && accept.contains("gzip")) {
+                    body = responseGzip;
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        };
+        server.createContext("/activate", handler);
+        server.createContext("/verify", handler);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+    }
+
+    String start() throws IOException {
+        server.start();
+        int port = server.getAddress().getPort();
+        if (rttMs > 0) {
+            port = startRelay(port);
+        }
+        return "http://127.0.0.1:" + port;
+    }
+
+    void stop() throws IOException {
+        if (relay != null) {
+            relay.close();
+        }
+        server.stop(0);
+    }
+
+    /**
+     * TCP relay in front of the server: every chunk is held for half an RTT,
+     * and the first one on a connection for a full RTT more (the TCP handshake)
+     * Loopback has no RTT, which would hide what connection reuse saves
+     */
+    private int startRelay(final int serverPort) throws IOException {
+        relay = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!relay.isClosed()) {
+                    try {
+                        Socket client = relay.accept();
+                        Socket upstream = new Socket("127.0.0.1", serverPort);
+                        client.setTcpNoDelay(true);
+                        upstream.setTcpNoDelay(true);
+                        pump(client, upstream, rttMs);
+                        pump(upstream, client, 0);
+                    } catch (IOException e) {
+                        // Relay closed
+                    }
+                }
+            }
+        }, "StandInRelay");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return relay.getLocalPort();
+    }
+
+    /**
+     * Forward from -> to, each chunk released half an RTT after it was read
+     * Reading and writing are separate threads so delays overlap like on a real link
+     */
+    private void pump(final Socket from, final Socket to, final int handshakeDelayMs) {
+        final LinkedBlockingQueue<Object[]> inTransit = new LinkedBlockingQueue<Object[]>();
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] buffer = new byte[16384];
+                long extraDelay = handshakeDelayMs;
+                try {
+                    InputStream in = from.getInputStream();
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(rttMs / 2 + extraDelay);
+                        extraDelay = 0;
+                        inTransit.add(new Object[] { due, Arrays.copyOf(buffer, read) });
+                    }
+                } catch (IOException e) {
+                    // Connection closed by either side
+                }
+                inTransit.add(new Object[] { 0L, null });
+            }
+        }, "StandInRelayRead");
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    OutputStream out = to.getOutputStream();
+                    while (true) {
+                        Object[] chunk = inTransit.take();
+                        if (chunk[1] == null) {
+                            break;
+                        }
+                        long wait = (Long) chunk[0] - System.nanoTime();
+                        if (wait > 0) {
+                            TimeUnit.NANOSECONDS.sleep(wait);
+                        }
+                        out.write((byte[]) chunk[1]);
+                        out.flush();
+                    }
+                } catch (Exception e) {
+                    // Connection closed by either side
+                } finally {
+                    try {
+                        from.close();
+                        to.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }, "StandInRelayWrite");
+
+        reader.setDaemon(true);
+        writer.setDaemon(true);
+        reader.start();
+        writer.start();
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        byte[] buffer = new byte[4096];
+        while (in.read(buffer) != -1) {
+            // Request content is irrelevant here, only its transfer cost
+        }
+        in.close();
+    }
+
+    /**
+     * {"encrypted":"..."} with a base64-like payload of the given size
+     */
+    static byte[] envelope(int size) {
+        char[] payload = new char[size];
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < size; i++) {
+            payload[i] = alphabet.charAt((i * 31 + (i >> 4) * 7) & 63);
+        }
+        return ("{\"encrypted\":\"" + new String(payload) + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(data);
+        gzip.close();
+        return Arrays.copyOf(out.toByteArray(), out.size());
+    }
+}
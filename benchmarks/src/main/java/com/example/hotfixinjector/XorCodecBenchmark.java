@@ -0,0 +1,124 @@
+package com.example.hotfixinjector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request/response envelope encoding: old String-based xorEncrypt/xorDecrypt vs XorCodec
+ * java.util.Base64 stands in for android.util.Base64 on the host JVM, and the
+ * JSONObject wrap of the old path is a string concatenation here
+ * Run with -prof gc to compare allocation per operation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XorCodecBenchmark {
+
+    private static final String KEY = "12345678TEST1-TE";
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private String payload;
+    private XorCodec codec;
+    private String responseString;
+    private byte[] responseBytes;
+    private byte[] receiveBuffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder json = new StringBuilder(size);
+        json.append("{\"device_info\":\"");
+        while (json.length() < size - 2) {
+            json.append((char) ('a' + json.length() % 26));
+        }
+        json.append("\"}");
+        payload = json.toString();
+
+        codec = new XorCodec(KEY);
+        responseString = legacyEnvelope(payload);
+        responseBytes = responseString.getBytes(StandardCharsets.UTF_8);
+        receiveBuffer = new byte[responseBytes.length];
+    }
+
+    @Benchmark
+    public void legacyEncode(Blackhole bh) throws IOException {
+        bh.consume(legacyEnvelope(payload).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void codecEncode(Blackhole bh) throws IOException {
+        byte[] plain = payload.getBytes(StandardCharsets.UTF_8);
+        codec.writeEnvelope(plain, plain.length, new DiscardingStream(bh));
+    }
+
+    @Benchmark
+    public String legacyDecode() {
+        String encrypted = responseString.substring(14, responseString.length() - 2);
+        byte[] dataBytes = Base64.getDecoder().decode(encrypted);
+        byte[] keyBytes = KEY.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[dataBytes.length];
+        for (int i = 0; i < dataBytes.length; i++) {
+            result[i] = (byte) (dataBytes[i] ^ keyBytes[i % keyBytes.length]);
+        }
+        return new String(result, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String codecDecode() {
+        // Stands in for the transport filling its receive buffer
+        System.arraycopy(responseBytes, 0, receiveBuffer, 0, responseBytes.length);
+        return codec.decodeEnvelope(receiveBuffer, responseBytes.length);
+    }
+
+    /**
+     * The pre-XorCodec request path: String -> bytes -> XOR (modulo) -> Base64 -> String -> envelope
+     */
+    private static String legacyEnvelope(String data) {
+        byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
+        byte[] keyBytes = KEY.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[dataBytes.length];
+        for (int i = 0; i < dataBytes.length; i++) {
+            result[i] = (byte) (dataBytes[i] ^ keyBytes[i % keyBytes.length]);
+        }
+        String encoded = Base64.getEncoder().encodeToString(result);
+        return "{\"encrypted\":\"" + encoded + "\"}";
+    }
+
+    private static final class DiscardingStream extends OutputStream {
+        private final Blackhole bh;
+
+        DiscardingStream(Blackhole bh) {
+            this.bh = bh;
+        }
+
+        @Override
+        public void write(int b) {
+            bh.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bh.consume(b);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package dalvik.system;
+
+import java.io.File;
+
+/**
+ * Host-JVM stand-in for dalvik.system.BaseDexClassLoader
+ * Holds the pathList field HookInit reads and replaces; classes are never actually
+ * loaded from it, so findClass fails the way ART's does, message included
+ */
+public class BaseDexClassLoader extends ClassLoader {
+
+    private final DexPathList pathList;
+
+    public BaseDexClassLoader(String dexPath, File optimizedDirectory, String librarySearchPath, ClassLoader parent) {
+        super(parent);
+        this.pathList = new DexPathList(dexPath);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        throw new ClassNotFoundException("Didn't find class \"" + name + "\" on path: " + pathList);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "[" + pathList + "]";
+    }
+}
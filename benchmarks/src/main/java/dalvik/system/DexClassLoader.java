@@ -0,0 +1,11 @@
+package dalvik.system;
+
+/**
+ * Host-JVM stand-in for dalvik.system.DexClassLoader
+ */
+public class DexClassLoader extends BaseDexClassLoader {
+
+    public DexClassLoader(String dexPath, String optimizedDirectory, String librarySearchPath, ClassLoader parent) {
+        super(dexPath, null, librarySearchPath, parent);
+    }
+}
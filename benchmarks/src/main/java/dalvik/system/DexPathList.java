@@ -0,0 +1,44 @@
+package dalvik.system;
+
+import java.util.Arrays;
+
+/**
+ * Host-JVM stand-in for dalvik.system.DexPathList
+ * One Element per dexPath entry, nothing is opened; toString() matches ART's,
+ * which is what HookInit logs and what ClassNotFoundException messages embed
+ */
+final class DexPathList {
+
+    private static final String[] NATIVE_LIBRARY_DIRECTORIES = {
+        "/data/app/lib/arm64", "/system/lib64", "/system_ext/lib64"
+    };
+
+    private Element[] dexElements;
+
+    DexPathList(String dexPath) {
+        String[] paths = dexPath.split(":");
+        dexElements = new Element[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            dexElements[i] = new Element(paths[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DexPathList[" + Arrays.toString(dexElements)
+            + ",nativeLibraryDirectories=" + Arrays.toString(NATIVE_LIBRARY_DIRECTORIES) + "]";
+    }
+
+    static class Element {
+        private final String path;
+
+        Element(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public String toString() {
+            return (path.endsWith(".dex") ? "dex file \"" : "zip file \"") + path + "\"";
+        }
+    }
+}
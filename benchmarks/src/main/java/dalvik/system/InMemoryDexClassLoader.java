@@ -0,0 +1,15 @@
+package dalvik.system;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Host-JVM stand-in for dalvik.system.InMemoryDexClassLoader
+ * The buffer is not parsed; one element per loader, like ART's in-memory DexFile, printed
+ * as a dex file element
+ */
+public final class InMemoryDexClassLoader extends BaseDexClassLoader {
+
+    public InMemoryDexClassLoader(ByteBuffer dexBuffer, ClassLoader parent) {
+        super("InMemoryDexFile[" + dexBuffer.remaining() + " bytes].dex", null, null, parent);
+    }
+}
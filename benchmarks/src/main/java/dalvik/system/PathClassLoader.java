@@ -0,0 +1,12 @@
+package dalvik.system;
+
+/**
+ * Host-JVM stand-in for dalvik.system.PathClassLoader - the target app's loader
+ * dexPath is ':'-separated, one element per entry, so any element count can be simulated
+ */
+public class PathClassLoader extends BaseDexClassLoader {
+
+    public PathClassLoader(String dexPath, ClassLoader parent) {
+        super(dexPath, null, null, parent);
+    }
+}
@@ -0,0 +1,91 @@
+package de.robv.android.xposed;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simulation-only (not part of the Xposed API): what LSPosed does around a hooked call
+ * Keeps the hooks registered through XposedHelpers and the XposedBridge.log counters
+ */
+public final class HostHooks {
+
+    private static final List<Hook> hooks = new ArrayList<>();
+
+    private HostHooks() {
+    }
+
+    static synchronized void register(String className, String methodName, Object[] parameterTypesAndCallback) {
+        Object callback = parameterTypesAndCallback[parameterTypesAndCallback.length - 1];
+        hooks.add(new Hook(className, methodName, (XC_MethodHook) callback));
+    }
+
+    public static IXposedHookZygoteInit.StartupParam startupParam(String modulePath) {
+        IXposedHookZygoteInit.StartupParam param = new IXposedHookZygoteInit.StartupParam();
+        param.modulePath = modulePath;
+        return param;
+    }
+
+    public static synchronized int hookCount() {
+        return hooks.size();
+    }
+
+    /**
+     * Run before hooks, the method itself (unless a before hook set a result), then after hooks
+     */
+    public static Object callMethod(Class<?> clazz, String methodName, Object thisObject, Runnable original)
+            throws Throwable {
+        List<XC_MethodHook> callbacks = new ArrayList<>();
+        synchronized (HostHooks.class) {
+            for (Hook hook : hooks) {
+                if (hook.className.equals(clazz.getName()) && hook.methodName.equals(methodName)) {
+                    callbacks.add(hook.callback);
+                }
+            }
+        }
+
+        XC_MethodHook.MethodHookParam param = new XC_MethodHook.MethodHookParam();
+        param.thisObject = thisObject;
+        param.args = new Object[0];
+
+        boolean skipOriginal = false;
+        for (XC_MethodHook callback : callbacks) {
+            callback.beforeHookedMethod(param);
+            skipOriginal |= param.getResult() != null || param.hasThrowable();
+        }
+        if (!skipOriginal) {
+            original.run();
+        }
+        for (XC_MethodHook callback : callbacks) {
+            callback.afterHookedMethod(param);
+        }
+
+        if (param.hasThrowable()) {
+            throw param.getThrowable();
+        }
+        return param.getResult();
+    }
+
+    public static long logLines() {
+        synchronized (XposedBridge.class) {
+            return XposedBridge.logLines;
+        }
+    }
+
+    public static long logChars() {
+        synchronized (XposedBridge.class) {
+            return XposedBridge.logChars;
+        }
+    }
+
+    private static final class Hook {
+        final String className;
+        final String methodName;
+        final XC_MethodHook callback;
+
+        Hook(String className, String methodName, XC_MethodHook callback) {
+            this.className = className;
+            this.methodName = methodName;
+            this.callback = callback;
+        }
+    }
+}
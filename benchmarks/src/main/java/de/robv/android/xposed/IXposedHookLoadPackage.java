@@ -0,0 +1,11 @@
+package de.robv.android.xposed;
+
+import de.robv.android.xposed.callbacks.XC_LoadPackage;
+
+/**
+ * Host-JVM stand-in for the Xposed API interface of the same name
+ */
+public interface IXposedHookLoadPackage {
+
+    void handleLoadPackage(XC_LoadPackage.LoadPackageParam lpparam) throws Throwable;
+}
@@ -0,0 +1,49 @@
+package de.robv.android.xposed;
+
+import java.lang.reflect.Member;
+
+/**
+ * Host-JVM stand-in for the Xposed API class of the same name
+ * Callbacks are invoked by HostHooks.callMethod instead of ART
+ */
+public abstract class XC_MethodHook {
+
+    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+    }
+
+    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+    }
+
+    public static final class MethodHookParam {
+        public Object[] args;
+        public Member method;
+        public Object thisObject;
+        private Object result;
+        private Throwable throwable;
+
+        MethodHookParam() {
+        }
+
+        public Object getResult() {
+            return result;
+        }
+
+        public void setResult(Object result) {
+            this.result = result;
+            this.throwable = null;
+        }
+
+        public Throwable getThrowable() {
+            return throwable;
+        }
+
+        public boolean hasThrowable() {
+            return throwable != null;
+        }
+
+        public void setThrowable(Throwable throwable) {
+            this.throwable = throwable;
+            this.result = null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.robv.android.xposed;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Host-JVM stand-in for the Xposed API class of the same name
+ * log() builds the line like the real one but only counts it (-Dsimulation.log=true prints it)
+ */
+public final class XposedBridge {
+
+    private static final boolean PRINT = Boolean.getBoolean("simulation.log");
+
+    static long logLines;
+    static long logChars;
+
+    private XposedBridge() {
+    }
+
+    public static synchronized void log(String text) {
+        logLines++;
+        logChars += text.length();
+        if (PRINT) {
+            System.out.println(text);
+        }
+    }
+
+    public static synchronized void log(Throwable t) {
+        StringWriter trace = new StringWriter();
+        t.printStackTrace(new PrintWriter(trace));
+        log(trace.toString());
+    }
+}
@@ -0,0 +1,20 @@
+package de.robv.android.xposed;
+
+/**
+ * Host-JVM stand-in for the Xposed API class of the same name
+ * Hooks are only recorded - HostHooks.callMethod runs them around a simulated call
+ */
+public final class XposedHelpers {
+
+    private XposedHelpers() {
+    }
+
+    public static void findAndHookMethod(Class<?> clazz, String methodName, Object... parameterTypesAndCallback) {
+        HostHooks.register(clazz.getName(), methodName, parameterTypesAndCallback);
+    }
+
+    public static void findAndHookMethod(String className, ClassLoader classLoader, String methodName,
+                                         Object... parameterTypesAndCallback) {
+        HostHooks.register(className, methodName, parameterTypesAndCallback);
+    }
+}
@@ -0,0 +1,20 @@
+package de.robv.android.xposed.callbacks;
+
+/**
+ * Host-JVM stand-in for the Xposed API class of the same name
+ */
+public final class XC_LoadPackage {
+
+    private XC_LoadPackage() {
+    }
+
+    public static final class LoadPackageParam {
+        public ClassLoader classLoader;
+        public boolean isFirstApplication;
+        public String packageName;
+        public String processName;
+
+        LoadPackageParam() {
+        }
+    }
+}
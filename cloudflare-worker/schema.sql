@@ -34,7 +34,35 @@ CREATE TABLE IF NOT EXISTS access_logs (
   FOREIGN KEY (license_id) REFERENCES licenses(id)
 );
 
+-- Hourly access counts per license and action (rolled up from access_logs by the cron trigger)
+-- Admin stats read only this table; raw access_logs rows are pruned after the retention window
+CREATE TABLE IF NOT EXISTS access_log_hourly (
+  license_id INTEGER NOT NULL,   -- 0 = no license (unknown key, admin actions)
+  action TEXT NOT NULL,
+  hour INTEGER NOT NULL,         -- start of the hour (ms)
+  count INTEGER NOT NULL,
+  PRIMARY KEY (license_id, action, hour)
+) WITHOUT ROWID;
+
+-- Highest access_logs.id already counted in access_log_hourly (single row)
+CREATE TABLE IF NOT EXISTS access_log_rollup_state (
+  id INTEGER PRIMARY KEY CHECK (id = 1),
+  last_id INTEGER NOT NULL
+);
+
 -- Indexes for better performance
-CREATE INDEX IF NOT EXISTS idx_license_key ON licenses(license_key);
+-- License keys are looked up case-insensitively (license_key = ? COLLATE NOCASE)
+-- A NOCASE index lets those lookups seek instead of scanning the table
+-- Existing databases: the UNIQUE index fails on keys that differ only in case. Check first -
+-- every row returned has to be merged or renamed before the index is created:
+--   SELECT lower(license_key), count(*), group_concat(id) FROM licenses GROUP BY 1 HAVING count(*) > 1;
+-- The DROP below must only run once the CREATE succeeded (same batch: a failed CREATE stops it)
+CREATE UNIQUE INDEX IF NOT EXISTS idx_license_key_nocase ON licenses(license_key COLLATE NOCASE);
+-- Superseded by idx_license_key_nocase (existing databases)
+DROP INDEX IF EXISTS idx_license_key;
+-- Admin listing pages newest first with a (created_at, id) cursor
+CREATE INDEX IF NOT EXISTS idx_licenses_created ON licenses(created_at, id);
 CREATE INDEX IF NOT EXISTS idx_device_license ON devices(license_id);
 CREATE INDEX IF NOT EXISTS idx_device_id ON devices(device_id);
+CREATE INDEX IF NOT EXISTS idx_access_logs_timestamp ON access_logs(timestamp);
+CREATE INDEX IF NOT EXISTS idx_access_hourly_hour ON access_log_hourly(hour);
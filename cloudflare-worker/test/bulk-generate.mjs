@@ -0,0 +1,67 @@
+// Throughput of license generation: one key per request vs. bulk mode
+//
+// Run against local D1:
+//   npx wrangler d1 execute hotfix_licenses --local --file=schema.sql
+//   echo 'ADMIN_KEY="local-admin"' > .dev.vars
+//   npx wrangler dev --local
+//   ADMIN_KEY=local-admin node test/bulk-generate.mjs [baseUrl] [bulkCount] [singleCount]
+
+const baseUrl = process.argv[2] || 'http://127.0.0.1:8787';
+const bulkCount = parseInt(process.argv[3] || '10000', 10);
+const singleCount = parseInt(process.argv[4] || '200', 10);
+const adminKey = process.env.ADMIN_KEY || 'local-admin';
+
+async function generate(body) {
+  const response = await fetch(baseUrl + '/generate', {
+    method: 'POST',
+    headers: { 'Content-Type': 'application/json' },
+    body: JSON.stringify({ admin_key: adminKey, max_devices: 2, expires_days: 30, ...body })
+  });
+  if (!response.ok) {
+    throw new Error(`HTTP ${response.status}: ${await response.text()}`);
+  }
+  return response;
+}
+
+function rate(count, ms) {
+  return `${count} keys in ${ms.toFixed(0)} ms (${(count * 1000 / ms).toFixed(0)} keys/s)`;
+}
+
+// One request (and one INSERT) per key - what a loop over the old endpoint does
+let start = performance.now();
+for (let i = 0; i < singleCount; i++) {
+  const data = await (await generate({})).json();
+  if (!data.success) {
+    throw new Error(data.error);
+  }
+}
+const singleMs = performance.now() - start;
+console.log('single:', rate(singleCount, singleMs));
+
+// Bulk mode - one request, one transaction, keys streamed back
+start = performance.now();
+const response = await generate({ count: bulkCount });
+const keys = (await response.text()).split('\n').filter(Boolean);
+const bulkMs = performance.now() - start;
+console.log('bulk:  ', rate(keys.length, bulkMs));
+
+if (keys.length !== bulkCount || new Set(keys).size !== bulkCount) {
+  throw new Error(`Expected ${bulkCount} unique keys, got ${keys.length} (${new Set(keys).size} unique)`);
+}
+if (response.headers.get('X-License-Count') !== String(bulkCount)) {
+  throw new Error('X-License-Count mismatch: ' + response.headers.get('X-License-Count'));
+}
+
+// Every streamed key must exist - activate a sample
+for (const key of [keys[0], keys[keys.length >> 1], keys[keys.length - 1]]) {
+  const activation = await (await fetch(baseUrl + '/activate', {
+    method: 'POST',
+    headers: { 'Content-Type': 'application/json' },
+    body: JSON.stringify({ license_key: key, device_id: 'bulk-test-device', device_info: 'bulk-generate.mjs' })
+  })).json();
+  if (!activation.success) {
+    throw new Error(`Key ${key} does not activate: ${activation.error}`);
+  }
+}
+
+console.log(`speedup: ${((bulkCount / bulkMs) / (singleCount / singleMs)).toFixed(1)}x per key`);
@@ -0,0 +1,379 @@
+// Local load test for the license worker: Miniflare + local SQLite-backed D1
+//
+//   cd cloudflare-worker && npm install
+//   npm run loadtest -- --target=worker --licenses=10000 --concurrency=50 --duration=30
+//   npm run loadtest -- --target=server --json=results.json
+//
+// --target=worker   cloudflare-worker/worker.js (plain JSON, session tokens)
+// --target=server   server/cloudflare-worker.js (XOR envelope + nonces, as sent by LicenseClient)
+//
+// Seeds N licenses (most already activated), then a fleet of virtual devices replays
+// /verify with a share of /activate for the rest. Each device runs one request at a time,
+// so nonces chain exactly like on a phone. Reports per endpoint: throughput,
+// p50/p95/p99 latency and D1 rows read/written (summed from D1 result meta in the worker).
+
+import { readFileSync, writeFileSync } from 'node:fs';
+import { dirname, resolve } from 'node:path';
+import { fileURLToPath } from 'node:url';
+import { Miniflare } from 'miniflare';
+
+const root = resolve(dirname(fileURLToPath(import.meta.url)), '..', '..');
+
+const args = Object.fromEntries(process.argv.slice(2).map(arg => {
+  const [key, value = 'true'] = arg.replace(/^--/, '').split('=');
+  return [key, value];
+}));
+
+const target = args.target || 'worker';
+const licenseCount = parseInt(args.licenses || '10000', 10);
+const concurrency = parseInt(args.concurrency || '50', 10);
+const durationMs = parseFloat(args.duration || '30') * 1000;
+const activatedShare = parseFloat(args.activated || '0.9');   // seeded licenses that already have a device
+const activateShare = parseFloat(args['activate-share'] || '0.02'); // requests that activate a new device
+const ADMIN_KEY = 'loadtest-admin';
+
+const TARGETS = {
+  worker: {
+    script: 'cloudflare-worker/worker.js',
+    schema: 'cloudflare-worker/schema.sql',
+    compatibilityFlags: [],
+    bindings: { ADMIN_KEY, LAST_CHECK_GRANULARITY_MS: '900000' }
+  },
+  server: {
+    script: 'server/cloudflare-worker.js',
+    schema: 'server/database-schema.sql',
+    compatibilityFlags: ['nodejs_compat'], // Buffer
+    bindings: args.hmac ? { NONCE_SCHEME: 'hmac', NONCE_SECRET: 'loadtest-secret' } : {}
+  }
+};
+
+// Entry module: wraps env.DB so every D1 result's meta is summed per endpoint,
+// including writes deferred with ctx.waitUntil. GET /__loadtest/stats returns the sums
+const HARNESS_ENTRY = `
+import worker from './worker.js';
+
+const rows = {};
+
+function count(endpoint, result) {
+  const meta = result && result.meta;
+  if (!meta) return;
+  const entry = rows[endpoint] || (rows[endpoint] = { read: 0, written: 0, statements: 0 });
+  entry.read += meta.rows_read || 0;
+  entry.written += meta.rows_written || 0;
+  entry.statements++;
+}
+
+function wrapStatement(endpoint, statement) {
+  return {
+    inner: statement,
+    bind: (...values) => wrapStatement(endpoint, statement.bind(...values)),
+    async run() { const r = await statement.run(); count(endpoint, r); return r; },
+    async all() { const r = await statement.all(); count(endpoint, r); return r; },
+    async first(column) {
+      const r = await statement.all();
+      count(endpoint, r);
+      const row = r.results[0] ?? null;
+      return column === undefined || row === null ? row : row[column] ?? null;
+    },
+    async raw(options) { return statement.raw(options); }
+  };
+}
+
+function wrapDatabase(endpoint, db) {
+  return {
+    prepare: sql => wrapStatement(endpoint, db.prepare(sql)),
+    async batch(statements) {
+      const results = await db.batch(statements.map(s => s.inner));
+      results.forEach(r => count(endpoint, r));
+      return results;
+    },
+    exec: sql => db.exec(sql),
+    dump: () => db.dump()
+  };
+}
+
+export default {
+  async fetch(request, env, ctx) {
+    const path = new URL(request.url).pathname;
+    if (path === '/__loadtest/stats') {
+      return Response.json(rows);
+    }
+    return worker.fetch(request, { ...env, DB: wrapDatabase(path, env.DB) }, ctx);
+  },
+
+  async scheduled(event, env, ctx) {
+    return worker.scheduled?.(event, { ...env, DB: wrapDatabase('scheduled', env.DB) }, ctx);
+  }
+};
+`;
+
+// ==================== SEEDING ====================
+
+function randomKey(alphabet, length) {
+  const bytes = crypto.getRandomValues(new Uint8Array(length));
+  let key = '';
+  for (let i = 0; i < length; i++) {
+    key += alphabet[bytes[i] % alphabet.length];
+  }
+  return key;
+}
+
+const UPPER = 'ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789';
+
+function schemaStatements(file) {
+  return readFileSync(resolve(root, file), 'utf8')
+    .split('\n').filter(line => !line.trim().startsWith('--')).join('\n')
+    .split(/;\s*(?:\n|$)/).map(s => s.trim()).filter(Boolean);
+}
+
+async function insertChunks(db, sql, rows, chunk = 1000) {
+  const statements = [];
+  for (let i = 0; i < rows.length; i += chunk) {
+    statements.push(db.prepare(sql).bind(JSON.stringify(rows.slice(i, i + chunk))));
+  }
+  await db.batch(statements);
+}
+
+// worker.js: licenses + devices; session tokens are what generateSessionToken() issues
+async function seedWorker(db, devices) {
+  const now = Date.now();
+  await insertChunks(db,
+    `INSERT INTO licenses (license_key, max_devices, expires_at, created_at)
+     SELECT json_extract(value, '$[0]'), 2, json_extract(value, '$[1]'), json_extract(value, '$[2]') FROM json_each(?)`,
+    devices.map(d => [d.licenseKey, now + 30 * 86400000, now]));
+
+  await insertChunks(db,
+    `INSERT INTO devices (license_id, device_id, device_info, activated_at)
+     SELECT l.id, json_extract(value, '$[1]'), 'loadtest', ${now}
+     FROM json_each(?) JOIN licenses l ON l.license_key = json_extract(value, '$[0]')`,
+    devices.filter(d => d.activated).map(d => [d.licenseKey, d.deviceId]));
+
+  for (const d of devices) {
+    if (d.activated) {
+      d.sessionToken = btoa(`${d.licenseKey}:${d.deviceId}:${now}`);
+    }
+  }
+}
+
+// server/cloudflare-worker.js: one license row holds its device, session token and nonce
+async function seedServer(db, devices) {
+  const now = Date.now();
+  await insertChunks(db,
+    `INSERT INTO licenses (license_key, device_id, session_token, nonce, nonce_timestamp, status, created_at, expires_at)
+     SELECT json_extract(value, '$[0]'), json_extract(value, '$[1]'), json_extract(value, '$[2]'),
+            json_extract(value, '$[3]'), ${now}, 'active', ${now}, ${now + 30 * 86400000}
+     FROM json_each(?)`,
+    devices.map(d => d.activated
+      ? [d.licenseKey, d.deviceId, d.sessionToken = randomKey(UPPER, 32), d.nonce = randomKey(UPPER, 32)]
+      : [d.licenseKey, null, null, randomKey(UPPER, 32)]));
+}
+
+function createFleet() {
+  const devices = [];
+  for (let i = 0; i < licenseCount; i++) {
+    devices.push({
+      licenseKey: target === 'server'
+        ? [0, 1, 2, 3].map(() => randomKey(UPPER, 5)).join('-')
+        : randomKey(UPPER, 32),
+      deviceId: 'loadtest-' + randomKey('0123456789abcdef', 16),
+      activated: i < licenseCount * activatedShare,
+      busy: false
+    });
+  }
+  return devices;
+}
+
+// ==================== CLIENT PROTOCOLS ====================
+
+// Same key and XOR as LicenseClient / XorCodec: last 8 of device_id + first 8 of license_key
+function xorKey(deviceId, licenseKey) {
+  return deviceId.slice(-8) + licenseKey.slice(0, 8);
+}
+
+function xor(bytes, key) {
+  const keyBytes = Buffer.from(key, 'utf8');
+  const out = Buffer.alloc(bytes.length);
+  for (let i = 0; i < bytes.length; i++) {
+    out[i] = bytes[i] ^ keyBytes[i % keyBytes.length];
+  }
+  return out;
+}
+
+const encryptEnvelope = (data, key) => xor(Buffer.from(JSON.stringify(data), 'utf8'), key).toString('base64');
+const decryptEnvelope = (body, key) => JSON.parse(xor(Buffer.from(body.encrypted, 'base64'), key).toString('utf8'));
+
+const PROTOCOLS = {
+  worker: {
+    activate: d => ({ license_key: d.licenseKey, device_id: d.deviceId, device_info: 'loadtest' }),
+    verify: d => ({ session_token: d.sessionToken, device_id: d.deviceId }),
+    result(d, endpoint, body) {
+      if (endpoint === '/activate' && body.success) {
+        d.sessionToken = body.session_token;
+      }
+      return body;
+    }
+  },
+  server: {
+    activate: d => ({
+      license_key: d.licenseKey,
+      device_id: d.deviceId,
+      encrypted: encryptEnvelope({ license_key: d.licenseKey, device_id: d.deviceId, device_info: { model: 'loadtest' } },
+        xorKey(d.deviceId, d.licenseKey))
+    }),
+    verify: d => ({
+      license_key: d.licenseKey,
+      encrypted: encryptEnvelope({ license_key: d.licenseKey, session_token: d.sessionToken, nonce: d.nonce, device_id: d.deviceId },
+        xorKey(d.deviceId, d.licenseKey))
+    }),
+    result(d, endpoint, body) {
+      const data = body.encrypted ? decryptEnvelope(body, xorKey(d.deviceId, d.licenseKey)) : body;
+      if (data.success) {
+        if (data.session_token) d.sessionToken = data.session_token;
+        if (data.nonce) d.nonce = data.nonce;
+      }
+      return data;
+    }
+  }
+};
+
+// ==================== RUN ====================
+
+function percentile(sorted, p) {
+  if (sorted.length === 0) return 0;
+  return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p))];
+}
+
+async function main() {
+  const config = TARGETS[target];
+  if (!config) {
+    throw new Error(`Unknown --target=${target} (worker | server)`);
+  }
+
+  const mf = new Miniflare({
+    modules: [
+      { type: 'ESModule', path: 'loadtest-entry.js', contents: HARNESS_ENTRY },
+      { type: 'ESModule', path: 'worker.js', contents: readFileSync(resolve(root, config.script), 'utf8') }
+    ],
+    compatibilityDate: '2024-01-01',
+    compatibilityFlags: config.compatibilityFlags,
+    d1Databases: { DB: 'loadtest-' + target },
+    bindings: config.bindings
+  });
+
+  try {
+    const db = await mf.getD1Database('DB');
+    for (const statement of schemaStatements(config.schema)) {
+      await db.prepare(statement).run();
+    }
+
+    const devices = createFleet();
+    const seedStart = performance.now();
+    await (target === 'server' ? seedServer : seedWorker)(db, devices);
+    console.log(`🌱 Seeded ${devices.length} licenses (${devices.filter(d => d.activated).length} activated) in ` +
+      `${(performance.now() - seedStart).toFixed(0)} ms`);
+
+    const protocol = PROTOCOLS[target];
+    const inactive = devices.filter(d => !d.activated);
+    const stats = { '/activate': { latencies: [], errors: 0 }, '/verify': { latencies: [], errors: 0 } };
+    const firstErrors = [];
+
+    // Next device for a virtual client: mostly verifies, activateShare new activations
+    function pick() {
+      if (inactive.length > 0 && Math.random() < activateShare) {
+        const d = inactive.pop();
+        d.busy = true;
+        return [d, '/activate'];
+      }
+      for (let tries = 0; tries < 100; tries++) {
+        const d = devices[Math.floor(Math.random() * devices.length)];
+        if (d.activated && !d.busy && d.sessionToken) {
+          d.busy = true;
+          return [d, '/verify'];
+        }
+      }
+      return [null, null];
+    }
+
+    async function client(deadline) {
+      while (performance.now() < deadline) {
+        const [d, endpoint] = pick();
+        if (!d) {
+          await new Promise(r => setTimeout(r, 1));
+          continue;
+        }
+
+        const payload = endpoint === '/activate' ? protocol.activate(d) : protocol.verify(d);
+        const start = performance.now();
+        try {
+          const response = await mf.dispatchFetch('http://localhost' + endpoint, {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify(payload)
+          });
+          const body = await response.json();
+          stats[endpoint].latencies.push(performance.now() - start);
+
+          const data = protocol.result(d, endpoint, body);
+          if (data.success) {
+            d.activated = true;
+          } else {
+            stats[endpoint].errors++;
+            if (firstErrors.length < 5) firstErrors.push(`${endpoint}: ${data.error}`);
+            d.activated = false; // burned / unauthorized - stop driving this device
+          }
+        } catch (error) {
+          stats[endpoint].errors++;
+          if (firstErrors.length < 5) firstErrors.push(`${endpoint}: ${error.message}`);
+        } finally {
+          d.busy = false;
+        }
+      }
+    }
+
+    console.log(`🚀 ${concurrency} clients for ${durationMs / 1000}s against ${config.script}`);
+    const runStart = performance.now();
+    await Promise.all(Array.from({ length: concurrency }, () => client(runStart + durationMs)));
+    const elapsed = (performance.now() - runStart) / 1000;
+
+    // Deferred (waitUntil) writes finish after the responses - let them land before reading the sums
+    await new Promise(r => setTimeout(r, 500));
+    const rows = await (await mf.dispatchFetch('http://localhost/__loadtest/stats')).json();
+
+    const report = {};
+    for (const [endpoint, s] of Object.entries(stats)) {
+      const sorted = s.latencies.slice().sort((a, b) => a - b);
+      const n = sorted.length;
+      const r = rows[endpoint] || { read: 0, written: 0, statements: 0 };
+      report[endpoint] = {
+        requests: n,
+        errors: s.errors,
+        rps: +(n / elapsed).toFixed(1),
+        p50_ms: +percentile(sorted, 0.50).toFixed(2),
+        p95_ms: +percentile(sorted, 0.95).toFixed(2),
+        p99_ms: +percentile(sorted, 0.99).toFixed(2),
+        rows_read_per_req: n ? +(r.read / n).toFixed(2) : 0,
+        rows_written_per_req: n ? +(r.written / n).toFixed(2) : 0,
+        statements_per_req: n ? +(r.statements / n).toFixed(2) : 0
+      };
+    }
+
+    console.table(report);
+    if (firstErrors.length > 0) {
+      console.log('⚠️ First errors:', firstErrors);
+    }
+
+    if (args.json) {
+      writeFileSync(args.json, JSON.stringify({
+        target, licenses: licenseCount, concurrency, duration_s: elapsed, endpoints: report
+      }, null, 2));
+      console.log('📄 Results written to', args.json);
+    }
+  } finally {
+    await mf.dispose();
+  }
+}
+
+main().catch(error => {
+  console.error('❌', error);
+  process.exit(1);
+});
@@ -0,0 +1,42 @@
+-- Query plans for the license lookups, on a local SQLite copy with 1M licenses
+-- Run from cloudflare-worker/:  sqlite3 < test/query-plan.sql
+-- Every lookup must show "SEARCH ... USING INDEX", never "SCAN licenses"
+
+.read schema.sql
+
+-- Seed 1M licenses (mixed case, like keys generated before upper-case keys)
+WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 1000000)
+INSERT INTO licenses (license_key, max_devices, expires_at, created_at)
+SELECT printf('Key%08dAbCd', i), 2, NULL, 1700000000000 FROM n;
+
+INSERT INTO devices (license_id, device_id, device_info, activated_at)
+SELECT id, 'device-' || id, NULL, 1700000000000 FROM licenses WHERE id % 100 = 0;
+
+ANALYZE;
+
+.print '--- activate / verify: license by key'
+EXPLAIN QUERY PLAN SELECT * FROM licenses WHERE license_key = 'KEY00500000ABCD' COLLATE NOCASE;
+
+.print '--- revoke'
+EXPLAIN QUERY PLAN UPDATE licenses SET is_active = 0 WHERE license_key = 'KEY00500000ABCD' COLLATE NOCASE;
+
+.print '--- match is case-insensitive (expect 1)'
+SELECT COUNT(*) FROM licenses WHERE license_key = 'KEY00500000ABCD' COLLATE NOCASE;
+
+.print '--- admin listing: one page, keyset on (created_at, id) (expect no "TEMP B-TREE")'
+EXPLAIN QUERY PLAN
+SELECT l.id, l.license_key, l.max_devices, l.is_active, l.expires_at, l.created_at, COUNT(d.id) AS device_count
+FROM licenses l
+LEFT JOIN devices d ON d.license_id = l.id
+WHERE (l.created_at, l.id) < (9007199254740991, 9007199254740991)
+  AND l.is_active = 1 AND (l.expires_at IS NULL OR l.expires_at > 1700000000000)
+GROUP BY l.created_at, l.id
+HAVING COUNT(d.id) >= 1
+ORDER BY l.created_at DESC, l.id DESC
+LIMIT 51;
+
+.print '--- admin listing: devices of one page'
+EXPLAIN QUERY PLAN
+SELECT license_id, device_id, device_info, activated_at, last_check
+FROM devices WHERE license_id IN (SELECT value FROM json_each('[100,200,300]'))
+ORDER BY license_id, activated_at;
@@ -4,8 +4,12 @@
 const ENCRYPTION_KEY = 'Kh7Gm2Qp5Rt8Wx4Zv1Nc9Bs6Yf3Dj0L'; // Must match Android app
 
 export default {
-  async fetch(request, env) {
+  async fetch(request, env, ctx) {
     const url = new URL(request.url);
+    licenseCacheOrigin = url.origin;
+
+    // Access log events of this request - written in one INSERT after the response
+    const accessLog = createAccessLog(request);
 
     // Normalize path - remove double slashes
     let path = url.pathname.replace(/\/+/g, '/');
@@ -49,7 +53,17 @@ export default {
         const body = await request.json();
         console.log('📦 Request Body:', body);
 
-        const result = await generateLicense(env, body);
+        // Bulk mode: N keys in one transaction, streamed back one per line
+        if (body.count !== undefined) {
+          const result = await generateLicenses(env, body, accessLog);
+          if (!result.success) {
+            return jsonResponse(result, corsHeaders, 400);
+          }
+          console.log('✅ Generated licenses:', result.keys.length);
+          return licenseKeysResponse(result, corsHeaders);
+        }
+
+        const result = await generateLicense(env, body, accessLog);
         console.log('✅ Generate Result:', result);
 
         return jsonResponse(result, corsHeaders);
@@ -58,14 +72,14 @@ export default {
       // Activate License
       if (request.method === 'POST' && path === '/activate') {
         console.log('🚀 Activate License Request');
-        const body = await request.json();
+        const body = await readJsonBody(request);
         console.log('📦 Request Body:', {
           license_key: body.license_key,
           device_id: body.device_id?.substring(0, 10) + '...',
           device_info: body.device_info
         });
 
-        const result = await activateLicense(env, body);
+        const result = await activateLicense(env, body, accessLog);
         console.log('✅ Activate Result:', result);
 
         return jsonResponse(result, corsHeaders);
@@ -74,16 +88,21 @@ export default {
       // Verify License
       if (request.method === 'POST' && path === '/verify') {
         console.log('✔️ Verify License Request');
-        const body = await request.json();
+        const body = await readJsonBody(request);
         console.log('📦 Request Body:', {
           session_token: body.session_token?.substring(0, 20) + '...',
           device_id: body.device_id?.substring(0, 10) + '...'
         });
 
-        const result = await verifyLicense(env, body);
+        const started = performance.now();
+        const timing = {};
+        const result = await verifyLicense(env, body, ctx, accessLog, timing);
         console.log('✅ Verify Result:', result);
 
-        return jsonResponse(result, corsHeaders);
+        return jsonResponse(result, {
+          ...corsHeaders,
+          'Server-Timing': verifyServerTiming(timing, performance.now() - started)
+        });
       }
 
       // Revoke License
@@ -92,12 +111,34 @@ export default {
         const body = await request.json();
         console.log('📦 Request Body:', body);
 
-        const result = await revokeLicense(env, body);
+        const result = await revokeLicense(env, body, accessLog);
         console.log('✅ Revoke Result:', result);
 
         return jsonResponse(result, corsHeaders);
       }
 
+      // List Licenses (keyset-paginated)
+      if (request.method === 'POST' && path === '/licenses') {
+        console.log('📋 List Licenses Request');
+        const body = await request.json();
+
+        const result = await listLicenses(env, body);
+        console.log('✅ List Result:', { success: result.success, count: result.licenses?.length });
+
+        return jsonResponse(result, corsHeaders);
+      }
+
+      // Access Stats (hourly rollups)
+      if (request.method === 'POST' && path === '/stats') {
+        console.log('📊 Access Stats Request');
+        const body = await request.json();
+
+        const result = await getAccessStats(env, body);
+        console.log('✅ Stats Result:', { success: result.success, rows: result.stats?.length });
+
+        return jsonResponse(result, corsHeaders);
+      }
+
       // Unknown endpoint
       console.error('❌ Unknown endpoint:', {
         method: request.method,
@@ -116,7 +157,23 @@ export default {
         success: false,
         error: error.message
       }, corsHeaders, 500);
+    } finally {
+      if (accessLog.events.length > 0) {
+        const flush = flushAccessLog(env, accessLog)
+          .catch(error => console.error('❌ Access log insert failed:', error.message));
+        if (ctx) {
+          ctx.waitUntil(flush);
+        } else {
+          await flush;
+        }
+      }
     }
+  },
+
+  // Cron trigger (wrangler.toml [triggers]) - roll access logs up into hourly counts, prune raw rows
+  async scheduled(event, env, ctx) {
+    console.log('⏰ Scheduled run:', event.cron);
+    ctx.waitUntil(runAccessLogMaintenance(env, event.scheduledTime || Date.now()));
   }
 };
 
@@ -131,8 +188,17 @@ function jsonResponse(data, headers = {}, status = 200) {
   });
 }
 
+// Helper: read JSON body (the Android client gzips large bodies - Content-Encoding: gzip)
+async function readJsonBody(request) {
+  if ((request.headers.get('Content-Encoding') || '').toLowerCase() === 'gzip') {
+    const stream = request.body.pipeThrough(new DecompressionStream('gzip'));
+    return JSON.parse(await new Response(stream).text());
+  }
+  return request.json();
+}
+
 // Generate License
-async function generateLicense(env, body) {
+async function generateLicense(env, body, accessLog) {
   const { admin_key, max_devices = 2, expires_days = 30 } = body;
 
   console.log('🔐 Checking admin key...');
@@ -157,6 +223,7 @@ async function generateLicense(env, body) {
     ).bind(licenseKey, max_devices, expiresAt, Date.now()).run();
 
     console.log('✅ License created successfully');
+    accessLog?.add(null, null, 'generate');
     return {
       success: true,
       license_key: licenseKey,
@@ -170,17 +237,99 @@ async function generateLicense(env, body) {
   }
 }
 
+// Bulk generation: at most this many keys per request
+const MAX_BULK_LICENSES = 10000;
+
+// Keys per INSERT - bound as one JSON array, so D1's 100-parameter limit does not apply
+const BULK_INSERT_CHUNK = 1000;
+
+// Generate Licenses (bulk)
+// All chunks run in one D1 batch, which is a single transaction: either every key exists or none
+async function generateLicenses(env, body, accessLog) {
+  const { admin_key, count, max_devices = 2, expires_days = 30 } = body;
+
+  console.log('🔐 Checking admin key...');
+  if (!admin_key || admin_key !== env.ADMIN_KEY) {
+    console.error('❌ Invalid admin key');
+    return { success: false, error: 'Invalid admin key' };
+  }
+
+  const total = parseInt(count, 10);
+  if (!(total >= 1 && total <= MAX_BULK_LICENSES)) {
+    return { success: false, error: `count must be between 1 and ${MAX_BULK_LICENSES}` };
+  }
+
+  const keys = new Set();
+  while (keys.size < total) {
+    keys.add(generateRandomKey(32));
+  }
+  const licenseKeys = [...keys];
+
+  const now = Date.now();
+  const expiresAt = expires_days > 0 ? now + (expires_days * 24 * 60 * 60 * 1000) : null;
+
+  const statements = [];
+  for (let i = 0; i < licenseKeys.length; i += BULK_INSERT_CHUNK) {
+    statements.push(env.DB.prepare(
+      `INSERT INTO licenses (license_key, max_devices, expires_at, created_at)
+       SELECT value, ?, ?, ? FROM json_each(?)`
+    ).bind(max_devices, expiresAt, now, JSON.stringify(licenseKeys.slice(i, i + BULK_INSERT_CHUNK))));
+  }
+
+  console.log('💾 Inserting licenses...', { count: total, statements: statements.length });
+  try {
+    await env.DB.batch(statements);
+  } catch (error) {
+    console.error('❌ Database error:', error.message);
+    return { success: false, error: 'Database error: ' + error.message };
+  }
+
+  accessLog?.add(null, null, 'generate_bulk');
+  return { success: true, keys: licenseKeys, max_devices, expires_at: expiresAt };
+}
+
+// Stream license keys as text/plain, one per line - written only after the batch committed
+function licenseKeysResponse(result, headers) {
+  const { keys } = result;
+  const encoder = new TextEncoder();
+  let next = 0;
+
+  const stream = new ReadableStream({
+    pull(controller) {
+      if (next >= keys.length) {
+        controller.close();
+        return;
+      }
+      const chunk = keys.slice(next, next + BULK_INSERT_CHUNK);
+      next += chunk.length;
+      controller.enqueue(encoder.encode(chunk.join('\n') + '\n'));
+    }
+  });
+
+  return new Response(stream, {
+    headers: {
+      'Content-Type': 'text/plain; charset=utf-8',
+      'Content-Disposition': 'attachment; filename="licenses.txt"',
+      'X-License-Count': String(keys.length),
+      'X-Max-Devices': String(result.max_devices),
+      'X-Expires-At': result.expires_at ? String(result.expires_at) : 'never',
+      ...headers
+    }
+  });
+}
+
 // Activate License
-async function activateLicense(env, body) {
+async function activateLicense(env, body, accessLog) {
   const { license_key, device_id, device_info } = body;
 
   console.log('🔍 Looking up license...');
   const license = await env.DB.prepare(
-    'SELECT * FROM licenses WHERE UPPER(license_key) = UPPER(?)'
-  ).bind(license_key).first();
+    'SELECT * FROM licenses WHERE license_key = ? COLLATE NOCASE'
+  ).bind(canonicalLicenseKey(license_key)).first();
 
   if (!license) {
     console.error('❌ License not found');
+    accessLog?.add(null, device_id, 'activate_failed');
     return { success: false, error: 'Invalid license key' };
   }
 
@@ -193,11 +342,13 @@ async function activateLicense(env, body) {
 
   if (!license.is_active) {
     console.error('❌ License is revoked');
+    accessLog?.add(license.id, device_id, 'activate_failed');
     return { success: false, error: 'License has been revoked' };
   }
 
   if (license.expires_at && Date.now() > license.expires_at) {
     console.error('❌ License expired');
+    accessLog?.add(license.id, device_id, 'activate_failed');
     return { success: false, error: 'License has expired' };
   }
 
@@ -213,6 +364,7 @@ async function activateLicense(env, body) {
   const existingDevice = devices.results.find(d => d.device_id === device_id);
   if (existingDevice) {
     console.log('✅ Device already activated');
+    accessLog?.add(license.id, device_id, 'activate');
     const sessionToken = generateSessionToken(license_key, device_id);
     return {
       success: true,
@@ -225,6 +377,7 @@ async function activateLicense(env, body) {
   // Check device limit
   if (devices.results.length >= license.max_devices) {
     console.error('❌ Device limit reached');
+    accessLog?.add(license.id, device_id, 'activate_failed');
     return {
       success: false,
       error: `Maximum ${license.max_devices} devices allowed. Current: ${devices.results.length}`
@@ -241,6 +394,7 @@ async function activateLicense(env, body) {
   const sessionToken = generateSessionToken(license_key, device_id);
 
   console.log('✅ Device activated successfully');
+  accessLog?.add(license.id, device_id, 'activate');
   return {
     success: true,
     session_token: sessionToken,
@@ -250,52 +404,84 @@ async function activateLicense(env, body) {
 }
 
 // Verify License
-async function verifyLicense(env, body) {
+async function verifyLicense(env, body, ctx, accessLog, timing = {}) {
   const { session_token, device_id } = body;
 
   // Decode session token
   const tokenData = decodeSessionToken(session_token);
   if (!tokenData) {
     console.error('❌ Invalid session token');
+    accessLog?.add(null, device_id, 'verify_failed');
     return { success: false, error: 'Invalid session token', valid: false };
   }
 
-  console.log('🔍 Looking up license for verification...');
-  const license = await env.DB.prepare(
-    'SELECT * FROM licenses WHERE UPPER(license_key) = UPPER(?)'
-  ).bind(tokenData.license_key).first();
+  const licenseKey = canonicalLicenseKey(tokenData.license_key);
+  const cacheKey = licenseCacheKey(licenseKey, device_id);
+  await syncLicenseCacheGeneration();
+
+  let row = licenseCacheGet(cacheKey);
+  timing.cache = row ? 'hit' : 'miss';
+
+  if (!row) {
+    // License and device in one round trip - only the columns the checks need
+    console.log('🔍 Looking up license for verification...');
+    const queryStarted = performance.now();
+    row = await env.DB.prepare(
+      `SELECT l.id, l.is_active, l.expires_at, d.id AS device_row_id, d.last_check
+       FROM licenses l
+       LEFT JOIN devices d ON d.license_id = l.id AND d.device_id = ?
+       WHERE l.license_key = ? COLLATE NOCASE`
+    ).bind(device_id, licenseKey).first();
+    timing.d1License = performance.now() - queryStarted;
+
+    // Only authorized, active rows - a device activated a moment ago must not see a cached "not authorized"
+    if (row && row.is_active && row.device_row_id !== null && row.device_row_id !== undefined) {
+      licenseCacheSet(cacheKey, row);
+    }
+  }
 
-  if (!license || !license.is_active) {
+  if (!row || !row.is_active) {
     console.error('❌ License not active');
+    accessLog?.add(row ? row.id : null, device_id, 'verify_failed');
     return { success: false, error: 'License not active', valid: false };
   }
 
-  if (license.expires_at && Date.now() > license.expires_at) {
+  if (row.expires_at && Date.now() > row.expires_at) {
     console.error('❌ License expired');
+    accessLog?.add(row.id, device_id, 'verify_failed');
     return { success: false, error: 'License expired', valid: false };
   }
 
-  // Check device
-  const device = await env.DB.prepare(
-    'SELECT * FROM devices WHERE license_id = ? AND device_id = ?'
-  ).bind(license.id, device_id).first();
-
-  if (!device) {
+  if (row.device_row_id === null || row.device_row_id === undefined) {
     console.error('❌ Device not authorized');
+    accessLog?.add(row.id, device_id, 'verify_failed');
     return { success: false, error: 'Device not authorized', valid: false };
   }
 
-  // Update last check
-  await env.DB.prepare(
-    'UPDATE devices SET last_check = ? WHERE id = ?'
-  ).bind(Date.now(), device.id).run();
+  // Update last check after the response is sent - the client never waits for this write
+  // Skipped while the stored value is within the granularity (most checks, with 5-minute clients)
+  const now = Date.now();
+  const granularity = lastCheckGranularity(env);
+  if (!row.last_check || now - row.last_check >= granularity) {
+    const touch = env.DB.prepare(
+      'UPDATE devices SET last_check = ? WHERE id = ? AND (last_check IS NULL OR last_check <= ?)'
+    ).bind(now, row.device_row_id, now - granularity).run();
+    // Also updates a cached row, so hits do not repeat the write
+    row.last_check = now;
+    if (ctx) {
+      ctx.waitUntil(touch.catch(error => console.error('❌ last_check update failed:', error.message)));
+    } else {
+      await touch;
+    }
+  }
 
   console.log('✅ License verified successfully');
-  return { success: true, valid: true };
+  accessLog?.add(row.id, device_id, 'verify');
+  return { success: true, valid: true, ...pollingAdvice(env, now, row.expires_at, TOKEN_EXPIRY) };
 }
 
 // Revoke License
-async function revokeLicense(env, body) {
+async function revokeLicense(env, body, accessLog) {
   const { admin_key, license_key } = body;
 
   if (!admin_key || admin_key !== env.ADMIN_KEY) {
@@ -305,16 +491,449 @@ async function revokeLicense(env, body) {
 
   console.log('🗑️ Revoking license...');
   await env.DB.prepare(
-    'UPDATE licenses SET is_active = 0 WHERE UPPER(license_key) = UPPER(?)'
-  ).bind(license_key).run();
+    'UPDATE licenses SET is_active = 0 WHERE license_key = ? COLLATE NOCASE'
+  ).bind(canonicalLicenseKey(license_key)).run();
+
+  // Drop cached rows here, and tell the other isolates
+  licenseCacheInvalidate(canonicalLicenseKey(license_key));
+  await bumpLicenseCacheGeneration();
 
   console.log('✅ License revoked');
+  accessLog?.add(null, null, 'revoke');
   return { success: true, message: 'License revoked' };
 }
 
-// Generate random key
+// Listing page size (default / maximum)
+const LIST_PAGE_SIZE = 50;
+const LIST_MAX_PAGE_SIZE = 200;
+
+// List Licenses - newest first, keyset-paginated on (created_at, id)
+// The cursor is the last row's position, so every page is an index seek on idx_licenses_created,
+// however deep - no OFFSET. Device counts come from a join on idx_device_license,
+// grouped in index order, so SQLite stops after one page
+async function listLicenses(env, body) {
+  const {
+    admin_key, cursor, limit, status,
+    expires_after, expires_before, min_devices, max_devices,
+    include_devices = false
+  } = body;
+
+  if (!admin_key || admin_key !== env.ADMIN_KEY) {
+    console.error('❌ Invalid admin key');
+    return { success: false, error: 'Invalid admin key' };
+  }
+
+  const pageSize = Math.min(Math.max(parseInt(limit, 10) || LIST_PAGE_SIZE, 1), LIST_MAX_PAGE_SIZE);
+  const now = Date.now();
+
+  // The first page is bounded too - without a range on created_at SQLite would
+  // scan and sort the whole table as soon as any other filter is present
+  let position = [Number.MAX_SAFE_INTEGER, Number.MAX_SAFE_INTEGER];
+  if (cursor) {
+    position = String(cursor).split('.').map(Number);
+    if (position.length !== 2 || !position.every(Number.isFinite)) {
+      return { success: false, error: 'Invalid cursor' };
+    }
+  }
+
+  const where = ['(l.created_at, l.id) < (?, ?)'];
+  const params = [...position];
+
+  if (status === 'active') {
+    where.push('l.is_active = 1 AND (l.expires_at IS NULL OR l.expires_at > ?)');
+    params.push(now);
+  } else if (status === 'expired') {
+    where.push('l.is_active = 1 AND l.expires_at <= ?');
+    params.push(now);
+  } else if (status === 'revoked') {
+    where.push('l.is_active = 0');
+  } else if (status) {
+    return { success: false, error: 'status must be active, expired or revoked' };
+  }
+
+  if (expires_after !== undefined) {
+    where.push('l.expires_at >= ?');
+    params.push(Number(expires_after));
+  }
+  if (expires_before !== undefined) {
+    where.push('l.expires_at < ?');
+    params.push(Number(expires_before));
+  }
+
+  const having = [];
+  if (min_devices !== undefined) {
+    having.push('COUNT(d.id) >= ?');
+    params.push(Number(min_devices));
+  }
+  if (max_devices !== undefined) {
+    having.push('COUNT(d.id) <= ?');
+    params.push(Number(max_devices));
+  }
+
+  // One extra row tells whether there is a next page
+  params.push(pageSize + 1);
+
+  const rows = await env.DB.prepare(
+    `SELECT l.id, l.license_key, l.max_devices, l.is_active, l.expires_at, l.created_at,
+            COUNT(d.id) AS device_count
+     FROM licenses l
+     LEFT JOIN devices d ON d.license_id = l.id
+     WHERE ${where.join(' AND ')}
+     GROUP BY l.created_at, l.id
+     ${having.length ? 'HAVING ' + having.join(' AND ') : ''}
+     ORDER BY l.created_at DESC, l.id DESC
+     LIMIT ?`
+  ).bind(...params).all();
+
+  const licenses = rows.results.slice(0, pageSize);
+  const last = licenses[licenses.length - 1];
+  const nextCursor = rows.results.length > pageSize ? `${last.created_at}.${last.id}` : null;
+
+  // Devices of this page only - one IN lookup on idx_device_license
+  if (include_devices && licenses.length > 0) {
+    const devices = await env.DB.prepare(
+      `SELECT license_id, device_id, device_info, activated_at, last_check
+       FROM devices WHERE license_id IN (SELECT value FROM json_each(?))
+       ORDER BY license_id, activated_at`
+    ).bind(JSON.stringify(licenses.map(l => l.id))).all();
+
+    const byLicense = new Map(licenses.map(l => [l.id, (l.devices = [])]));
+    for (const device of devices.results) {
+      byLicense.get(device.license_id).push(device);
+    }
+  }
+
+  return { success: true, licenses, next_cursor: nextCursor };
+}
+
+// Access Stats - hourly counts per action (whole service, or one license)
+async function getAccessStats(env, body) {
+  const { admin_key, license_key, hours = 24 } = body;
+
+  if (!admin_key || admin_key !== env.ADMIN_KEY) {
+    console.error('❌ Invalid admin key');
+    return { success: false, error: 'Invalid admin key' };
+  }
+
+  const span = Math.min(Math.max(parseInt(hours, 10) || 24, 1), 24 * 90);
+  const since = hourStart(Date.now()) - (span - 1) * HOUR_MS;
+
+  let stats;
+  if (license_key) {
+    const license = await env.DB.prepare(
+      'SELECT id FROM licenses WHERE license_key = ? COLLATE NOCASE'
+    ).bind(canonicalLicenseKey(license_key)).first();
+    if (!license) {
+      return { success: false, error: 'Invalid license key' };
+    }
+    stats = await env.DB.prepare(
+      `SELECT hour, action, count FROM access_log_hourly
+       WHERE license_id = ? AND hour >= ? ORDER BY hour, action`
+    ).bind(license.id, since).all();
+  } else {
+    stats = await env.DB.prepare(
+      `SELECT hour, action, SUM(count) AS count FROM access_log_hourly
+       WHERE hour >= ? GROUP BY hour, action ORDER BY hour, action`
+    ).bind(since).all();
+  }
+
+  // Raw rows are rolled up by the cron trigger, so the current hour is partial
+  return { success: true, since, stats: stats.results };
+}
+
+// ==================== ACCESS LOGS ====================
+// Each request buffers its events and writes them with one multi-row INSERT via waitUntil.
+// The cron trigger rolls raw rows up into access_log_hourly (license, action, hour)
+// and deletes raw rows that are rolled up and older than the retention window.
+
+const HOUR_MS = 60 * 60 * 1000;
+
+// D1 binds at most 100 parameters per statement - 5 per row
+const ACCESS_LOG_ROWS_PER_INSERT = 20;
+
+// Raw rows kept for ACCESS_LOG_RETENTION_DAYS (var); rollups are kept
+const DEFAULT_ACCESS_LOG_RETENTION_DAYS = 7;
+
+// Bounds the work of one scheduled run on a large backlog
+const ROLLUP_MAX_ROWS = 50000;
+const PRUNE_BATCH_ROWS = 5000;
+const PRUNE_MAX_BATCHES = 20;
+
+function hourStart(time) {
+  return Math.floor(time / HOUR_MS) * HOUR_MS;
+}
+
+function createAccessLog(request) {
+  const ip = request.headers.get('CF-Connecting-IP');
+  const events = [];
+  return {
+    events,
+    add(licenseId, deviceId, action) {
+      events.push([licenseId ?? null, deviceId ?? null, action, ip, Date.now()]);
+    }
+  };
+}
+
+async function flushAccessLog(env, accessLog) {
+  const events = accessLog.events;
+  const statements = [];
+  for (let i = 0; i < events.length; i += ACCESS_LOG_ROWS_PER_INSERT) {
+    const rows = events.slice(i, i + ACCESS_LOG_ROWS_PER_INSERT);
+    statements.push(env.DB.prepare(
+      'INSERT INTO access_logs (license_id, device_id, action, ip_address, timestamp) VALUES ' +
+      rows.map(() => '(?, ?, ?, ?, ?)').join(', ')
+    ).bind(...rows.flat()));
+  }
+
+  if (statements.length === 1) {
+    await statements[0].run();
+  } else {
+    await env.DB.batch(statements);
+  }
+}
+
+function accessLogRetention(env) {
+  const days = parseInt(env.ACCESS_LOG_RETENTION_DAYS, 10);
+  return (days >= 0 ? days : DEFAULT_ACCESS_LOG_RETENTION_DAYS) * 24 * HOUR_MS;
+}
+
+async function runAccessLogMaintenance(env, now) {
+  try {
+    const rolledUp = await rollupAccessLogs(env);
+    const pruned = await pruneAccessLogs(env, now - accessLogRetention(env));
+    console.log('✅ Access logs maintained:', { rolledUp, pruned });
+  } catch (error) {
+    console.error('❌ Access log maintenance failed:', error.message);
+  }
+}
+
+// Roll raw rows (id > watermark) into hourly counts
+// The upsert and the watermark move commit together in one batch, so rows are counted exactly once
+async function rollupAccessLogs(env) {
+  const state = await env.DB.prepare(
+    `SELECT (SELECT last_id FROM access_log_rollup_state WHERE id = 1) AS last_id,
+            (SELECT MAX(id) FROM access_logs) AS max_id`
+  ).first();
+
+  const lastId = state?.last_id || 0;
+  const upTo = Math.min(state?.max_id || 0, lastId + ROLLUP_MAX_ROWS);
+  if (upTo <= lastId) {
+    return 0;
+  }
+
+  await env.DB.batch([
+    env.DB.prepare(
+      `INSERT INTO access_log_hourly (license_id, action, hour, count)
+       SELECT COALESCE(license_id, 0), action, timestamp / ${HOUR_MS} * ${HOUR_MS}, COUNT(*)
+       FROM access_logs WHERE id > ? AND id <= ?
+       GROUP BY 1, 2, 3
+       ON CONFLICT (license_id, action, hour) DO UPDATE SET count = count + excluded.count`
+    ).bind(lastId, upTo),
+    env.DB.prepare(
+      `INSERT INTO access_log_rollup_state (id, last_id) VALUES (1, ?)
+       ON CONFLICT (id) DO UPDATE SET last_id = excluded.last_id`
+    ).bind(upTo)
+  ]);
+  return upTo - lastId;
+}
+
+// Delete rolled-up raw rows older than the cutoff, in bounded chunks
+async function pruneAccessLogs(env, cutoff) {
+  let pruned = 0;
+  for (let i = 0; i < PRUNE_MAX_BATCHES; i++) {
+    const result = await env.DB.prepare(
+      `DELETE FROM access_logs WHERE id IN (
+         SELECT id FROM access_logs
+         WHERE timestamp < ? AND id <= (SELECT last_id FROM access_log_rollup_state WHERE id = 1)
+         LIMIT ${PRUNE_BATCH_ROWS})`
+    ).bind(cutoff).run();
+
+    const changes = result.meta?.changes || 0;
+    pruned += changes;
+    if (changes < PRUNE_BATCH_ROWS) {
+      break;
+    }
+  }
+  return pruned;
+}
+
+// ==================== LICENSE CACHE ====================
+// Verified (license, device) rows stay in isolate memory for a short TTL, LRU-bounded.
+// /revoke drops the license's rows locally and bumps a generation marker in the Cache API;
+// every isolate in the data center re-reads the marker every few seconds and clears
+// its cache when it changed. Other data centers (and workers.dev, where the Cache API
+// is a no-op) rely on the TTL alone.
+
+const LICENSE_CACHE_MAX_ENTRIES = 5000;
+const LICENSE_CACHE_TTL_MS = 30 * 1000;
+const GENERATION_CHECK_INTERVAL_MS = 2 * 1000;
+const GENERATION_PATH = '/__license-cache-generation';
+
+// Map iteration order is insertion order: the first key is the least recently used
+const licenseCache = new Map();
+const licenseCacheStats = { hits: 0, misses: 0 };
+let licenseCacheOrigin = null;
+let licenseCacheGeneration = null;
+let generationCheckedAt = 0;
+
+function licenseCacheKey(licenseKey, deviceId) {
+  return `${licenseKey}\n${deviceId}`;
+}
+
+function licenseCacheGet(key) {
+  const entry = licenseCache.get(key);
+  if (entry && Date.now() - entry.cachedAt < LICENSE_CACHE_TTL_MS) {
+    licenseCache.delete(key);
+    licenseCache.set(key, entry);
+    licenseCacheStats.hits++;
+    return entry.row;
+  }
+  if (entry) {
+    licenseCache.delete(key);
+  }
+  licenseCacheStats.misses++;
+  return null;
+}
+
+function licenseCacheSet(key, row) {
+  licenseCache.delete(key);
+  licenseCache.set(key, { row, cachedAt: Date.now() });
+  if (licenseCache.size > LICENSE_CACHE_MAX_ENTRIES) {
+    licenseCache.delete(licenseCache.keys().next().value);
+  }
+}
+
+function licenseCacheInvalidate(licenseKey) {
+  const prefix = licenseKey + '\n';
+  for (const key of licenseCache.keys()) {
+    if (key.startsWith(prefix)) {
+      licenseCache.delete(key);
+    }
+  }
+}
+
+function generationRequest() {
+  return new Request(licenseCacheOrigin + GENERATION_PATH);
+}
+
+// Clear the cache if another isolate revoked a license since the last check
+async function syncLicenseCacheGeneration() {
+  const now = Date.now();
+  if (typeof caches === 'undefined' || !licenseCacheOrigin || now - generationCheckedAt < GENERATION_CHECK_INTERVAL_MS) {
+    return;
+  }
+  generationCheckedAt = now;
+
+  try {
+    const marker = await caches.default.match(generationRequest());
+    const generation = marker ? await marker.text() : '0';
+    if (licenseCacheGeneration !== null && generation !== licenseCacheGeneration) {
+      console.log('♻️ License cache generation changed - clearing', licenseCache.size, 'entries');
+      licenseCache.clear();
+    }
+    licenseCacheGeneration = generation;
+  } catch (error) {
+    console.error('❌ Cache generation check failed:', error.message);
+  }
+}
+
+async function bumpLicenseCacheGeneration() {
+  if (typeof caches === 'undefined' || !licenseCacheOrigin) {
+    return;
+  }
+
+  const generation = `${Date.now()}-${generateRandomKey(8)}`;
+  try {
+    await caches.default.put(generationRequest(), new Response(generation, {
+      headers: { 'Cache-Control': 'max-age=86400' }
+    }));
+    licenseCacheGeneration = generation;
+  } catch (error) {
+    console.error('❌ Cache generation bump failed:', error.message);
+  }
+}
+
+// Recent /verify durations in this isolate, for the p50 in Server-Timing
+const VERIFY_TIMING_SAMPLES = 256;
+const verifyDurations = new Float64Array(VERIFY_TIMING_SAMPLES);
+let verifyDurationCount = 0;
+
+// Server-Timing for /verify: cache hit or miss, isolate hit rate, the D1 lookup (misses only),
+// this request (verify, and total - the name LicenseClient reads), isolate p50
+// Workers only advance the clock across I/O, so a cache hit usually reports 0
+function verifyServerTiming(timing, duration) {
+  verifyDurations[verifyDurationCount % VERIFY_TIMING_SAMPLES] = duration;
+  verifyDurationCount++;
+
+  const samples = verifyDurations.slice(0, Math.min(verifyDurationCount, VERIFY_TIMING_SAMPLES)).sort();
+  const p50 = samples[samples.length >> 1];
+
+  const lookups = licenseCacheStats.hits + licenseCacheStats.misses;
+  const hitRate = lookups > 0 ? licenseCacheStats.hits / lookups : 0;
+
+  const entries = [
+    `license-cache;desc="${timing.cache || 'none'}"`,
+    `license-cache-hit-rate;desc="${hitRate.toFixed(2)}"`
+  ];
+  if (timing.d1License !== undefined) {
+    entries.push(`d1-license;dur=${timing.d1License.toFixed(1)}`);
+  }
+  entries.push(
+    `verify;dur=${duration.toFixed(1)}`,
+    `verify-p50;dur=${p50.toFixed(1)}`,
+    `total;dur=${duration.toFixed(1)}`
+  );
+  return entries.join(', ');
+}
+
+// ==================== POLLING ====================
+// /verify tells the client when to check next (jittered) and how long it may stay offline
+// (never longer than the session token lifetime).
+// Stretch VERIFY_INTERVAL_MS during an incident - clients follow from their next check on
+
+const DEFAULT_VERIFY_INTERVAL_MS = 15 * 60 * 1000;
+const MIN_VERIFY_INTERVAL_MS = 5 * 60 * 1000;
+const DEFAULT_VERIFY_JITTER = 0.2; // +-20%: a fleet that checked together drifts apart
+
+function envNumber(value, fallback) {
+  const number = parseFloat(value);
+  return number >= 0 ? number : fallback;
+}
+
+function pollingAdvice(env, now, expiresAt, maxOfflineLimit) {
+  let interval = envNumber(env.VERIFY_INTERVAL_MS, DEFAULT_VERIFY_INTERVAL_MS);
+  // Near expiry check more often, so a renewal or the expiry itself is picked up in time
+  if (expiresAt) {
+    interval = Math.min(interval, (expiresAt - now) / 2);
+  }
+
+  const jitter = Math.min(envNumber(env.VERIFY_JITTER, DEFAULT_VERIFY_JITTER), 1);
+  const nextCheck = interval * (1 - jitter + Math.random() * 2 * jitter);
+
+  return {
+    next_check_ms: Math.round(Math.max(MIN_VERIFY_INTERVAL_MS, nextCheck)),
+    max_offline_ms: Math.round(Math.min(envNumber(env.MAX_OFFLINE_MS, maxOfflineLimit), maxOfflineLimit))
+  };
+}
+
+// devices.last_check is only rewritten once it is older than this (LAST_CHECK_GRANULARITY_MS var)
+const DEFAULT_LAST_CHECK_GRANULARITY_MS = 15 * 60 * 1000;
+
+function lastCheckGranularity(env) {
+  const value = parseInt(env.LAST_CHECK_GRANULARITY_MS, 10);
+  return value >= 0 ? value : DEFAULT_LAST_CHECK_GRANULARITY_MS;
+}
+
+// Canonical form of a license key: trimmed, upper case (the app upper-cases what the user types)
+// Lookups compare with COLLATE NOCASE so they use idx_license_key_nocase,
+// which also matches keys generated before keys were upper case
+function canonicalLicenseKey(key) {
+  return String(key || '').trim().toUpperCase();
+}
+
+// Generate random key (upper case + digits - already canonical)
 function generateRandomKey(length) {
-  const chars = 'ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789';
+  const chars = 'ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789';
   let result = '';
   const randomValues = crypto.getRandomValues(new Uint8Array(length));
   for (let i = 0; i < length; i++) {
@@ -329,6 +948,9 @@ function generateSessionToken(licenseKey, deviceId) {
   return btoa(data); // Simple encoding (can be enhanced with HMAC)
 }
 
+// Session tokens are valid for 24 hours
+const TOKEN_EXPIRY = 24 * 60 * 60 * 1000;
+
 // Decode session token
 function decodeSessionToken(token) {
   try {
@@ -337,7 +959,6 @@ function decodeSessionToken(token) {
     const ts = parseInt(timestamp);
 
     // Check if token is expired (24 hours = 86400000 ms)
-    const TOKEN_EXPIRY = 24 * 60 * 60 * 1000;
     if (Date.now() - ts > TOKEN_EXPIRY) {
       console.error('❌ Session token expired');
       return null;
@@ -448,6 +1069,31 @@ function getAdminHTML() {
       color: #666;
       margin-top: 5px;
     }
+    .stats-table {
+      width: 100%;
+      border-collapse: collapse;
+      margin-top: 10px;
+      font-size: 0.85em;
+    }
+    .stats-table th, .stats-table td {
+      text-align: left;
+      padding: 4px 6px;
+      border-bottom: 1px solid #e0e0e0;
+    }
+    #licenseList {
+      margin-top: 20px;
+      display: none;
+    }
+    #licenseList select {
+      width: 100%;
+      padding: 8px;
+      border-radius: 10px;
+      border: 2px solid #e0e0e0;
+    }
+    #licenseList .stats-table td:first-child {
+      font-family: 'Courier New', monospace;
+      word-break: break-all;
+    }
   </style>
 </head>
 <body>
@@ -470,9 +1116,31 @@ function getAdminHTML() {
       <div class="note">0 = No expiration</div>
     </div>
 
+    <div class="form-group">
+      <label>🔢 Count</label>
+      <input type="number" id="licenseCount" value="1" min="1" max="10000">
+      <div class="note">More than 1 = bulk (downloaded as licenses.txt, one key per line)</div>
+    </div>
+
     <button onclick="generateLicense()">🚀 Generate License</button>
+    <button onclick="loadStats()">📊 Activity (Last 24h)</button>
+    <button onclick="showLicenses()">📋 Licenses</button>
 
     <div id="result" class="result"></div>
+
+    <div id="licenseList">
+      <select id="statusFilter" onchange="showLicenses()">
+        <option value="">All</option>
+        <option value="active">Active</option>
+        <option value="expired">Expired</option>
+        <option value="revoked">Revoked</option>
+      </select>
+      <table class="stats-table">
+        <thead><tr><th>License</th><th>Devices</th><th>Expires</th></tr></thead>
+        <tbody id="licenseRows"></tbody>
+      </table>
+      <button id="loadMore" onclick="loadLicenses()">⬇️ Load More</button>
+    </div>
   </div>
 
   <script>
@@ -480,6 +1148,7 @@ function getAdminHTML() {
       const adminKey = document.getElementById('adminKey').value;
       const maxDevices = parseInt(document.getElementById('maxDevices').value);
       const expiresDays = parseInt(document.getElementById('expiresDays').value);
+      const count = parseInt(document.getElementById('licenseCount').value) || 1;
 
       const resultDiv = document.getElementById('result');
 
@@ -490,6 +1159,10 @@ function getAdminHTML() {
         return;
       }
 
+      if (count > 1) {
+        return generateBulk(adminKey, maxDevices, expiresDays, count);
+      }
+
       try {
         const response = await fetch('/generate', {
           method: 'POST',
@@ -519,6 +1192,134 @@ function getAdminHTML() {
         resultDiv.innerHTML = '❌ Error<br>' + error.message;
       }
     }
+
+    async function generateBulk(adminKey, maxDevices, expiresDays, count) {
+      const resultDiv = document.getElementById('result');
+
+      try {
+        const response = await fetch('/generate', {
+          method: 'POST',
+          headers: { 'Content-Type': 'application/json' },
+          body: JSON.stringify({ admin_key: adminKey, max_devices: maxDevices, expires_days: expiresDays, count })
+        });
+
+        if (!response.ok) {
+          const data = await response.json();
+          throw new Error(data.error);
+        }
+
+        const keys = await response.text();
+        const url = URL.createObjectURL(new Blob([keys], { type: 'text/plain' }));
+        const link = document.createElement('a');
+        link.href = url;
+        link.download = 'licenses.txt';
+        link.click();
+        // The download starts after click() returns - revoking right away can cancel it
+        setTimeout(() => URL.revokeObjectURL(url), 0);
+
+        resultDiv.className = 'result success';
+        resultDiv.innerHTML = \`
+          ✅ Success<br>
+          <div class="note">\${response.headers.get('X-License-Count')} licenses saved to licenses.txt</div>
+          <div class="note">Max Devices: \${maxDevices}</div>
+        \`;
+        resultDiv.style.display = 'block';
+
+      } catch (error) {
+        resultDiv.className = 'result error';
+        resultDiv.style.display = 'block';
+        resultDiv.innerHTML = '❌ Error<br>' + error.message;
+      }
+    }
+
+    // Keyset cursor of the last rendered page (null = no more pages)
+    let licenseCursor = null;
+
+    function showLicenses() {
+      licenseCursor = null;
+      document.getElementById('licenseRows').innerHTML = '';
+      document.getElementById('licenseList').style.display = 'block';
+      loadLicenses();
+    }
+
+    // Appends one page - earlier rows stay rendered
+    async function loadLicenses() {
+      const adminKey = document.getElementById('adminKey').value;
+      const status = document.getElementById('statusFilter').value;
+      const loadMore = document.getElementById('loadMore');
+      const resultDiv = document.getElementById('result');
+
+      loadMore.disabled = true;
+      try {
+        const response = await fetch('/licenses', {
+          method: 'POST',
+          headers: { 'Content-Type': 'application/json' },
+          body: JSON.stringify({ admin_key: adminKey, cursor: licenseCursor, status: status || undefined })
+        });
+
+        const data = await response.json();
+        if (!data.success) {
+          throw new Error(data.error);
+        }
+
+        const rows = data.licenses.map(l => \`<tr>
+            <td>\${l.is_active ? '' : '🚫 '}\${l.license_key}</td>
+            <td>\${l.device_count} / \${l.max_devices}</td>
+            <td>\${l.expires_at ? new Date(l.expires_at).toISOString().slice(0, 10) : 'Never'}</td>
+          </tr>\`).join('');
+        document.getElementById('licenseRows').insertAdjacentHTML('beforeend', rows);
+
+        licenseCursor = data.next_cursor;
+        loadMore.style.display = licenseCursor ? 'block' : 'none';
+
+      } catch (error) {
+        resultDiv.className = 'result error';
+        resultDiv.style.display = 'block';
+        resultDiv.innerHTML = '❌ Error<br>' + error.message;
+      } finally {
+        loadMore.disabled = false;
+      }
+    }
+
+    async function loadStats() {
+      const adminKey = document.getElementById('adminKey').value;
+      const resultDiv = document.getElementById('result');
+
+      try {
+        const response = await fetch('/stats', {
+          method: 'POST',
+          headers: { 'Content-Type': 'application/json' },
+          body: JSON.stringify({ admin_key: adminKey, hours: 24 })
+        });
+
+        const data = await response.json();
+
+        if (data.success) {
+          // One row per action: total over the period
+          const totals = {};
+          for (const row of data.stats) {
+            totals[row.action] = (totals[row.action] || 0) + row.count;
+          }
+          const rows = Object.keys(totals).sort()
+            .map(action => \`<tr><td>\${action}</td><td>\${totals[action]}</td></tr>\`).join('');
+          resultDiv.className = 'result success';
+          resultDiv.innerHTML = \`
+            📊 Activity (Last 24h)
+            <table class="stats-table"><tr><th>Action</th><th>Count</th></tr>\${rows}</table>
+            <div class="note">Updated hourly</div>
+          \`;
+        } else {
+          resultDiv.className = 'result error';
+          resultDiv.innerHTML = '❌ Error<br>' + data.error;
+        }
+        resultDiv.style.display = 'block';
+
+      } catch (error) {
+        resultDiv.className = 'result error';
+        resultDiv.style.display = 'block';
+        resultDiv.innerHTML = '❌ Error<br>' + error.message;
+      }
+    }
   </script>
 </body>
 </html>`;
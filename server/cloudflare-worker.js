@@ -81,6 +81,146 @@ function getServerTimestamp() {
   return Date.now();
 }
 
+// ==================== HMAC NONCES ====================
+
+// NONCE_SCHEME = "hmac" (with NONCE_SECRET) replaces stored random nonces with
+// nonce = "<window>.<counter>.<seq>.<HMAC(license_key, device_id, window, counter, seq)>"
+// The server recomputes the MAC instead of storing the nonce string; the row only
+// keeps which (window, seq) is current. Every nonce is single-use: /verify accepts
+// exactly the current (nonce_window, nonce_seq), advances it with a compare-and-swap
+// UPDATE, and a reused or stale nonce is a mismatch (burn), as with random nonces.
+// Only nonces issued in the current or the previous window are accepted.
+// counter (nonce_counter, bumped on activation) invalidates every earlier nonce.
+const MAX_NONCE_AGE = 24 * 60 * 60 * 1000;
+const NONCE_WINDOW_MS = MAX_NONCE_AGE;
+// A nonce is accepted until the end of the window after its own, so it lives at least
+// one full window - the offline allowance clients are given in hmac mode
+const MAX_HMAC_NONCE_AGE = NONCE_WINDOW_MS;
+
+let hmacKey = null;
+let hmacKeySecret = null;
+
+function useHmacNonces(env) {
+  return env.NONCE_SCHEME === 'hmac' && !!env.NONCE_SECRET;
+}
+
+async function getHmacKey(env) {
+  if (!hmacKey || hmacKeySecret !== env.NONCE_SECRET) {
+    hmacKeySecret = env.NONCE_SECRET;
+    hmacKey = await crypto.subtle.importKey(
+      'raw',
+      new TextEncoder().encode(env.NONCE_SECRET),
+      { name: 'HMAC', hash: 'SHA-256' },
+      false,
+      ['sign']
+    );
+  }
+  return hmacKey;
+}
+
+function nonceAgeLimit(env) {
+  return useHmacNonces(env) ? MAX_HMAC_NONCE_AGE : MAX_NONCE_AGE;
+}
+
+function nonceWindow(time) {
+  return Math.floor(time / NONCE_WINDOW_MS);
+}
+
+async function generateHmacNonce(env, licenseKey, deviceId, window, counter, seq) {
+  const data = new TextEncoder().encode(`${licenseKey}:${deviceId}:${window}:${counter}:${seq}`);
+  const mac = new Uint8Array(await crypto.subtle.sign('HMAC', await getHmacKey(env), data));
+  const encoded = btoa(String.fromCharCode(...mac))
+    .replace(/\+/g, '-').replace(/\//g, '_').replace(/=+$/, '');
+  return `${window}.${counter}.${seq}.${encoded.slice(0, 32)}`;
+}
+
+/**
+ * (window, seq) of the next nonce after the current one: seq counts nonces issued within a window
+ */
+function nextNonceSlot(licenseData, now) {
+  const window = nonceWindow(now);
+  const seq = licenseData.nonce_window === window ? (licenseData.nonce_seq || 0) + 1 : 0;
+  return { window, seq };
+}
+
+/**
+ * Validate an HMAC nonce against the row's current (nonce_window, nonce_seq)
+ * Returns 'valid', 'expired' (the current nonce, but issued before the previous window)
+ * or 'invalid' (forged, from an earlier activation, or already used)
+ */
+async function checkHmacNonce(env, licenseKey, deviceId, nonce, licenseData, now) {
+  const parts = typeof nonce === 'string' ? nonce.split('.') : [];
+  if (parts.length === 3) {
+    // window.counter.mac from before per-window sequences - not forged, just outdated
+    return 'expired';
+  }
+  if (parts.length !== 4) {
+    return 'invalid';
+  }
+
+  const window = parseInt(parts[0], 10);
+  const seq = parseInt(parts[2], 10);
+  if (!(window >= 0) || !(seq >= 0) || parts[1] !== String(licenseData.nonce_counter || 0)) {
+    return 'invalid';
+  }
+  if (window > nonceWindow(now)) {
+    return 'invalid';
+  }
+
+  const expected = await generateHmacNonce(env, licenseKey, deviceId, window, licenseData.nonce_counter || 0, seq);
+  if (!timingSafeEqual(expected, nonce)) {
+    return 'invalid';
+  }
+
+  // Genuine but not the current one: it was used before - a replay or a second copy of the file
+  if (window !== licenseData.nonce_window || seq !== (licenseData.nonce_seq || 0)) {
+    return 'invalid';
+  }
+
+  return window < nonceWindow(now) - 1 ? 'expired' : 'valid';
+}
+
+function timingSafeEqual(a, b) {
+  if (a.length !== b.length) {
+    return false;
+  }
+  let diff = 0;
+  for (let i = 0; i < a.length; i++) {
+    diff |= a.charCodeAt(i) ^ b.charCodeAt(i);
+  }
+  return diff === 0;
+}
+
+// ==================== POLLING ====================
+// /verify tells the client when to check next (jittered) and how long it may stay offline
+// (never longer than the nonce age limit - an older nonce is rejected anyway).
+// Stretch VERIFY_INTERVAL_MS during an incident - clients follow from their next check on
+
+const DEFAULT_VERIFY_INTERVAL_MS = 15 * 60 * 1000;
+const MIN_VERIFY_INTERVAL_MS = 5 * 60 * 1000;
+const DEFAULT_VERIFY_JITTER = 0.2; // +-20%: a fleet that checked together drifts apart
+
+function envNumber(value, fallback) {
+  const number = parseFloat(value);
+  return number >= 0 ? number : fallback;
+}
+
+function pollingAdvice(env, now, expiresAt, maxOfflineLimit) {
+  let interval = envNumber(env.VERIFY_INTERVAL_MS, DEFAULT_VERIFY_INTERVAL_MS);
+  // Near expiry check more often, so a renewal or the expiry itself is picked up in time
+  if (expiresAt) {
+    interval = Math.min(interval, (expiresAt - now) / 2);
+  }
+
+  const jitter = Math.min(envNumber(env.VERIFY_JITTER, DEFAULT_VERIFY_JITTER), 1);
+  const nextCheck = interval * (1 - jitter + Math.random() * 2 * jitter);
+
+  return {
+    next_check_ms: Math.round(Math.max(MIN_VERIFY_INTERVAL_MS, nextCheck)),
+    max_offline_ms: Math.round(Math.min(envNumber(env.MAX_OFFLINE_MS, maxOfflineLimit), maxOfflineLimit))
+  };
+}
+
 // ==================== DATABASE SCHEMA ====================
 
 /*
@@ -90,6 +230,9 @@ CREATE TABLE IF NOT EXISTS licenses (
   session_token TEXT,
   nonce TEXT NOT NULL,               -- Current nonce (server-generated)
   nonce_timestamp INTEGER NOT NULL,  -- When nonce was generated (server time)
+  nonce_counter INTEGER DEFAULT 0,   -- Bumped on activation (HMAC nonces)
+  nonce_window INTEGER DEFAULT 0,    -- Window of the current HMAC nonce
+  nonce_seq INTEGER DEFAULT 0,       -- Its sequence number within that window
   status TEXT DEFAULT 'active',      -- 'active' | 'burned' | 'expired'
   created_at INTEGER NOT NULL,
   expires_at INTEGER,
@@ -102,12 +245,101 @@ CREATE INDEX idx_session_token ON licenses(session_token);
 CREATE INDEX idx_status ON licenses(status);
 */
 
+// ==================== WRITE COALESCING ====================
+
+// Verification statistics are buffered per isolate and flushed as one D1 batch
+// An evicted isolate loses at most one interval of counts; status and expiry
+// are still read from the database on every request
+const STATS_FLUSH_INTERVAL_MS = 30 * 1000;
+const STATS_FLUSH_MAX_KEYS = 100;
+
+const pendingStats = new Map(); // license_key -> { count, lastVerified }
+let pendingStatsSince = 0;
+
+function recordVerification(env, ctx, licenseKey, now) {
+  const entry = pendingStats.get(licenseKey);
+  if (entry) {
+    entry.count++;
+    entry.lastVerified = now;
+  } else {
+    pendingStats.set(licenseKey, { count: 1, lastVerified: now });
+  }
+  if (!pendingStatsSince) {
+    pendingStatsSince = now;
+  }
+
+  if (now - pendingStatsSince >= STATS_FLUSH_INTERVAL_MS || pendingStats.size >= STATS_FLUSH_MAX_KEYS) {
+    const flush = flushVerificationStats(env, now);
+    if (ctx) {
+      ctx.waitUntil(flush);
+    }
+  }
+}
+
+async function flushVerificationStats(env, now = getServerTimestamp()) {
+  if (pendingStats.size === 0) {
+    return;
+  }
+
+  const entries = [...pendingStats];
+  pendingStats.clear();
+  pendingStatsSince = 0;
+
+  const statement = env.DB.prepare(`
+    UPDATE licenses
+    SET verification_count = verification_count + ?,
+        last_verified = MAX(COALESCE(last_verified, 0), ?)
+    WHERE license_key = ?
+  `);
+
+  try {
+    await env.DB.batch(entries.map(([key, stats]) => statement.bind(stats.count, stats.lastVerified, key)));
+    console.log('[STATS] Flushed', entries.length, 'licenses');
+  } catch (error) {
+    console.error('[STATS] Flush failed, keeping counts:', error);
+    for (const [key, stats] of entries) {
+      const entry = pendingStats.get(key);
+      if (entry) {
+        entry.count += stats.count;
+        entry.lastVerified = Math.max(entry.lastVerified, stats.lastVerified);
+      } else {
+        pendingStats.set(key, stats);
+      }
+    }
+    // Retry with the next interval
+    pendingStatsSince = pendingStatsSince || now;
+  }
+}
+
+// ==================== SERVER-TIMING ====================
+
+// /activate and /verify answer with Server-Timing: one d1-* entry per query the client
+// waited for, plus the handler total; LicenseClient subtracts the total from its TTFB
+// to split network from server time. Writes moved to waitUntil are not included.
+// Workers only advance the clock across I/O - CPU work (XOR, JSON) reads as 0.
+function createServerTiming() {
+  return { started: performance.now(), entries: [] };
+}
+
+async function timed(timing, name, promise) {
+  const start = performance.now();
+  try {
+    return await promise;
+  } finally {
+    timing.entries.push(`${name};dur=${(performance.now() - start).toFixed(1)}`);
+  }
+}
+
+function serverTimingHeader(timing) {
+  return [...timing.entries, `total;dur=${(performance.now() - timing.started).toFixed(1)}`].join(', ');
+}
+
 // ==================== HANDLERS ====================
 
-async function handleActivate(request, env) {
+async function handleActivate(request, env, timing) {
   try {
     // 1. Decrypt request
-    const body = await request.json();
+    const body = await readJsonBody(request);
     const encryptedData = body.encrypted;
 
     if (!encryptedData) {
@@ -144,9 +376,9 @@ async function handleActivate(request, env) {
     }
 
     // 3. Check if license exists in database
-    const existing = await env.DB.prepare(
+    const existing = await timed(timing, 'd1-license', env.DB.prepare(
       'SELECT * FROM licenses WHERE license_key = ?'
-    ).bind(licenseKey).first();
+    ).bind(licenseKey).first());
 
     if (!existing) {
       return encryptedResponse({ success: false, error: 'License not found' }, xorKey);
@@ -170,16 +402,25 @@ async function handleActivate(request, env) {
 
     // 6. Generate session token and nonce (server-side!)
     const sessionToken = generateNonce(); // Use as session token
-    const nonce = generateNonce();        // Initial nonce
     const now = getServerTimestamp();     // Server time, not client time!
 
+    // New counter: nonces issued before this activation stop validating
+    const nonceCounter = (existing.nonce_counter || 0) + 1;
+    const nonceWindowNow = nonceWindow(now);
+    const nonce = useHmacNonces(env)
+      ? await generateHmacNonce(env, licenseKey, deviceId, nonceWindowNow, nonceCounter, 0)
+      : generateNonce();                  // Initial nonce
+
     // 7. Update database
-    await env.DB.prepare(`
+    await timed(timing, 'd1-activate', env.DB.prepare(`
       UPDATE licenses
       SET device_id = ?,
           session_token = ?,
           nonce = ?,
           nonce_timestamp = ?,
+          nonce_counter = ?,
+          nonce_window = ?,
+          nonce_seq = 0,
           last_verified = ?,
           verification_count = verification_count + 1
       WHERE license_key = ?
@@ -188,9 +429,11 @@ async function handleActivate(request, env) {
       sessionToken,
       nonce,
       now,
+      nonceCounter,
+      nonceWindowNow,
       now,
       licenseKey
-    ).run();
+    ).run());
 
     // 8. Return encrypted response with server time
     const response = {
@@ -199,7 +442,8 @@ async function handleActivate(request, env) {
       nonce: nonce,                    // Initial nonce for client
       expires_at: existing.expires_at || 0,
       created_at: existing.created_at, // ⚡ NEW: When license was created
-      server_time: now                 // ⚡ NEW: Current server time
+      server_time: now,                // ⚡ NEW: Current server time
+      max_offline_ms: pollingAdvice(env, now, existing.expires_at, nonceAgeLimit(env)).max_offline_ms
     };
 
     return encryptedResponse(response, xorKey);
@@ -210,10 +454,10 @@ async function handleActivate(request, env) {
   }
 }
 
-async function handleVerify(request, env) {
+async function handleVerify(request, env, ctx, timing) {
   try {
     // 1. Decrypt request
-    const body = await request.json();
+    const body = await readJsonBody(request);
     const encryptedData = body.encrypted;
 
     if (!encryptedData) {
@@ -232,9 +476,9 @@ async function handleVerify(request, env) {
     }
 
     // Get device_id from database to generate XOR key
-    const licenseData = await env.DB.prepare(
+    const licenseData = await timed(timing, 'd1-license', env.DB.prepare(
       'SELECT * FROM licenses WHERE license_key = ?'
-    ).bind(licenseKey).first();
+    ).bind(licenseKey).first());
 
     if (!licenseData) {
       return jsonResponse({ success: false, error: 'License not found' }, 404);
@@ -268,15 +512,32 @@ async function handleVerify(request, env) {
     }
 
     // 4. CRITICAL: Validate nonce (server-side validation!)
-    if (!nonce || nonce !== licenseData.nonce) {
+    const now = getServerTimestamp();
+    const hmacNonces = useHmacNonces(env);
+    const nonceCounter = licenseData.nonce_counter || 0;
+
+    let nonceState;
+    if (hmacNonces && nonce && nonce === licenseData.nonce && nonce.indexOf('.') < 0) {
+      // Random nonce stored before switching to HMAC nonces - accepted once, then replaced
+      nonceState = now - licenseData.nonce_timestamp > MAX_NONCE_AGE ? 'expired' : 'migrate';
+    } else if (hmacNonces) {
+      nonceState = await checkHmacNonce(env, licenseKey, device_id, nonce, licenseData, now);
+    } else if (!nonce || nonce !== licenseData.nonce) {
+      nonceState = 'invalid';
+    } else {
+      // 5. Check nonce age (optional: prevent replay attacks with old nonces)
+      nonceState = now - licenseData.nonce_timestamp > MAX_NONCE_AGE ? 'expired' : 'valid';
+    }
+
+    if (nonceState === 'invalid') {
       console.error('[VERIFY] NONCE MISMATCH!');
       console.error('[VERIFY] Received:', nonce);
-      console.error('[VERIFY] Expected:', licenseData.nonce);
+      console.error('[VERIFY] Expected:', hmacNonces ? '(hmac)' : licenseData.nonce);
 
       // Burn the license for security breach attempt
-      await env.DB.prepare(
+      await timed(timing, 'd1-burn', env.DB.prepare(
         'UPDATE licenses SET status = ? WHERE license_key = ?'
-      ).bind('burned', licenseKey).run();
+      ).bind('burned', licenseKey).run());
 
       return encryptedResponse({
         success: false,
@@ -284,13 +545,8 @@ async function handleVerify(request, env) {
       }, xorKey);
     }
 
-    // 5. Check nonce age (optional: prevent replay attacks with old nonces)
-    const now = getServerTimestamp();
-    const nonceAge = now - licenseData.nonce_timestamp;
-    const MAX_NONCE_AGE = 24 * 60 * 60 * 1000; // 24 hours
-
-    if (nonceAge > MAX_NONCE_AGE) {
-      console.warn('[VERIFY] Nonce too old:', nonceAge / 1000 / 60, 'minutes');
+    if (nonceState === 'expired') {
+      console.warn('[VERIFY] Nonce too old');
       // Don't burn, just require re-activation
       return encryptedResponse({
         success: false,
@@ -316,22 +572,76 @@ async function handleVerify(request, env) {
     }
 
     // 8. Generate NEW nonce (server-side, based on server time!)
-    const newNonce = generateNonce();
+    let newNonce;
+    let slot = null;
+    if (hmacNonces) {
+      // Derived, not stored: only its (window, seq) slot is written
+      slot = nextNonceSlot(licenseData, now);
+      newNonce = await generateHmacNonce(env, licenseKey, device_id, slot.window, nonceCounter, slot.seq);
+    } else {
+      newNonce = generateNonce();
+    }
 
-    // 9. Update database with new nonce
-    await env.DB.prepare(`
-      UPDATE licenses
-      SET nonce = ?,
-          nonce_timestamp = ?,
-          last_verified = ?,
-          verification_count = verification_count + 1
-      WHERE license_key = ?
-    `).bind(
-      newNonce,
-      now,
-      now,
-      licenseKey
-    ).run();
+    // 9. Update database with new nonce (must be durable before the client gets it)
+    if (hmacNonces && nonceState === 'valid') {
+      // Compare-and-swap on the slot the presented nonce came from: of two requests with
+      // the same nonce (copied file, replay) exactly one advances it
+      const result = await timed(timing, 'd1-nonce', env.DB.prepare(`
+        UPDATE licenses
+        SET nonce_window = ?,
+            nonce_seq = ?
+        WHERE license_key = ? AND nonce_counter = ? AND nonce_window = ? AND nonce_seq = ?
+      `).bind(
+        slot.window,
+        slot.seq,
+        licenseKey,
+        nonceCounter,
+        licenseData.nonce_window,
+        licenseData.nonce_seq || 0
+      ).run());
+
+      if (!result.meta || result.meta.changes !== 1) {
+        console.error('[VERIFY] NONCE REUSED - slot already advanced');
+        await timed(timing, 'd1-burn', env.DB.prepare(
+          'UPDATE licenses SET status = ? WHERE license_key = ?'
+        ).bind('burned', licenseKey).run());
+
+        return encryptedResponse({
+          success: false,
+          error: 'Invalid security token - license burned'
+        }, xorKey);
+      }
+    } else if (hmacNonces) {
+      // Migrating a stored random nonce: the slot starts here
+      await timed(timing, 'd1-nonce', env.DB.prepare(`
+        UPDATE licenses
+        SET nonce = ?,
+            nonce_timestamp = ?,
+            nonce_window = ?,
+            nonce_seq = ?
+        WHERE license_key = ?
+      `).bind(
+        newNonce,
+        now,
+        slot.window,
+        slot.seq,
+        licenseKey
+      ).run());
+    } else {
+      await timed(timing, 'd1-nonce', env.DB.prepare(`
+        UPDATE licenses
+        SET nonce = ?,
+            nonce_timestamp = ?
+        WHERE license_key = ?
+      `).bind(
+        newNonce,
+        now,
+        licenseKey
+      ).run());
+    }
+
+    // last_verified / verification_count are statistics - buffered and written in batches
+    recordVerification(env, ctx, licenseKey, now);
 
     console.log('[VERIFY] ✅ SUCCESS - New nonce generated');
 
@@ -340,7 +650,8 @@ async function handleVerify(request, env) {
       success: true,
       valid: true,
       nonce: newNonce,    // NEW nonce for next request
-      server_time: now    // ⚡ NEW: Current server time for time sync
+      server_time: now,   // ⚡ NEW: Current server time for time sync
+      ...pollingAdvice(env, now, licenseData.expires_at, nonceAgeLimit(env))
     };
 
     return encryptedResponse(response, xorKey);
@@ -427,6 +738,15 @@ function jsonResponse(data, status = 200) {
   });
 }
 
+// Request bodies above ~1 KB arrive gzipped from the Android client
+async function readJsonBody(request) {
+  if ((request.headers.get('Content-Encoding') || '').toLowerCase() === 'gzip') {
+    const stream = request.body.pipeThrough(new DecompressionStream('gzip'));
+    return JSON.parse(await new Response(stream).text());
+  }
+  return request.json();
+}
+
 function encryptedResponse(data, xorKey) {
   const jsonStr = JSON.stringify(data);
   const encrypted = xorEncryptDecrypt(jsonStr, xorKey);
@@ -440,7 +760,7 @@ function encryptedResponse(data, xorKey) {
 // ==================== MAIN HANDLER ====================
 
 export default {
-  async fetch(request, env) {
+  async fetch(request, env, ctx) {
     const url = new URL(request.url);
 
     // CORS headers
@@ -458,14 +778,18 @@ export default {
     try {
       // Route handlers
       if (url.pathname === '/activate' && request.method === 'POST') {
-        const response = await handleActivate(request, env);
+        const timing = createServerTiming();
+        const response = await handleActivate(request, env, timing);
         Object.keys(corsHeaders).forEach(key => response.headers.set(key, corsHeaders[key]));
+        response.headers.set('Server-Timing', serverTimingHeader(timing));
         return response;
       }
 
       if (url.pathname === '/verify' && request.method === 'POST') {
-        const response = await handleVerify(request, env);
+        const timing = createServerTiming();
+        const response = await handleVerify(request, env, ctx, timing);
         Object.keys(corsHeaders).forEach(key => response.headers.set(key, corsHeaders[key]));
+        response.headers.set('Server-Timing', serverTimingHeader(timing));
         return response;
       }
 
@@ -8,13 +8,21 @@ CREATE TABLE IF NOT EXISTS licenses (
   session_token TEXT,                     -- Session token (generated on activation)
   nonce TEXT NOT NULL,                    -- Current nonce (SERVER-GENERATED!)
   nonce_timestamp INTEGER NOT NULL,       -- When nonce was last updated (SERVER TIME!)
+  nonce_counter INTEGER DEFAULT 0,        -- Bumped on activation; part of HMAC nonces (NONCE_SCHEME=hmac)
+  nonce_window INTEGER DEFAULT 0,         -- Window of the current HMAC nonce (1 day)
+  nonce_seq INTEGER DEFAULT 0,            -- Its sequence number in that window - each nonce is used once
   status TEXT DEFAULT 'active',           -- 'active' | 'burned' | 'expired'
   created_at INTEGER NOT NULL,            -- License creation time (milliseconds)
   expires_at INTEGER,                     -- Expiration time (NULL = no expiration)
-  last_verified INTEGER,                  -- Last verification time
-  verification_count INTEGER DEFAULT 0    -- Number of verifications
+  last_verified INTEGER,                  -- Last verification time (batched, may lag ~30s)
+  verification_count INTEGER DEFAULT 0    -- Number of verifications (batched, may lag ~30s)
 );
 
+-- Existing databases:
+-- ALTER TABLE licenses ADD COLUMN nonce_counter INTEGER DEFAULT 0;
+-- ALTER TABLE licenses ADD COLUMN nonce_window INTEGER DEFAULT 0;
+-- ALTER TABLE licenses ADD COLUMN nonce_seq INTEGER DEFAULT 0;
+
 -- Indexes for performance
 CREATE INDEX IF NOT EXISTS idx_device_id ON licenses(device_id);
 CREATE INDEX IF NOT EXISTS idx_session_token ON licenses(session_token);
@@ -28,6 +36,10 @@ CREATE INDEX IF NOT EXISTS idx_nonce_timestamp ON licenses(nonce_timestamp);
 --    - nonce_timestamp is SERVER time, NOT client time
 --    - Client CANNOT manipulate time to bypass nonce validation
 --    - Each verification generates NEW nonce
+--    - NONCE_SCHEME=hmac: nonce = window.counter.seq.HMAC(NONCE_SECRET, key:device:window:counter:seq)
+--      is recomputed instead of stored; the row keeps only the current (nonce_window, nonce_seq),
+--      advanced by a compare-and-swap UPDATE, so every nonce is single-use and a reused one burns
+--      the license. Accepted only from the current or the previous window (1 day each)
 
 -- 2. TIME-BASED SECURITY:
 --    - All timestamps use server time (Date.now() in Cloudflare Worker)
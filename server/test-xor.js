@@ -168,6 +168,35 @@ try {
 }
 console.log('');
 
+// Test Case 5: Android client output (XorCodec)
+console.log('━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━');
+console.log('📱 Test Case 5: Android Client Envelope (XorCodec)');
+console.log('━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━');
+
+// Envelopes written by XorCodec.writeEnvelope() on the client with xorKey1
+// The streaming codec must stay byte-identical to xorEncryptDecrypt()
+const clientVectors = [
+  {
+    plain: payloadStr2,
+    envelope: '{"encrypted":"ShBfXVZTWUsxGjgxSA9uZ2V3YGAEG2N9BxFheWVoBxECH2dxZmIDGnhnIDFCXj0qX21HW15TWRpuZyE1X0k7KG5BVkdGX1hWCzE8P1RDCyRTUQIGBhQbGjoqPTdUD25ncFBwUHBQcFAdLxg4fEMbNWBAYEBgQGBADT9iZgIZYXMTHhFQUEBeWzEaOjATF3YxVEFHa1FTQVE3IAxlAx5gcAcFCxZI"}'
+  },
+  {
+    plain: JSON.stringify({ success: false, error: 'لایسنس نامعتبر ❌' }),
+    envelope: '{"encrypted":"ShBAQVZVUksnZ2kyUEEnIB0QVkZHWUUabmeK0OmKj8npgeqy7YUX4dKd9I209e2dm+qb7IQW1aXYZy4="}'
+  }
+];
+
+let match5 = true;
+for (const vector of clientVectors) {
+  const serverEnvelope = JSON.stringify({ encrypted: xorEncryptDecrypt(vector.plain, xorKey1) });
+  const decoded = xorDecrypt(JSON.parse(vector.envelope).encrypted, xorKey1);
+  const ok = serverEnvelope === vector.envelope && decoded === vector.plain;
+  console.log(ok ? '✅' : '❌', vector.plain.length, 'bytes');
+  match5 = match5 && ok;
+}
+console.log('✅ Client/Server compatibility:', match5 ? 'SUCCESS' : 'FAILED');
+console.log('');
+
 // Summary
 console.log('━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━');
 console.log('📊 Summary');
@@ -176,9 +205,10 @@ console.log('Test Case 1 (Activation):', match1 ? '✅' : '❌');
 console.log('Test Case 2 (Verification):', match2 ? '✅' : '❌');
 console.log('Test Case 3 (Response):', match3 ? '✅' : '❌');
 console.log('Test Case 4 (Security): ✅');
+console.log('Test Case 5 (Client Envelope):', match5 ? '✅' : '❌');
 console.log('');
 
-const allPassed = match1 && match2 && match3;
+const allPassed = match1 && match2 && match3 && match5;
 if (allPassed) {
   console.log('🎉 All tests PASSED! XOR encryption is working correctly.');
 } else {